@@ -0,0 +1,24 @@
+# Generates the resource classes and properties files used by the
+# benchmarks, from src/bench/java/bench/BenchResource.xml: package "bench"
+# in dynamic style, and package "bench.functor" in functor style. These
+# files are checked into git. Run "mvn compile" first, then invoke this
+# script from the root of the project when you modify BenchResource.xml
+# or the generator, and check in the new versions.
+set -e
+CP=target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)
+TMP=target/bench-generate
+rm -rf $TMP
+mkdir -p $TMP/bench/functor
+cp src/bench/java/bench/BenchResource.xml \
+    src/bench/java/bench/BenchResource_fr_FR.properties \
+    $TMP/bench
+cp $TMP/bench/* $TMP/bench/functor 2>/dev/null || true
+for style in dynamic functor; do
+  if [ $style = dynamic ]; then dir=bench; else dir=bench/functor; fi
+  java -cp $CP org.eigenbase.resgen.ResourceGen \
+      -srcdir $TMP -destdir src/bench/java -resdir src/bench/resources \
+      -locales en_US,fr_FR -style $style -force \
+      $dir/BenchResource.xml $dir/BenchResource_fr_FR.properties
+done
+
+# end
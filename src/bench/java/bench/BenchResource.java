@@ -0,0 +1,225 @@
+// This class is generated. Do NOT modify it, or
+// add it to source control.
+
+package bench;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import org.eigenbase.resgen.*;
+
+/**
+ * This class was generated
+ * by class org.eigenbase.resgen.ResourceGen
+ * from /tmp/shim/bench-generate/bench/BenchResource.xml
+ * on Fri Oct 16 22:39:45 UTC 2026.
+ * It contains a list of messages, and methods to
+ * retrieve and format those messages.
+ */
+
+public class BenchResource extends org.eigenbase.resgen.ShadowResourceBundle {
+    public BenchResource() throws IOException {
+    }
+    private static final BundleCache<BenchResource> instances =
+        new BundleCache<BenchResource>(BenchResource.class);
+    /**
+     * Retrieves the singleton instance of {@link BenchResource}. If
+     * the application has called {@link #setThreadLocale}, returns the
+     * resource for the thread's locale.
+     */
+    public static BenchResource instance() {
+        return instances.get(getThreadOrDefaultLocale());
+    }
+    /**
+     * Retrieves the instance of {@link BenchResource} for the given locale.
+     */
+    public static BenchResource instance(Locale locale) {
+        return instances.get(locale);
+    }
+    /**
+     * Loads the instances of {@link BenchResource} for the given locales
+     * in parallel, and returns the time taken to load each, in
+     * nanoseconds. If executor is null, uses a temporary thread pool.
+     */
+    public static java.util.Map<Locale, Long> preload(
+        java.util.Collection<Locale> locales,
+        java.util.concurrent.Executor executor) {
+        return instances.preload(locales, executor);
+    }
+    private static final KeyIndex keyIndex =
+        new KeyIndex(
+            new String[] {
+                "RowsCopied",
+                "BaseOnly",
+                "QueryStats",
+                "QueryCancelled",
+                "EndOfInput",
+                "QueryAborted",
+                "QueryFailed",
+                "Connecting",
+                "ServerStarted"
+            },
+            new int[] {0, -3, -4, -9, 0, 1, 3, 0, 3});
+    protected KeyIndex getKeyIndex() {
+        return keyIndex;
+    }
+
+    /**
+     * <code>ServerStarted</code> is '<code>Server started.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition ServerStarted = new org.eigenbase.resgen.ResourceDefinition("ServerStarted", "Server started.");
+    public String getServerStarted() {
+        return ServerStarted.getConstant(this);
+    }
+    public StringBuilder appendServerStarted(StringBuilder buf) {
+        return buf.append(ServerStarted.getConstant(this));
+    }
+
+    /**
+     * <code>Connecting</code> is '<code>Connecting to {0}.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition Connecting = new org.eigenbase.resgen.ResourceDefinition("Connecting", "Connecting to {0}.");
+    public String getConnecting(String p0) {
+        return Connecting.instantiate(this, new Object[] {p0}).toString();
+    }
+    public StringBuilder appendConnecting(StringBuilder buf, String p0) {
+        Connecting.formatTo(this, new Object[] {p0}, buf);
+        return buf;
+    }
+
+    /**
+     * <code>RowsCopied</code> is '<code>Copied {0,number} rows from {1} to {2}.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition RowsCopied = new org.eigenbase.resgen.ResourceDefinition("RowsCopied", "Copied {0,number} rows from {1} to {2}.");
+    public String getRowsCopied(Number p0, String p1, String p2) {
+        return RowsCopied.instantiate(this, new Object[] {p0, p1, p2}).toString();
+    }
+    public StringBuilder appendRowsCopied(StringBuilder buf, Number p0, String p1, String p2) {
+        RowsCopied.formatTo(this, new Object[] {p0, p1, p2}, buf);
+        return buf;
+    }
+    public String getRowsCopied(long p0, String p1, String p2) {
+        return RowsCopied.arguments(this).arg(p0).arg(p1).arg(p2).format();
+    }
+    public StringBuilder appendRowsCopied(StringBuilder buf, long p0, String p1, String p2) {
+        return RowsCopied.arguments(this).arg(p0).arg(p1).arg(p2).formatTo(buf);
+    }
+    public String getRowsCopied(double p0, String p1, String p2) {
+        return RowsCopied.arguments(this).arg(p0).arg(p1).arg(p2).format();
+    }
+    public StringBuilder appendRowsCopied(StringBuilder buf, double p0, String p1, String p2) {
+        return RowsCopied.arguments(this).arg(p0).arg(p1).arg(p2).formatTo(buf);
+    }
+
+    /**
+     * <code>QueryStats</code> is '<code>Query {0} on {1} returned {2,number} rows in {3,number} ms; cache {4}.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition QueryStats = new org.eigenbase.resgen.ResourceDefinition("QueryStats", "Query {0} on {1} returned {2,number} rows in {3,number} ms; cache {4}.");
+    public String getQueryStats(String p0, String p1, Number p2, Number p3, String p4) {
+        return QueryStats.instantiate(this, new Object[] {p0, p1, p2, p3, p4}).toString();
+    }
+    public StringBuilder appendQueryStats(StringBuilder buf, String p0, String p1, Number p2, Number p3, String p4) {
+        QueryStats.formatTo(this, new Object[] {p0, p1, p2, p3, p4}, buf);
+        return buf;
+    }
+    public String getQueryStats(String p0, String p1, long p2, long p3, String p4) {
+        return QueryStats.arguments(this).arg(p0).arg(p1).arg(p2).arg(p3).arg(p4).format();
+    }
+    public StringBuilder appendQueryStats(StringBuilder buf, String p0, String p1, long p2, long p3, String p4) {
+        return QueryStats.arguments(this).arg(p0).arg(p1).arg(p2).arg(p3).arg(p4).formatTo(buf);
+    }
+    public String getQueryStats(String p0, String p1, double p2, double p3, String p4) {
+        return QueryStats.arguments(this).arg(p0).arg(p1).arg(p2).arg(p3).arg(p4).format();
+    }
+    public StringBuilder appendQueryStats(StringBuilder buf, String p0, String p1, double p2, double p3, String p4) {
+        return QueryStats.arguments(this).arg(p0).arg(p1).arg(p2).arg(p3).arg(p4).formatTo(buf);
+    }
+
+    /**
+     * <code>BaseOnly</code> is '<code>Defined in the base locale only.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition BaseOnly = new org.eigenbase.resgen.ResourceDefinition("BaseOnly", "Defined in the base locale only.");
+    public String getBaseOnly() {
+        return BaseOnly.getConstant(this);
+    }
+    public StringBuilder appendBaseOnly(StringBuilder buf) {
+        return buf.append(BaseOnly.getConstant(this));
+    }
+
+    /**
+     * <code>QueryFailed</code> is '<code>Query {0} failed on {1}.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition QueryFailed = new org.eigenbase.resgen.ResourceDefinition("QueryFailed", "Query {0} failed on {1}.");
+    public String getQueryFailed(String p0, String p1) {
+        return QueryFailed.instantiate(this, new Object[] {p0, p1}).toString();
+    }
+    public StringBuilder appendQueryFailed(StringBuilder buf, String p0, String p1) {
+        QueryFailed.formatTo(this, new Object[] {p0, p1}, buf);
+        return buf;
+    }
+    public RuntimeException newQueryFailed(String p0, String p1) {
+        return new RuntimeException(getQueryFailed(p0, p1));
+    }
+    public RuntimeException newQueryFailed(String p0, String p1, Throwable err) {
+        return new RuntimeException(getQueryFailed(p0, p1), err);
+    }
+
+    /**
+     * <code>QueryCancelled</code> is '<code>Query {0} was cancelled on {1}.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition QueryCancelled = new org.eigenbase.resgen.ResourceDefinition("QueryCancelled", "Query {0} was cancelled on {1}.");
+    public String getQueryCancelled(String p0, String p1) {
+        return QueryCancelled.instantiate(this, new Object[] {p0, p1}).toString();
+    }
+    public StringBuilder appendQueryCancelled(StringBuilder buf, String p0, String p1) {
+        QueryCancelled.formatTo(this, new Object[] {p0, p1}, buf);
+        return buf;
+    }
+    public org.eigenbase.resgen.ResourceException newQueryCancelled(String p0, String p1) {
+        return new org.eigenbase.resgen.ResourceException(QueryCancelled.instantiate(this, new Object[] {p0, p1}));
+    }
+    public org.eigenbase.resgen.ResourceException newQueryCancelled(String p0, String p1, Throwable err) {
+        return new org.eigenbase.resgen.ResourceException(QueryCancelled.instantiate(this, new Object[] {p0, p1}), err);
+    }
+
+    /**
+     * <code>QueryAborted</code> is '<code>Query {0} was aborted on {1}.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition QueryAborted = new org.eigenbase.resgen.ResourceDefinition("QueryAborted", "Query {0} was aborted on {1}.");
+    public String getQueryAborted(String p0, String p1) {
+        return QueryAborted.instantiate(this, new Object[] {p0, p1}).toString();
+    }
+    public StringBuilder appendQueryAborted(StringBuilder buf, String p0, String p1) {
+        QueryAborted.formatTo(this, new Object[] {p0, p1}, buf);
+        return buf;
+    }
+    public org.eigenbase.resgen.ResourceException newQueryAborted(String p0, String p1) {
+        return new org.eigenbase.resgen.ResourceException(QueryAborted.instantiate(this, new Object[] {p0, p1}), null, false);
+    }
+    public org.eigenbase.resgen.ResourceException newQueryAborted(String p0, String p1, Throwable err) {
+        return new org.eigenbase.resgen.ResourceException(QueryAborted.instantiate(this, new Object[] {p0, p1}), err, false);
+    }
+
+    /**
+     * <code>EndOfInput</code> is '<code>Unexpected end of input.</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition EndOfInput = new org.eigenbase.resgen.ResourceDefinition("EndOfInput", "Unexpected end of input.");
+    public String getEndOfInput() {
+        return EndOfInput.getConstant(this);
+    }
+    public StringBuilder appendEndOfInput(StringBuilder buf) {
+        return buf.append(EndOfInput.getConstant(this));
+    }
+    private volatile org.eigenbase.resgen.ResourceException cachedEndOfInput;
+    public org.eigenbase.resgen.ResourceException newEndOfInput() {
+        org.eigenbase.resgen.ResourceException e = cachedEndOfInput;
+        if (e == null) {
+            e = new org.eigenbase.resgen.ResourceException(EndOfInput.instantiate(this, emptyObjectArray), null, false);
+            cachedEndOfInput = e;
+        }
+        return e;
+    }
+    public org.eigenbase.resgen.ResourceException newEndOfInput(Throwable err) {
+        return new org.eigenbase.resgen.ResourceException(EndOfInput.instantiate(this, emptyObjectArray), err, false);
+    }
+
+}
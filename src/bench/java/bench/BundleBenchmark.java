@@ -0,0 +1,101 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for creating, finding and reading resource bundles.
+ *
+ * <p>{@link #construct()} measures the constructor of a generated bundle
+ * class. Tables of messages are shared between bundles, so after the first
+ * iteration this measures finding the shared tables, not parsing the
+ * properties files.
+ *
+ * <p>The lookup benchmarks read a message that the French bundle defines
+ * itself, and a message that the US bundle has to find in the table of the
+ * base locale.
+ *
+ * @author jhyde
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleBenchmark
+{
+    private BenchResource frBundle;
+    private BenchResource usBundle;
+
+    @Setup
+    public void setup()
+    {
+        frBundle = BenchResource.instance(Locale.FRANCE);
+        usBundle = BenchResource.instance(Locale.US);
+    }
+
+    @Benchmark
+    public BenchResource construct() throws IOException
+    {
+        return new BenchResource_fr_FR();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BenchResource instanceContended()
+    {
+        return BenchResource.instance(Locale.FRANCE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BenchResource instanceThreadLocaleContended()
+    {
+        return BenchResource.instance();
+    }
+
+    @Benchmark
+    public String lookupOwnLocale()
+    {
+        return frBundle.getString("ServerStarted");
+    }
+
+    @Benchmark
+    public String lookupFallback()
+    {
+        return usBundle.getString("BaseOnly");
+    }
+}
+
+// End BundleBenchmark.java
@@ -0,0 +1,97 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package bench;
+
+import org.eigenbase.resgen.ResourceException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the exception factory methods of generated classes.
+ *
+ * <p><code>newQueryFailed</code> creates a {@link RuntimeException}, and
+ * so formats its message immediately; <code>newQueryCancelled</code>
+ * creates a {@link ResourceException}, which formats its message only if
+ * {@link Throwable#getMessage()} is called. <code>newQueryAborted</code>
+ * and <code>newEndOfInput</code> are declared with
+ * <code>stackTrace="false"</code>, so do not call
+ * {@link Throwable#fillInStackTrace()}; <code>newEndOfInput</code> has no
+ * parameters, and returns a cached instance.
+ *
+ * @author jhyde
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionBenchmark
+{
+    private BenchResource bundle;
+
+    @Setup
+    public void setup()
+    {
+        bundle = BenchResource.instance(Locale.FRANCE);
+    }
+
+    @Benchmark
+    public RuntimeException newEager()
+    {
+        return bundle.newQueryFailed("q1", "db1");
+    }
+
+    @Benchmark
+    public ResourceException newLazy()
+    {
+        return bundle.newQueryCancelled("q1", "db1");
+    }
+
+    @Benchmark
+    public String newLazyWithMessage()
+    {
+        return bundle.newQueryCancelled("q1", "db1").getMessage();
+    }
+
+    @Benchmark
+    public ResourceException newStackless()
+    {
+        return bundle.newQueryAborted("q1", "db1");
+    }
+
+    @Benchmark
+    public ResourceException newCached()
+    {
+        return bundle.newEndOfInput();
+    }
+}
+
+// End ExceptionBenchmark.java
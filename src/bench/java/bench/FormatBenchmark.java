@@ -0,0 +1,146 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for formatting messages with 0, 1, 3 and 5 arguments, using
+ * classes generated in the "dynamic" style (package <code>bench</code>)
+ * and in the "functor" style (package <code>bench.functor</code>).
+ *
+ * <p>Both styles format by calling
+ * {@link org.eigenbase.resgen.ResourceDefinition#instantiate} and then
+ * <code>toString()</code> on the result. The "Primitive" benchmarks pass
+ * <code>int</code> and <code>long</code> values, and so call the overloads
+ * that format via
+ * {@link org.eigenbase.resgen.ResourceDefinition#arguments} without boxing.
+ *
+ * @author jhyde
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark
+{
+    private BenchResource dynamic;
+    private bench.functor.BenchResource functor;
+    private final Integer rows = 1234;
+    private final Integer millis = 56;
+    private int rowCount = 1234;
+    private long millisLong = 56;
+    private final StringBuilder buf = new StringBuilder();
+
+    @Setup
+    public void setup()
+    {
+        dynamic = BenchResource.instance(Locale.FRANCE);
+        functor = bench.functor.BenchResource.instance(Locale.FRANCE);
+    }
+
+    @Benchmark
+    public String dynamic0()
+    {
+        return dynamic.getServerStarted();
+    }
+
+    @Benchmark
+    public String dynamic1()
+    {
+        return dynamic.getConnecting("db1");
+    }
+
+    @Benchmark
+    public String dynamic3()
+    {
+        return dynamic.getRowsCopied(rows, "emp", "dept");
+    }
+
+    @Benchmark
+    public String dynamic5()
+    {
+        return dynamic.getQueryStats("q1", "db1", rows, millis, "hit");
+    }
+
+    @Benchmark
+    public String dynamic3Primitive()
+    {
+        return dynamic.getRowsCopied(rowCount, "emp", "dept");
+    }
+
+    @Benchmark
+    public String dynamic5Primitive()
+    {
+        return dynamic.getQueryStats("q1", "db1", rowCount, millisLong, "hit");
+    }
+
+    @Benchmark
+    public StringBuilder dynamic5PrimitiveAppend()
+    {
+        buf.setLength(0);
+        return dynamic.appendQueryStats(
+            buf, "q1", "db1", rowCount, millisLong, "hit");
+    }
+
+    @Benchmark
+    public String functor0()
+    {
+        return functor.ServerStarted.str();
+    }
+
+    @Benchmark
+    public String functor1()
+    {
+        return functor.Connecting.str("db1");
+    }
+
+    @Benchmark
+    public String functor3()
+    {
+        return functor.RowsCopied.str(rows, "emp", "dept");
+    }
+
+    @Benchmark
+    public String functor5()
+    {
+        return functor.QueryStats.str("q1", "db1", rows, millis, "hit");
+    }
+
+    @Benchmark
+    public String functor5Primitive()
+    {
+        return functor.QueryStats.str("q1", "db1", rowCount, millisLong, "hit");
+    }
+}
+
+// End FormatBenchmark.java
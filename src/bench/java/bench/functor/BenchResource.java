@@ -0,0 +1,304 @@
+// This class is generated. Do NOT modify it, or
+// add it to source control.
+
+package bench.functor;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import org.eigenbase.resgen.*;
+
+/**
+ * This class was generated
+ * by class org.eigenbase.resgen.ResourceGen
+ * from /tmp/shim/bench-generate/bench/functor/BenchResource.xml
+ * on Fri Oct 16 22:39:46 UTC 2026.
+ * It contains a list of messages, and methods to
+ * retrieve and format those messages.
+ */
+
+public class BenchResource extends org.eigenbase.resgen.ShadowResourceBundle {
+    public BenchResource() throws IOException {
+    }
+    private static final BundleCache<BenchResource> instances =
+        new BundleCache<BenchResource>(BenchResource.class);
+    /**
+     * Retrieves the singleton instance of {@link BenchResource}. If
+     * the application has called {@link #setThreadLocale}, returns the
+     * resource for the thread's locale.
+     */
+    public static BenchResource instance() {
+        return instances.get(getThreadOrDefaultLocale());
+    }
+    /**
+     * Retrieves the instance of {@link BenchResource} for the given locale.
+     */
+    public static BenchResource instance(Locale locale) {
+        return instances.get(locale);
+    }
+    /**
+     * Loads the instances of {@link BenchResource} for the given locales
+     * in parallel, and returns the time taken to load each, in
+     * nanoseconds. If executor is null, uses a temporary thread pool.
+     */
+    public static java.util.Map<Locale, Long> preload(
+        java.util.Collection<Locale> locales,
+        java.util.concurrent.Executor executor) {
+        return instances.preload(locales, executor);
+    }
+    private static final KeyIndex keyIndex =
+        new KeyIndex(
+            new String[] {
+                "RowsCopied",
+                "BaseOnly",
+                "QueryStats",
+                "QueryCancelled",
+                "EndOfInput",
+                "QueryAborted",
+                "QueryFailed",
+                "Connecting",
+                "ServerStarted"
+            },
+            new int[] {0, -3, -4, -9, 0, 1, 3, 0, 3});
+    protected KeyIndex getKeyIndex() {
+        return keyIndex;
+    }
+
+    /**
+     * <code>ServerStarted</code> is '<code>Server started.</code>'
+     */
+    public final _Def0 ServerStarted = new _Def0("ServerStarted", "Server started.", null);
+
+    /**
+     * <code>Connecting</code> is '<code>Connecting to {0}.</code>'
+     */
+    public final _Def1 Connecting = new _Def1("Connecting", "Connecting to {0}.", null);
+
+    /**
+     * <code>RowsCopied</code> is '<code>Copied {0,number} rows from {1} to {2}.</code>'
+     */
+    public final _Def2 RowsCopied = new _Def2("RowsCopied", "Copied {0,number} rows from {1} to {2}.", null);
+
+    /**
+     * <code>QueryStats</code> is '<code>Query {0} on {1} returned {2,number} rows in {3,number} ms; cache {4}.</code>'
+     */
+    public final _Def3 QueryStats = new _Def3("QueryStats", "Query {0} on {1} returned {2,number} rows in {3,number} ms; cache {4}.", null);
+
+    /**
+     * <code>BaseOnly</code> is '<code>Defined in the base locale only.</code>'
+     */
+    public final _Def0 BaseOnly = new _Def0("BaseOnly", "Defined in the base locale only.", null);
+
+    /**
+     * <code>QueryFailed</code> is '<code>Query {0} failed on {1}.</code>'
+     */
+    public final _Def4 QueryFailed = new _Def4("QueryFailed", "Query {0} failed on {1}.", null);
+
+    /**
+     * <code>QueryCancelled</code> is '<code>Query {0} was cancelled on {1}.</code>'
+     */
+    public final _Def5 QueryCancelled = new _Def5("QueryCancelled", "Query {0} was cancelled on {1}.", null);
+
+    /**
+     * <code>QueryAborted</code> is '<code>Query {0} was aborted on {1}.</code>'
+     */
+    public final _Def6 QueryAborted = new _Def6("QueryAborted", "Query {0} was aborted on {1}.", null);
+
+    /**
+     * <code>EndOfInput</code> is '<code>Unexpected end of input.</code>'
+     */
+    public final _Def7 EndOfInput = new _Def7("EndOfInput", "Unexpected end of input.", null);
+
+
+    /**
+     * Definition for resources which
+     * take arguments ''.
+     */
+    public final class _Def0 extends org.eigenbase.resgen.ResourceDefinition {
+        _Def0(String key, String baseMessage, String[] props) {
+            super(key, baseMessage, props);
+        }
+        public String str() {
+            return getConstant(BenchResource.this);
+        }
+        public StringBuilder append(StringBuilder buf) {
+            return buf.append(getConstant(BenchResource.this));
+        }
+    }
+
+    /**
+     * Definition for resources which
+     * take arguments 'String p0'.
+     */
+    public final class _Def1 extends org.eigenbase.resgen.ResourceDefinition {
+        _Def1(String key, String baseMessage, String[] props) {
+            super(key, baseMessage, props);
+        }
+        public String str(String p0) {
+            return instantiate(BenchResource.this, new Object[] {p0}).toString();
+        }
+        public StringBuilder append(StringBuilder buf, String p0) {
+            formatTo(BenchResource.this, new Object[] {p0}, buf);
+            return buf;
+        }
+    }
+
+    /**
+     * Definition for resources which
+     * take arguments 'Number p0, String p1, String p2'.
+     */
+    public final class _Def2 extends org.eigenbase.resgen.ResourceDefinition {
+        _Def2(String key, String baseMessage, String[] props) {
+            super(key, baseMessage, props);
+        }
+        public String str(Number p0, String p1, String p2) {
+            return instantiate(BenchResource.this, new Object[] {p0, p1, p2}).toString();
+        }
+        public StringBuilder append(StringBuilder buf, Number p0, String p1, String p2) {
+            formatTo(BenchResource.this, new Object[] {p0, p1, p2}, buf);
+            return buf;
+        }
+        public String str(long p0, String p1, String p2) {
+            return arguments(BenchResource.this).arg(p0).arg(p1).arg(p2).format();
+        }
+        public StringBuilder append(StringBuilder buf, long p0, String p1, String p2) {
+            return arguments(BenchResource.this).arg(p0).arg(p1).arg(p2).formatTo(buf);
+        }
+        public String str(double p0, String p1, String p2) {
+            return arguments(BenchResource.this).arg(p0).arg(p1).arg(p2).format();
+        }
+        public StringBuilder append(StringBuilder buf, double p0, String p1, String p2) {
+            return arguments(BenchResource.this).arg(p0).arg(p1).arg(p2).formatTo(buf);
+        }
+    }
+
+    /**
+     * Definition for resources which
+     * take arguments 'String p0, String p1, Number p2, Number p3, String p4'.
+     */
+    public final class _Def3 extends org.eigenbase.resgen.ResourceDefinition {
+        _Def3(String key, String baseMessage, String[] props) {
+            super(key, baseMessage, props);
+        }
+        public String str(String p0, String p1, Number p2, Number p3, String p4) {
+            return instantiate(BenchResource.this, new Object[] {p0, p1, p2, p3, p4}).toString();
+        }
+        public StringBuilder append(StringBuilder buf, String p0, String p1, Number p2, Number p3, String p4) {
+            formatTo(BenchResource.this, new Object[] {p0, p1, p2, p3, p4}, buf);
+            return buf;
+        }
+        public String str(String p0, String p1, long p2, long p3, String p4) {
+            return arguments(BenchResource.this).arg(p0).arg(p1).arg(p2).arg(p3).arg(p4).format();
+        }
+        public StringBuilder append(StringBuilder buf, String p0, String p1, long p2, long p3, String p4) {
+            return arguments(BenchResource.this).arg(p0).arg(p1).arg(p2).arg(p3).arg(p4).formatTo(buf);
+        }
+        public String str(String p0, String p1, double p2, double p3, String p4) {
+            return arguments(BenchResource.this).arg(p0).arg(p1).arg(p2).arg(p3).arg(p4).format();
+        }
+        public StringBuilder append(StringBuilder buf, String p0, String p1, double p2, double p3, String p4) {
+            return arguments(BenchResource.this).arg(p0).arg(p1).arg(p2).arg(p3).arg(p4).formatTo(buf);
+        }
+    }
+
+    /**
+     * Definition for resources which
+     * return a {@link RuntimeException} exception and
+     * take arguments 'String p0, String p1'.
+     */
+    public final class _Def4 extends org.eigenbase.resgen.ResourceDefinition {
+        _Def4(String key, String baseMessage, String[] props) {
+            super(key, baseMessage, props);
+        }
+        public String str(String p0, String p1) {
+            return instantiate(BenchResource.this, new Object[] {p0, p1}).toString();
+        }
+        public StringBuilder append(StringBuilder buf, String p0, String p1) {
+            formatTo(BenchResource.this, new Object[] {p0, p1}, buf);
+            return buf;
+        }
+        public RuntimeException ex(String p0, String p1) {
+            return new RuntimeException(instantiate(BenchResource.this, new Object[] {p0, p1}).toString());
+        }
+        public RuntimeException ex(String p0, String p1, Throwable err) {
+            return new RuntimeException(instantiate(BenchResource.this, new Object[] {p0, p1}).toString(), err);
+        }
+    }
+
+    /**
+     * Definition for resources which
+     * return a {@link org.eigenbase.resgen.ResourceException} exception and
+     * take arguments 'String p0, String p1'.
+     */
+    public final class _Def5 extends org.eigenbase.resgen.ResourceDefinition {
+        _Def5(String key, String baseMessage, String[] props) {
+            super(key, baseMessage, props);
+        }
+        public String str(String p0, String p1) {
+            return instantiate(BenchResource.this, new Object[] {p0, p1}).toString();
+        }
+        public StringBuilder append(StringBuilder buf, String p0, String p1) {
+            formatTo(BenchResource.this, new Object[] {p0, p1}, buf);
+            return buf;
+        }
+        public org.eigenbase.resgen.ResourceException ex(String p0, String p1) {
+            return new org.eigenbase.resgen.ResourceException(instantiate(BenchResource.this, new Object[] {p0, p1}));
+        }
+        public org.eigenbase.resgen.ResourceException ex(String p0, String p1, Throwable err) {
+            return new org.eigenbase.resgen.ResourceException(instantiate(BenchResource.this, new Object[] {p0, p1}), err);
+        }
+    }
+
+    /**
+     * Definition for resources which
+     * return a {@link org.eigenbase.resgen.ResourceException} exception without a stack trace and
+     * take arguments 'String p0, String p1'.
+     */
+    public final class _Def6 extends org.eigenbase.resgen.ResourceDefinition {
+        _Def6(String key, String baseMessage, String[] props) {
+            super(key, baseMessage, props);
+        }
+        public String str(String p0, String p1) {
+            return instantiate(BenchResource.this, new Object[] {p0, p1}).toString();
+        }
+        public StringBuilder append(StringBuilder buf, String p0, String p1) {
+            formatTo(BenchResource.this, new Object[] {p0, p1}, buf);
+            return buf;
+        }
+        public org.eigenbase.resgen.ResourceException ex(String p0, String p1) {
+            return new org.eigenbase.resgen.ResourceException(instantiate(BenchResource.this, new Object[] {p0, p1}), null, false);
+        }
+        public org.eigenbase.resgen.ResourceException ex(String p0, String p1, Throwable err) {
+            return new org.eigenbase.resgen.ResourceException(instantiate(BenchResource.this, new Object[] {p0, p1}), err, false);
+        }
+    }
+
+    /**
+     * Definition for resources which
+     * return a {@link org.eigenbase.resgen.ResourceException} exception without a stack trace and
+     * take arguments ''.
+     */
+    public final class _Def7 extends org.eigenbase.resgen.ResourceDefinition {
+        _Def7(String key, String baseMessage, String[] props) {
+            super(key, baseMessage, props);
+        }
+        public String str() {
+            return getConstant(BenchResource.this);
+        }
+        public StringBuilder append(StringBuilder buf) {
+            return buf.append(getConstant(BenchResource.this));
+        }
+        private volatile org.eigenbase.resgen.ResourceException cached;
+        public org.eigenbase.resgen.ResourceException ex() {
+            org.eigenbase.resgen.ResourceException e = cached;
+            if (e == null) {
+                e = new org.eigenbase.resgen.ResourceException(instantiate(BenchResource.this, emptyObjectArray), null, false);
+                cached = e;
+            }
+            return e;
+        }
+        public org.eigenbase.resgen.ResourceException ex(Throwable err) {
+            return new org.eigenbase.resgen.ResourceException(instantiate(BenchResource.this, emptyObjectArray), err, false);
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+// This class is generated. Do NOT modify it, or
+// add it to source control.
+
+package bench.functor;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import org.eigenbase.resgen.*;
+
+/**
+ * This class was generated
+ * by class org.eigenbase.resgen.ResourceGen
+ * from /tmp/shim/bench-generate/bench/functor/BenchResource.xml
+ * on Fri Oct 16 22:14:47 UTC 2026.
+ * It contains a list of messages, and methods to
+ * retrieve and format those messages.
+ */
+
+public class BenchResource_fr_FR extends BenchResource {
+    public BenchResource_fr_FR() throws IOException {
+    }
+}
+
+// End BenchResource_fr_FR.java
@@ -0,0 +1,267 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the resource generator, on a synthetic resource file with
+ * 1,000, 10,000 or 100,000 resources and 50 locales (see
+ * {@link SyntheticCorpus}).
+ *
+ * <p>{@link #endToEnd()} runs {@link ResourceGen} as the command line or
+ * the Ant task would, generating Java, C++ and properties files. The other
+ * benchmarks time each phase separately:
+ *
+ * <ul>
+ * <li>{@link #parse()} parses the XML file;</li>
+ * <li>{@link #argTypes()} parses each message, and deduces the types of
+ *     its arguments for Java and for C++;</li>
+ * <li>{@link #emitJava()}, {@link #emitCpp()} and
+ *     {@link #emitProperties()} generate code into memory (from messages
+ *     that have already been parsed, as the generators share each parsed
+ *     message);</li>
+ * <li>{@link #writeFiles()} writes the output of those phases to files.</li>
+ * </ul>
+ *
+ * <p>To run just these benchmarks, with 10,000 resources:
+ *
+ * <blockquote><pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Djmh.args="GeneratorBenchmark -p messageCount=10000"</pre>
+ * </blockquote>
+ *
+ * @author jhyde
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GeneratorBenchmark
+{
+    @Param({"1000", "10000", "100000"})
+    int messageCount;
+
+    @Param({"50"})
+    int localeCount;
+
+    private File dir;
+    private File srcDir;
+    private File outDir;
+    private ResourceGenTask task;
+    private XmlFileTask xmlTask;
+    private ResourceDef.ResourceBundle resourceList;
+    private URL url;
+
+    /** Output of the emit phases, for {@link #writeFiles()}. */
+    private final List<char[]> outputs = new ArrayList<char[]>();
+
+    /** Generator that does not print progress messages. */
+    private final ResourceGen generator =
+        new ResourceGen() {
+            void comment(String message)
+            {
+            }
+        };
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        dir = File.createTempFile("resgen-bench", "");
+        dir.delete();
+        srcDir = new File(dir, "src");
+        outDir = new File(dir, "out");
+        SyntheticCorpus.write(srcDir, messageCount, localeCount);
+        task = new ResourceGenTask();
+        task.setMode("all");
+        task.setSrcdir(srcDir);
+        task.setDestdir(outDir);
+        task.setResdir(outDir);
+        task.setLocales(SyntheticCorpus.localeList(localeCount));
+        task.setForce(true);
+        final ResourceGenTask.Include include = new ResourceGenTask.Include();
+        include.setName(SyntheticCorpus.XML_FILE);
+        task.addInclude(include);
+        xmlTask =
+            new XmlFileTask(
+                include, SyntheticCorpus.XML_FILE, null, null, true, null,
+                null, true);
+        url = Util.convertPathToURL(xmlTask.getFile());
+        resourceList = Util.load(url);
+        outputs.add(emitJava());
+        outputs.add(emitCpp());
+        outputs.add(emitProperties());
+    }
+
+    @Setup(Level.Invocation)
+    public void clean()
+    {
+        // Otherwise the generator would find the properties files that it
+        // generated last time, and decide that they are up to date.
+        delete(outDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        delete(dir);
+    }
+
+    private static void delete(File file)
+    {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    @Benchmark
+    public void endToEnd() throws IOException
+    {
+        generator.run(task);
+    }
+
+    @Benchmark
+    public ResourceDef.ResourceBundle parse() throws IOException
+    {
+        return Util.load(url);
+    }
+
+    @Benchmark
+    public int argTypes()
+    {
+        final AbstractJavaGenerator javaGen = javaGenerator(null);
+        final CppGenerator cppGen = cppGenerator();
+        int n = 0;
+        for (ResourceDef.Resource resource : resourceList.resources) {
+            // Discard the parsed message, so that each invocation parses
+            // each message once, as a run of the generator does.
+            resource.template = null;
+            n += javaGen.getArgTypes(resource).length;
+            n += cppGen.getArgTypes(resource).length;
+        }
+        return n;
+    }
+
+    @Benchmark
+    public char[] emitJava()
+    {
+        final CharArrayWriter w = new CharArrayWriter();
+        final PrintWriter pw = new PrintWriter(w);
+        javaGenerator(null).generateModule(generator, resourceList, pw);
+        for (String localeName : task.locales.split(",")) {
+            final Locale locale = Util.parseLocale(localeName);
+            javaGenerator(locale).generateModule(generator, resourceList, pw);
+        }
+        pw.flush();
+        return w.toCharArray();
+    }
+
+    @Benchmark
+    public char[] emitCpp()
+    {
+        final CharArrayWriter w = new CharArrayWriter();
+        final PrintWriter pw = new PrintWriter(w);
+        new CppHeaderGenerator(
+            xmlTask.getFile(), new File(outDir, "SyntheticResource.h"),
+            "SyntheticResource", "ResourceBundle", "ResourceException")
+            .generateModule(generator, resourceList, pw);
+        cppGenerator().generateModule(generator, resourceList, pw);
+        pw.flush();
+        return w.toCharArray();
+    }
+
+    @Benchmark
+    public char[] emitProperties()
+    {
+        final CharArrayWriter w = new CharArrayWriter();
+        final PrintWriter pw = new PrintWriter(w);
+        xmlTask.generateBaseProperties(resourceList, pw);
+        pw.flush();
+        return w.toCharArray();
+    }
+
+    @Benchmark
+    public void writeFiles() throws IOException
+    {
+        outDir.mkdirs();
+        int i = 0;
+        for (char[] output : outputs) {
+            final PrintWriter pw =
+                new PrintWriter(
+                    new FileOutputStream(new File(outDir, "out" + i++)));
+            try {
+                pw.write(output);
+            } finally {
+                pw.close();
+            }
+        }
+    }
+
+    private AbstractJavaGenerator javaGenerator(Locale locale)
+    {
+        final String className = xmlTask.className;
+        final File file = new File(outDir, "SyntheticResource.java");
+        if (locale == null) {
+            return new JavaBaseGenerator(
+                xmlTask.getFile(), file, className,
+                xmlTask.baseClassName, resourceList);
+        }
+        return new JavaLocaleGenerator(
+            xmlTask.getFile(), file, className + "_" + locale,
+            resourceList, locale, className);
+    }
+
+    private CppGenerator cppGenerator()
+    {
+        return new CppGenerator(
+            xmlTask.getFile(), new File(outDir, "SyntheticResource.cpp"),
+            "SyntheticResource", "ResourceBundle", "ResourceException",
+            "SyntheticResource.h");
+    }
+}
+
+// End GeneratorBenchmark.java
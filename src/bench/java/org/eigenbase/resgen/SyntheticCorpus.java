@@ -0,0 +1,186 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Writes a synthetic resource file, and properties files for many locales,
+ * for benchmarking the generator.
+ *
+ * <p>The resource file <code>synth/SyntheticResource.xml</code> contains
+ * the given number of resources. Their messages have between 0 and 5
+ * arguments, of types string, number, date, time and choice; every seventh
+ * resource is an exception. For each locale there is a properties file,
+ * such as <code>synth/SyntheticResource_fr_FR.properties</code>, which
+ * translates every tenth message.
+ *
+ * <p>To write a corpus without running the benchmark:
+ *
+ * <blockquote><pre>
+ * java org.eigenbase.resgen.SyntheticCorpus <i>dir</i> 10000 50</pre>
+ * </blockquote>
+ *
+ * @author jhyde
+ */
+class SyntheticCorpus
+{
+    /** Locales, up to 50 of which are used. */
+    static final String[] LOCALES = {
+        "en_US", "en_GB", "en_CA", "en_AU", "en_IN", "fr_FR", "fr_CA",
+        "fr_BE", "fr_CH", "de_DE", "de_AT", "de_CH", "it_IT", "it_CH",
+        "es_ES", "es_MX", "es_AR", "es_CO", "pt_BR", "pt_PT", "nl_NL",
+        "nl_BE", "sv_SE", "da_DK", "nb_NO", "fi_FI", "is_IS", "pl_PL",
+        "cs_CZ", "sk_SK", "hu_HU", "ro_RO", "bg_BG", "el_GR", "tr_TR",
+        "ru_RU", "uk_UA", "hr_HR", "sl_SI", "sr_RS", "lt_LT", "lv_LV",
+        "et_EE", "ja_JP", "ko_KR", "zh_CN", "zh_TW", "th_TH", "vi_VN",
+        "id_ID",
+    };
+
+    /** Name of the resource file, relative to the source directory. */
+    static final String XML_FILE = "synth/SyntheticResource.xml";
+
+    private SyntheticCorpus()
+    {
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        write(
+            new File(args[0]),
+            Integer.parseInt(args[1]),
+            args.length > 2 ? Integer.parseInt(args[2]) : LOCALES.length);
+    }
+
+    /**
+     * Returns the names of the first <code>localeCount</code> locales,
+     * separated by commas, in the form expected by
+     * {@link ResourceGenTask#setLocales(String)}. The first locale is the
+     * locale of the resource file.
+     */
+    static String localeList(int localeCount)
+    {
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < localeCount; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            buf.append(LOCALES[i]);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Writes a resource file and its locales' properties files.
+     *
+     * @param dir Source directory
+     * @param messageCount Number of resources
+     * @param localeCount Number of locales, at most 50
+     * @throws IOException on error
+     */
+    static void write(File dir, int messageCount, int localeCount)
+        throws IOException
+    {
+        if (localeCount > LOCALES.length) {
+            throw new IllegalArgumentException(
+                "at most " + LOCALES.length + " locales");
+        }
+        final File xmlFile = new File(dir, XML_FILE);
+        xmlFile.getParentFile().mkdirs();
+        PrintWriter pw = open(xmlFile);
+        try {
+            pw.println("<?xml version=\"1.0\" ?>");
+            pw.println(
+                "<resourceBundle locale=\"" + LOCALES[0] + "\""
+                + " cppExceptionClassName=\"ResourceException\""
+                + " cppExceptionClassLocation=\"ResourceException.h\">");
+            for (int i = 0; i < messageCount; i++) {
+                final String tag = i % 7 == 6 ? "exception" : "message";
+                pw.print("  <" + tag + " name=\"" + name(i) + "\"");
+                if (tag.equals("exception")) {
+                    pw.print(" className=\"RuntimeException\"");
+                }
+                pw.println(">");
+                pw.println(
+                    "    <text>" + message(i).replace("<", "&lt;")
+                    + "</text>");
+                pw.println("  </" + tag + ">");
+            }
+            pw.println("</resourceBundle>");
+        } finally {
+            pw.close();
+        }
+        for (int j = 1; j < localeCount; j++) {
+            final File file =
+                new File(
+                    xmlFile.getParentFile(),
+                    "SyntheticResource_" + LOCALES[j] + ".properties");
+            pw = open(file);
+            try {
+                pw.println("# Translations for locale " + LOCALES[j] + ".");
+                for (int i = j % 10; i < messageCount; i += 10) {
+                    pw.println(
+                        name(i) + "=" + Util.quoteForProperties(
+                            "[" + LOCALES[j] + "] " + message(i)));
+                }
+            } finally {
+                pw.close();
+            }
+        }
+    }
+
+    private static PrintWriter open(File file) throws IOException
+    {
+        return new PrintWriter(
+            new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1"));
+    }
+
+    /** Returns the name of the <code>i</code>th resource. */
+    static String name(int i)
+    {
+        return "Synthetic" + i;
+    }
+
+    /** Returns the message of the <code>i</code>th resource. */
+    static String message(int i)
+    {
+        switch (i % 6) {
+        case 0:
+            return "Operation " + i + " completed.";
+        case 1:
+            return "Could not open file {0} for operation " + i + ".";
+        case 2:
+            return "Loaded {0,number} rows into table {1} in step " + i + ".";
+        case 3:
+            return "User {0} logged in at {1,time} on {2,date} from host {3}.";
+        case 4:
+            return "Job {0} wrote {1,number,integer} bytes to {2} at {3,time}"
+                + " after {4,number} retries.";
+        default:
+            return "There {0,choice,0#are no files|1#is one file"
+                + "|1<are {0,number,integer} files} in {1} ("
+                + i + ").";
+        }
+    }
+}
+
+// End SyntheticCorpus.java
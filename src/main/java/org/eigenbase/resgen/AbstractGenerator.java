@@ -145,11 +145,21 @@ abstract class AbstractGenerator implements Generator
     /**
      * Returns a parameter list string, e.g. "String p0, int p1".
      *
-     * @param message Message to parse
+     * @param resource Resource
      * @return Parameter list as a string
      */
-    protected String getParameterList(String message) {
-        final String [] types = getArgTypes(message);
+    protected String getParameterList(ResourceDef.Resource resource) {
+        return getParameterList(getArgTypes(resource));
+    }
+
+    /**
+     * Returns a parameter list string for given argument types,
+     * e.g. "String p0, int p1".
+     *
+     * @param types Types of arguments
+     * @return Parameter list as a string
+     */
+    protected String getParameterList(String[] types) {
         if (types.length == 0) {
             return "";
         }
@@ -173,19 +183,22 @@ abstract class AbstractGenerator implements Generator
     }
 
     /**
-     * Returns the number and types of parameters in the given error message,
-     * expressed as an array of Strings (legal values are
-     * currently "String", "Number", "java.util.Date", and null) ordered by
+     * Returns the number and types of parameters in the message of a
+     * resource, expressed as an array of Strings (for Java, legal values are
+     * currently "String", "Number" and "java.util.Date") ordered by
      * parameter number.
      *
-     * @param message Message
+     * <p>The types are derived from the resource's parsed message (see
+     * {@link ResourceGen#getTemplate}), so the message is not parsed again.
+     *
+     * @param resource Resource
      * @return Array of argument type names
      */
-    protected abstract String [] getArgTypes(String message);
+    protected abstract String [] getArgTypes(ResourceDef.Resource resource);
 
-    protected String getArgumentList(String message)
+    protected String getArgumentList(ResourceDef.Resource resource)
     {
-        final String [] types = getArgTypes(message);
+        final String [] types = getArgTypes(resource);
 
         if (types.length == 0) {
             return "";
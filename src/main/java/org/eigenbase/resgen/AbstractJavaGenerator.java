@@ -68,6 +68,20 @@ abstract class AbstractJavaGenerator extends AbstractGenerator
         }
     }
 
+    /**
+     * Returns whether the exceptions created by this resource should not
+     * record a stack trace; see the <code>stackTrace</code> attribute of
+     * <code>&lt;exception&gt;</code>.
+     *
+     * @param exception Exception element
+     * @return Whether exceptions are stackless
+     */
+    protected boolean isStackless(ResourceDef.Exception exception)
+    {
+        return exception.stackTrace != null
+            && exception.stackTrace.equalsIgnoreCase("false");
+    }
+
     protected String getPackageName()
     {
         int lastDot = className.lastIndexOf('.');
@@ -78,8 +92,49 @@ abstract class AbstractJavaGenerator extends AbstractGenerator
         }
     }
 
-    protected String[] getArgTypes(String message) {
-        return ResourceDefinition.getArgTypes(message, JAVA_TYPE_NAMES);
+    protected String[] getArgTypes(ResourceDef.Resource resource) {
+        return ResourceGen.getTemplate(resource).getArgTypes(JAVA_TYPE_NAMES);
+    }
+
+    /**
+     * Returns a parameter list in which the parameters of number arguments
+     * have a primitive type, e.g. "String p0, long p1"; or null if the
+     * resource's message has no number arguments.
+     *
+     * @param resource Resource
+     * @param primitive Primitive type, "long" or "double"
+     * @return Parameter list, or null
+     */
+    protected String getPrimitiveParameterList(
+        ResourceDef.Resource resource,
+        String primitive)
+    {
+        final String[] types = getArgTypes(resource);
+        boolean found = false;
+        for (int i = 0; i < types.length; i++) {
+            if (JAVA_NUMBER.equals(types[i])) {
+                types[i] = primitive;
+                found = true;
+            }
+        }
+        return found ? getParameterList(types) : null;
+    }
+
+    /**
+     * Returns the calls which add the arguments of a resource to a
+     * {@link ResourceDefinition.Arguments}, e.g. ".arg(p0).arg(p1)".
+     *
+     * @param resource Resource
+     * @return Chain of calls to <code>arg</code>
+     */
+    protected String getArgChain(ResourceDef.Resource resource)
+    {
+        final String[] types = getArgTypes(resource);
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            buf.append(".arg(p").append(i).append(")");
+        }
+        return buf.toString();
     }
 
     protected void generateHeader(PrintWriter pw) {
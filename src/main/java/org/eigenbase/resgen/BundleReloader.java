@@ -0,0 +1,186 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reloads {@link ShadowResourceBundle}s whose properties files or catalogs
+ * have changed.
+ *
+ * <p>While reloading is enabled, each bundle that is loaded from files
+ * (rather than from a jar) is registered, by weak reference, when it is
+ * created, and a daemon thread periodically compares the modification time
+ * of each bundle's files with the time when they were read, and calls
+ * {@link ShadowResourceBundle#reload()} on each bundle that is out of date.
+ * The bundle is still usable while it is being reloaded; see
+ * {@link ShadowResourceBundle#setReloadInterval(long)}.
+ *
+ * @author jhyde
+ */
+class BundleReloader
+{
+    /** Bundles that have been loaded from files. */
+    private static final List<WeakReference<ShadowResourceBundle>> bundles =
+        new ArrayList<WeakReference<ShadowResourceBundle>>();
+
+    /** Number of times any bundle has been reloaded. */
+    private static final AtomicInteger version = new AtomicInteger();
+
+    /** Held while checking and reloading bundles. */
+    private static final Object checkLock = new Object();
+
+    /** Whether reloading is enabled, that is, whether a check is
+     * scheduled. */
+    private static volatile boolean enabled;
+
+    private static ScheduledExecutorService executor;
+    private static ScheduledFuture<?> task;
+
+    private BundleReloader()
+    {
+    }
+
+    /**
+     * Returns whether reloading is enabled. Bundles created while it is not
+     * are not registered, and their files are never checked.
+     *
+     * @return Whether a reload interval has been set
+     */
+    static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Registers a bundle, so that it is reloaded when its files change.
+     *
+     * @param bundle Bundle
+     */
+    static synchronized void register(ShadowResourceBundle bundle)
+    {
+        bundles.add(new WeakReference<ShadowResourceBundle>(bundle));
+    }
+
+    /**
+     * Returns the number of times that bundles have been reloaded. Caches
+     * derived from the contents of bundles remember the version when they
+     * were populated, and discard entries from earlier versions.
+     *
+     * @return Reload version
+     */
+    static int version()
+    {
+        return version.get();
+    }
+
+    /**
+     * Starts, restarts or stops the thread that checks for changes.
+     *
+     * @param millis Interval between checks, in milliseconds; 0 to stop
+     */
+    static synchronized void schedule(long millis)
+    {
+        if (millis < 0) {
+            throw new IllegalArgumentException("negative interval " + millis);
+        }
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        enabled = millis > 0;
+        if (millis == 0) {
+            return;
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r)
+                    {
+                        final Thread thread =
+                            new Thread(r, "resgen-bundle-reloader");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        task = executor.scheduleWithFixedDelay(
+            new Runnable() {
+                public void run()
+                {
+                    checkAll(true);
+                }
+            },
+            millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks every registered bundle, and reloads those whose files have
+     * changed.
+     *
+     * @param settle Whether to wait until a modified file has been unchanged
+     *   for two consecutive checks before reloading
+     * @return Number of bundles reloaded
+     */
+    static int checkAll(boolean settle)
+    {
+        final List<ShadowResourceBundle> list =
+            new ArrayList<ShadowResourceBundle>();
+        synchronized (BundleReloader.class) {
+            for (Iterator<WeakReference<ShadowResourceBundle>> iterator =
+                     bundles.iterator(); iterator.hasNext();)
+            {
+                final ShadowResourceBundle bundle = iterator.next().get();
+                if (bundle == null) {
+                    iterator.remove();
+                } else {
+                    list.add(bundle);
+                }
+            }
+        }
+        int count = 0;
+        synchronized (checkLock) {
+            for (ShadowResourceBundle bundle : list) {
+                if (bundle.isStale(settle)) {
+                    try {
+                        bundle.reload();
+                        ++count;
+                    } catch (Exception e) {
+                        // The file may be half-written. Keep the current
+                        // messages; the next check will try again.
+                    }
+                }
+            }
+        }
+        if (count > 0) {
+            version.incrementAndGet();
+        }
+        return count;
+    }
+}
+
+// End BundleReloader.java
@@ -0,0 +1,506 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Table of messages packed into a single byte array.
+ *
+ * <p>The keys and messages of the table are stored end-to-end in one
+ * <code>byte[]</code>, and located using an array of offsets. A message is
+ * decoded to a {@link String} only when it is requested. Compared to a
+ * {@link java.util.PropertyResourceBundle}, which holds two strings and a
+ * hash map entry for each message, this uses a fraction of the heap, and
+ * the garbage collector scans a handful of arrays per table.
+ *
+ * <p>If every character in the table is in the range 0 .. 255, the table is
+ * encoded as Latin-1, one byte per character. Otherwise each UTF-16
+ * character is encoded separately as one, two or three bytes, as in UTF-8.
+ * (A character outside the basic multilingual plane therefore occupies six
+ * bytes, but the encoding is lossless.)
+ *
+ * <p>If the bundle has a {@link KeyIndex}, the messages of keys in the index
+ * are stored in ordinal order, without their keys, and are found by
+ * ordinal. Other entries are sorted by the hash code of their key, and found
+ * by binary search.
+ *
+ * <p>A table can be written to, and read from, a binary <em>catalog</em>;
+ * see {@link #write(DataOutputStream)} and {@link #read(ByteBuffer, KeyIndex)}.
+ * Reading a catalog copies a few arrays, and does not parse or unescape any
+ * text.
+ *
+ * @author jhyde
+ */
+class CompactResourceTable extends ResourceTable
+{
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /** First four bytes of a catalog, "RGC1". */
+    static final int CATALOG_MAGIC = 0x52474331;
+    static final int CATALOG_VERSION = 1;
+    private static final int FLAG_LATIN1 = 1;
+    private static final int FLAG_INDEXED = 2;
+
+    /** Whether characters are stored one per byte. */
+    private final boolean latin1;
+    /** Key index, or null. */
+    private final KeyIndex keyIndex;
+    /** Which ordinals of the key index have a message; null if there is no
+     * key index. */
+    private final BitSet present;
+    /** The message of ordinal i occupies bytes
+     * [valueOffsets[i], valueOffsets[i + 1]) of data. */
+    private final int[] valueOffsets;
+    /** Hash codes of the keys that are not in the key index, in ascending
+     * order. */
+    private final int[] hashes;
+    /** Key i of the hashed entries occupies bytes [offsets[2i],
+     * offsets[2i + 1]) of data; its message occupies [offsets[2i + 1],
+     * offsets[2i + 2]). */
+    private final int[] offsets;
+    private final byte[] data;
+
+    private CompactResourceTable(
+        boolean latin1,
+        KeyIndex keyIndex,
+        BitSet present,
+        int[] valueOffsets,
+        int[] hashes,
+        int[] offsets,
+        byte[] data)
+    {
+        this.latin1 = latin1;
+        this.keyIndex = keyIndex;
+        this.present = present;
+        this.valueOffsets = valueOffsets;
+        this.hashes = hashes;
+        this.offsets = offsets;
+        this.data = data;
+    }
+
+    /**
+     * Reads a table from a stream in <code>.properties</code> format.
+     *
+     * @param stream Input stream
+     * @param keyIndex Key index, or null
+     * @return Table
+     * @throws IOException on error
+     */
+    static CompactResourceTable load(InputStream stream, KeyIndex keyIndex)
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.load(stream);
+        final String[] keys = properties.keySet().toArray(new String[0]);
+        final String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = properties.getProperty(keys[i]);
+        }
+        return create(keys, values, keyIndex);
+    }
+
+    /**
+     * Creates a table from parallel arrays of keys and messages.
+     *
+     * @param keys Keys
+     * @param values Messages
+     * @param keyIndex Key index, or null
+     * @return Table
+     */
+    static CompactResourceTable create(
+        String[] keys,
+        String[] values,
+        KeyIndex keyIndex)
+    {
+        final int indexSize = keyIndex == null ? 0 : keyIndex.size();
+        final String[] indexedValues = new String[indexSize];
+        final BitSet present = keyIndex == null ? null : new BitSet(indexSize);
+        final List<Integer> hashedList = new ArrayList<Integer>();
+        boolean latin1 = true;
+        for (int i = 0; i < keys.length; i++) {
+            latin1 = latin1 && isLatin1(keys[i]) && isLatin1(values[i]);
+            final int ordinal =
+                keyIndex == null ? -1 : keyIndex.indexOf(keys[i]);
+            if (ordinal >= 0) {
+                indexedValues[ordinal] = values[i];
+                present.set(ordinal);
+            } else {
+                hashedList.add(i);
+            }
+        }
+        final Integer[] order =
+            hashedList.toArray(new Integer[hashedList.size()]);
+        final int n = order.length;
+        final int[] keyHashes = new int[keys.length];
+        for (int i = 0; i < n; i++) {
+            keyHashes[order[i]] = keys[order[i]].hashCode();
+        }
+        Arrays.sort(
+            order,
+            new Comparator<Integer>() {
+                public int compare(Integer o1, Integer o2) {
+                    final int h1 = keyHashes[o1];
+                    final int h2 = keyHashes[o2];
+                    return h1 < h2 ? -1 : h1 > h2 ? 1 : 0;
+                }
+            });
+        final int[] valueOffsets = new int[indexSize + 1];
+        final int[] hashes = new int[n];
+        final int[] offsets = new int[2 * n + 1];
+        int length = 0;
+        for (String value : indexedValues) {
+            if (value != null) {
+                length += encodedLength(value, latin1);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            final int j = order[i];
+            hashes[i] = keyHashes[j];
+            length += encodedLength(keys[j], latin1);
+            length += encodedLength(values[j], latin1);
+        }
+        final byte[] data = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < indexSize; i++) {
+            valueOffsets[i] = offset;
+            if (indexedValues[i] != null) {
+                offset = encode(indexedValues[i], latin1, data, offset);
+            }
+        }
+        valueOffsets[indexSize] = offset;
+        for (int i = 0; i < n; i++) {
+            final int j = order[i];
+            offsets[2 * i] = offset;
+            offset = encode(keys[j], latin1, data, offset);
+            offsets[2 * i + 1] = offset;
+            offset = encode(values[j], latin1, data, offset);
+        }
+        offsets[2 * n] = offset;
+        return new CompactResourceTable(
+            latin1, keyIndex, present, valueOffsets, hashes, offsets, data);
+    }
+
+    /**
+     * Writes this table as a binary catalog.
+     *
+     * <p>The catalog consists of a header (magic number, version, flags,
+     * fingerprint of the key index, and the sizes of the sections), the
+     * bit set of ordinals present, the value offsets, the hashes and offsets
+     * of entries not in the key index, and finally the data. Integers are
+     * big-endian.
+     *
+     * @param out Output stream
+     * @throws IOException on error
+     */
+    void write(DataOutputStream out) throws IOException
+    {
+        final int indexSize = valueOffsets.length - 1;
+        out.writeInt(CATALOG_MAGIC);
+        out.writeInt(CATALOG_VERSION);
+        out.writeInt((latin1 ? FLAG_LATIN1 : 0)
+            | (keyIndex != null ? FLAG_INDEXED : 0));
+        out.writeInt(keyIndex == null ? 0 : keyIndex.fingerprint());
+        out.writeInt(indexSize);
+        out.writeInt(hashes.length);
+        out.writeInt(data.length);
+        for (int i = 0; i < indexSize; i += 64) {
+            long word = 0;
+            for (int j = 0; j < 64 && i + j < indexSize; j++) {
+                if (present.get(i + j)) {
+                    word |= 1L << j;
+                }
+            }
+            out.writeLong(word);
+        }
+        for (int valueOffset : valueOffsets) {
+            out.writeInt(valueOffset);
+        }
+        for (int hash : hashes) {
+            out.writeInt(hash);
+        }
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        out.write(data);
+    }
+
+    /**
+     * Reads a table from a binary catalog written by
+     * {@link #write(DataOutputStream)}.
+     *
+     * <p>Returns null if the catalog was written for a different key index
+     * than <code>keyIndex</code>; the caller should read the properties file
+     * instead.
+     *
+     * @param buf Buffer containing the catalog, for example a
+     *   {@link java.nio.MappedByteBuffer}
+     * @param keyIndex Key index of the resource bundle, or null
+     * @return Table, or null
+     * @throws IOException if the catalog is not valid
+     */
+    static CompactResourceTable read(ByteBuffer buf, KeyIndex keyIndex)
+        throws IOException
+    {
+        if (buf.remaining() < 28 || buf.getInt() != CATALOG_MAGIC) {
+            throw new IOException("not a resource catalog");
+        }
+        final int version = buf.getInt();
+        if (version != CATALOG_VERSION) {
+            throw new IOException(
+                "unsupported resource catalog version " + version);
+        }
+        final int flags = buf.getInt();
+        final int fingerprint = buf.getInt();
+        final boolean indexed = (flags & FLAG_INDEXED) != 0;
+        if (indexed != (keyIndex != null)
+            || indexed && fingerprint != keyIndex.fingerprint())
+        {
+            return null;
+        }
+        final int indexSize = buf.getInt();
+        final int hashedCount = buf.getInt();
+        final int dataLength = buf.getInt();
+        try {
+            final BitSet present = indexed ? new BitSet(indexSize) : null;
+            for (int i = 0; i < indexSize; i += 64) {
+                final long word = buf.getLong();
+                for (int j = 0; j < 64 && i + j < indexSize; j++) {
+                    if ((word & (1L << j)) != 0) {
+                        present.set(i + j);
+                    }
+                }
+            }
+            final int[] valueOffsets = new int[indexSize + 1];
+            buf.asIntBuffer().get(valueOffsets);
+            buf.position(buf.position() + valueOffsets.length * 4);
+            final int[] hashes = new int[hashedCount];
+            buf.asIntBuffer().get(hashes);
+            buf.position(buf.position() + hashes.length * 4);
+            final int[] offsets = new int[2 * hashedCount + 1];
+            buf.asIntBuffer().get(offsets);
+            buf.position(buf.position() + offsets.length * 4);
+            final byte[] data = new byte[dataLength];
+            buf.get(data);
+            return new CompactResourceTable(
+                (flags & FLAG_LATIN1) != 0, keyIndex, present, valueOffsets,
+                hashes, offsets, data);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, NegativeArraySizeException etc.
+            throw new IOException("invalid resource catalog: " + e);
+        }
+    }
+
+    String get(String key)
+    {
+        if (keyIndex != null) {
+            final int ordinal = keyIndex.indexOf(key);
+            if (ordinal >= 0) {
+                return get(ordinal);
+            }
+        }
+        final int i = find(key);
+        if (i < 0) {
+            return null;
+        }
+        return decode(offsets[2 * i + 1], offsets[2 * i + 2]);
+    }
+
+    String get(int ordinal)
+    {
+        if (present == null) {
+            throw new UnsupportedOperationException();
+        }
+        if (!present.get(ordinal)) {
+            return null;
+        }
+        return decode(valueOffsets[ordinal], valueOffsets[ordinal + 1]);
+    }
+
+    Collection<String> keys()
+    {
+        final List<String> keys = new ArrayList<String>();
+        if (present != null) {
+            for (int i = present.nextSetBit(0); i >= 0;
+                 i = present.nextSetBit(i + 1))
+            {
+                keys.add(keyIndex.getKey(i));
+            }
+        }
+        for (int i = 0; i < hashes.length; i++) {
+            keys.add(decode(offsets[2 * i], offsets[2 * i + 1]));
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the ordinal of the entry with a given key, or -1.
+     */
+    private int find(String key)
+    {
+        final int hash = key.hashCode();
+        int lo = 0;
+        int hi = hashes.length - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int midHash = hashes[mid];
+            if (midHash < hash) {
+                lo = mid + 1;
+            } else if (midHash > hash) {
+                hi = mid - 1;
+            } else {
+                // Found a key with the same hash code. Keys with the same
+                // hash code are adjacent; search in both directions.
+                for (int i = mid; i >= 0 && hashes[i] == hash; --i) {
+                    if (keyEquals(i, key)) {
+                        return i;
+                    }
+                }
+                for (int i = mid + 1; i < hashes.length && hashes[i] == hash;
+                     ++i)
+                {
+                    if (keyEquals(i, key)) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int i, String key)
+    {
+        int p = offsets[2 * i];
+        final int end = offsets[2 * i + 1];
+        final int length = key.length();
+        if (latin1) {
+            if (end - p != length) {
+                return false;
+            }
+            for (int k = 0; k < length; k++) {
+                if ((data[p++] & 0xff) != key.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int k = 0; k < length; k++) {
+            if (p >= end) {
+                return false;
+            }
+            final int b = data[p++] & 0xff;
+            final char c;
+            if (b < 0x80) {
+                c = (char) b;
+            } else if (b < 0xe0) {
+                c = (char) (((b & 0x1f) << 6) | (data[p++] & 0x3f));
+            } else {
+                c = (char) (((b & 0x0f) << 12)
+                    | ((data[p++] & 0x3f) << 6)
+                    | (data[p++] & 0x3f));
+            }
+            if (c != key.charAt(k)) {
+                return false;
+            }
+        }
+        return p == end;
+    }
+
+    private String decode(int start, int end)
+    {
+        if (latin1) {
+            return new String(data, start, end - start, ISO_8859_1);
+        }
+        int count = 0;
+        for (int p = start; p < end; p++) {
+            if ((data[p] & 0xc0) != 0x80) {
+                ++count;
+            }
+        }
+        final char[] chars = new char[count];
+        int p = start;
+        for (int k = 0; k < count; k++) {
+            final int b = data[p++] & 0xff;
+            if (b < 0x80) {
+                chars[k] = (char) b;
+            } else if (b < 0xe0) {
+                chars[k] = (char) (((b & 0x1f) << 6) | (data[p++] & 0x3f));
+            } else {
+                chars[k] = (char) (((b & 0x0f) << 12)
+                    | ((data[p++] & 0x3f) << 6)
+                    | (data[p++] & 0x3f));
+            }
+        }
+        return new String(chars);
+    }
+
+    private static boolean isLatin1(String s)
+    {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int encodedLength(String s, boolean latin1)
+    {
+        if (latin1) {
+            return s.length();
+        }
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        return length;
+    }
+
+    private static int encode(String s, boolean latin1, byte[] data, int p)
+    {
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (latin1 || c < 0x80) {
+                data[p++] = (byte) c;
+            } else if (c < 0x800) {
+                data[p++] = (byte) (0xc0 | (c >> 6));
+                data[p++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                data[p++] = (byte) (0xe0 | (c >> 12));
+                data[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                data[p++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return p;
+    }
+}
+
+// End CompactResourceTable.java
@@ -75,8 +75,8 @@ class CppGenerator extends AbstractGenerator
         return baseClassName;
     }
 
-    protected String[] getArgTypes(String message) {
-        return ResourceDefinition.getArgTypes(message, CPP_TYPE_NAMES);
+    protected String[] getArgTypes(ResourceDef.Resource resource) {
+        return ResourceGen.getTemplate(resource).getArgTypes(CPP_TYPE_NAMES);
     }
 
     public void generateModule(ResourceGen generator, ResourceDef.ResourceBundle resourceList, PrintWriter pw)
@@ -185,8 +185,8 @@ class CppGenerator extends AbstractGenerator
         final String resourceInitCap =
             ResourceGen.getResourceInitcap(resource);
 
-        String parameterList = getParameterList(text);
-        String argumentList = getArgumentList(text);
+        String parameterList = getParameterList(resource);
+        String argumentList = getArgumentList(resource);
 
         pw.println("string " + className + "::" + resource.name + "("
             + parameterList + ") const");
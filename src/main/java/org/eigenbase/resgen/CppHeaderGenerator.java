@@ -137,7 +137,7 @@ public class CppHeaderGenerator extends CppGenerator
 
             String text = resource.text.cdata;
             String comment = ResourceGen.getComment(resource);
-            String parameterList = getParameterList(text);
+            String parameterList = getParameterList(resource);
 
             // e.g. "Internal"
             final String resourceInitCap =
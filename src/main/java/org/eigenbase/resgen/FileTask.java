@@ -20,7 +20,9 @@ package org.eigenbase.resgen;
 import org.apache.tools.ant.BuildException;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
  * Abstract base class for an Ant task which processes a file containing
@@ -30,6 +32,17 @@ import java.util.Locale;
  */
 abstract class FileTask
 {
+    /**
+     * Pattern for the line of a generated file's header comment that says
+     * when it was generated; for example
+     * " * on Tue Mar 03 10:15:30 PST 2026." in a Java or C++ file, or
+     * "# on Tue Mar 03 10:15:30 PST 2026." in a properties file.
+     */
+    private static final Pattern TIMESTAMP_PATTERN =
+        Pattern.compile(
+            "( \\* |# )on [A-Z][a-z]{2} [A-Z][a-z]{2} [0-9]{2}"
+            + " [0-9]{2}:[0-9]{2}:[0-9]{2} [^ ]+ [0-9]{4}\\.\r?");
+
     ResourceGenTask.Include include;
     String className;
     String fileName;
@@ -67,9 +80,81 @@ abstract class FileTask
         return file;
     }
 
-    boolean checkUpToDate(ResourceGen generator, File file) {
-        if (file.exists() &&
-            file.lastModified() >= getFile().lastModified()) {
+    /**
+     * Returns the files from which this task generates its outputs. For
+     * example, happy/BirthdayResource_en.xml.
+     */
+    File[] getInputFiles()
+    {
+        return new File[] {getFile()};
+    }
+
+    /**
+     * Returns the key of an output file: a hash of the generator, of the
+     * options that affect the output's content, and of the content of the
+     * input files of this task and of any extra inputs of the output. See
+     * {@link Manifest}.
+     *
+     * <p>Every output depends on the comment style and the class name.
+     *
+     * @param options Other options that affect the output, such as the
+     *   style of a Java class; elements may be null
+     * @param extraInputs Files, besides {@link #getInputFiles()}, that the
+     *   output is generated from; a file need not exist
+     * @return Key, or null if the task has no manifest
+     */
+    String getKey(String[] options, File... extraInputs)
+    {
+        if (include.root.getManifestFile() == null) {
+            return null;
+        }
+        final Manifest.KeyBuilder builder = new Manifest.KeyBuilder();
+        builder.add(Manifest.getGeneratorVersion())
+            .add(String.valueOf(include.root.commentStyle))
+            .add(className);
+        for (String option : options) {
+            builder.add(option);
+        }
+        try {
+            for (File input : getInputFiles()) {
+                builder.add(input);
+            }
+            for (File input : extraInputs) {
+                builder.add(input);
+            }
+        } catch (IOException e) {
+            throw new BuildException("Error while reading inputs", e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns whether a file is up to date. If so, prints a message.
+     *
+     * <p>If the task has a manifest, the file is up to date if it has the
+     * content it would have if it were generated with the given key;
+     * otherwise, if it is at least as new as the file it is generated from.
+     *
+     * @param generator Generator
+     * @param file Output file
+     * @param key Key of the output's inputs; see {@link #getKey}
+     * @param input File that the output is generated from
+     * @return Whether the file is up to date
+     */
+    boolean checkUpToDate(
+        ResourceGen generator,
+        File file,
+        String key,
+        File input)
+    {
+        final boolean upToDate;
+        if (generator.manifest != null) {
+            upToDate = generator.manifest.isUpToDate(file, key);
+        } else {
+            upToDate = file.exists()
+                && file.lastModified() >= input.lastModified();
+        }
+        if (upToDate) {
             generator.comment(file + " is up to date");
             return true;
         }
@@ -77,6 +162,21 @@ abstract class FileTask
         return false;
     }
 
+    /**
+     * Records in the manifest, if there is one, that a file has been
+     * generated.
+     *
+     * @param generator Generator
+     * @param file Output file
+     * @param key Key of the output's inputs; see {@link #getKey}
+     */
+    void recordOutput(ResourceGen generator, File file, String key)
+    {
+        if (generator.manifest != null) {
+            generator.manifest.record(file, key);
+        }
+    }
+
     void makeParentDirs(File file)
     {
         if (file.getParentFile() != null) {
@@ -84,6 +184,72 @@ abstract class FileTask
         }
     }
 
+    /**
+     * Writes generated content to a file, unless the file already has the
+     * same content, in which case prints a message and leaves the file, and
+     * its timestamp, alone. Thus tools such as javac and make do not
+     * recompile code that depends on a file that has not changed.
+     *
+     * <p>Two text files whose only difference is the time at which they were
+     * generated (see {@link #TIMESTAMP_PATTERN}) are considered the same.
+     *
+     * @param generator Generator
+     * @param file Output file
+     * @param bytes Content
+     * @param text Whether the content is text in the default encoding
+     * @return Whether the file was written
+     */
+    boolean writeIfChanged(
+        ResourceGen generator,
+        File file,
+        byte[] bytes,
+        boolean text)
+    {
+        try {
+            if (file.isFile() && file.length() <= Integer.MAX_VALUE) {
+                final byte[] existing = Util.readFully(file);
+                if (Arrays.equals(existing, bytes)
+                    || text && equalsIgnoringTimestamp(existing, bytes))
+                {
+                    generator.comment(file + " is unchanged");
+                    return false;
+                }
+            }
+            makeParentDirs(file);
+            final OutputStream out = new FileOutputStream(file);
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+            return true;
+        } catch (IOException e) {
+            throw new BuildException("Error while writing " + file, e);
+        }
+    }
+
+    /**
+     * Returns whether two generated text files have the same lines, except
+     * perhaps the lines that say when each was generated.
+     */
+    private static boolean equalsIgnoringTimestamp(byte[] bytes0, byte[] bytes1)
+    {
+        final String[] lines0 = new String(bytes0).split("\n", -1);
+        final String[] lines1 = new String(bytes1).split("\n", -1);
+        if (lines0.length != lines1.length) {
+            return false;
+        }
+        for (int i = 0; i < lines0.length; i++) {
+            if (!lines0[i].equals(lines1[i])
+                && !(TIMESTAMP_PATTERN.matcher(lines0[i]).matches()
+                    && TIMESTAMP_PATTERN.matcher(lines1[i]).matches()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private String getPackageName()
     {
         int lastDot = className.lastIndexOf('.');
@@ -142,20 +308,18 @@ abstract class FileTask
             ".java";
         File file = new File(getDestDirectory(), fileName);
 
+        final String key =
+            getKey(
+                new String[] {
+                    String.valueOf(include.root.style), include.baseClassName
+                });
         if (!include.root.force &&
-            checkUpToDate(generator, file)) {
+            checkUpToDate(generator, file, key, getFile())) {
             return;
         }
 
         generator.comment("Generating " + file);
-        final FileOutputStream out;
-        try {
-            makeParentDirs(file);
-
-            out = new FileOutputStream(file);
-        } catch (FileNotFoundException e) {
-            throw new BuildException("Error while writing " + file, e);
-        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
         PrintWriter pw = new PrintWriter(out);
         try {
             Generator gen;
@@ -173,6 +337,10 @@ abstract class FileTask
                     gen = new JavaFunctorBaseGenerator(getFile(), file,
                         className, baseClassName, resourceList);
                     break;
+                case ResourceGenTask.STYLE_COMPILED:
+                    gen = new JavaCompiledBaseGenerator(getFile(), file,
+                        className, baseClassName, resourceList);
+                    break;
                 default:
                     throw new AssertionError("unexpected style " +
                         include.root.style);
@@ -192,6 +360,8 @@ abstract class FileTask
         } finally {
             pw.close();
         }
+        writeIfChanged(generator, file, out.toByteArray(), true);
+        recordOutput(generator, file, key);
     }
 
     protected void configureCommentStyle(Generator gen)
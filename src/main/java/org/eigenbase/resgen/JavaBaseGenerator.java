@@ -22,6 +22,7 @@ import org.apache.tools.ant.BuildException;
 import java.io.PrintWriter;
 import java.io.File;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -61,23 +62,36 @@ class JavaBaseGenerator extends AbstractJavaGenerator
         pw.println(" {");
         pw.println("    public " + classNameSansPackage + "() throws IOException {");
         pw.println("    }");
-        pw.println("    private static final String baseName = " + Util.quoteForJava(getClassName()) + ";");
+        pw.println("    private static final BundleCache<" + classNameSansPackage + "> instances =");
+        pw.println("        new BundleCache<" + classNameSansPackage + ">(" + classNameSansPackage + ".class);");
         pw.println("    /**");
         pw.println("     * Retrieves the singleton instance of "
             + "{@link " + classNameSansPackage + "}. If");
         pw.println("     * the application has called {@link #setThreadLocale}, returns the");
         pw.println("     * resource for the thread's locale.");
         pw.println("     */");
-        pw.println("    public static synchronized " + classNameSansPackage + " instance() {");
-        pw.println("        return (" + classNameSansPackage + ") instance(baseName, getThreadOrDefaultLocale(), ResourceBundle.getBundle(baseName, getThreadOrDefaultLocale()));");
+        pw.println("    public static " + classNameSansPackage + " instance() {");
+        pw.println("        return instances.get(getThreadOrDefaultLocale());");
         pw.println("    }");
         pw.println("    /**");
         pw.println("     * Retrieves the instance of "
             + "{@link " + classNameSansPackage + "} for the given locale.");
         pw.println("     */");
-        pw.println("    public static synchronized " + classNameSansPackage + " instance(Locale locale) {");
-        pw.println("        return (" + classNameSansPackage + ") instance(baseName, locale, ResourceBundle.getBundle(baseName, locale));");
+        pw.println("    public static " + classNameSansPackage + " instance(Locale locale) {");
+        pw.println("        return instances.get(locale);");
         pw.println("    }");
+        pw.println("    /**");
+        pw.println("     * Loads the instances of "
+            + "{@link " + classNameSansPackage + "} for the given locales");
+        pw.println("     * in parallel, and returns the time taken to load each, in");
+        pw.println("     * nanoseconds. If executor is null, uses a temporary thread pool.");
+        pw.println("     */");
+        pw.println("    public static java.util.Map<Locale, Long> preload(");
+        pw.println("        java.util.Collection<Locale> locales,");
+        pw.println("        java.util.concurrent.Executor executor) {");
+        pw.println("        return instances.preload(locales, executor);");
+        pw.println("    }");
+        generateKeyIndex(resourceList, pw);
         if (resourceList.code != null) {
             pw.println("    // begin of included code");
             pw.print(resourceList.code.cdata);
@@ -97,6 +111,53 @@ class JavaBaseGenerator extends AbstractJavaGenerator
     {
     }
 
+    /**
+     * Generates a {@link KeyIndex} for the keys of the resource bundle, and
+     * an override of <code>getKeyIndex()</code> that returns it. If the keys
+     * cannot be indexed, prints a warning and generates neither; the bundle
+     * then finds messages by name.
+     */
+    protected void generateKeyIndex(
+        ResourceDef.ResourceBundle resourceList,
+        PrintWriter pw)
+    {
+        final KeyIndex keyIndex = ResourceGen.createKeyIndex(resourceList);
+        if (keyIndex == null) {
+            ResourceGen.log(
+                "WARNING: Cannot index the keys of " + getClassName()
+                + "; too many resource names have the same hash code."
+                + " Messages will be found by name.");
+            return;
+        }
+        final int[] seeds = keyIndex.getSeeds();
+        final int keyCount = keyIndex.size();
+        pw.println("    private static final KeyIndex keyIndex =");
+        pw.println("        new KeyIndex(");
+        pw.println("            new String[] {");
+        for (int i = 0; i < keyCount; i++) {
+            pw.println("                " + Util.quoteForJava(keyIndex.getKey(i))
+                + (i < keyCount - 1 ? "," : ""));
+        }
+        pw.println("            },");
+        pw.print("            new int[] {");
+        for (int i = 0; i < seeds.length; i++) {
+            if (i > 0) {
+                pw.print(",");
+                if (i % 10 == 0) {
+                    pw.println();
+                    pw.print("                ");
+                } else {
+                    pw.print(" ");
+                }
+            }
+            pw.print(seeds[i]);
+        }
+        pw.println("});");
+        pw.println("    protected KeyIndex getKeyIndex() {");
+        pw.println("        return keyIndex;");
+        pw.println("    }");
+    }
+
     public void generateResource(ResourceDef.Resource resource, PrintWriter pw)
     {
         if (resource.text == null) {
@@ -108,8 +169,8 @@ class JavaBaseGenerator extends AbstractJavaGenerator
         final String resourceInitcap = ResourceGen.getResourceInitcap(resource);// e.g. "Internal"
 
         String definitionClass = "org.eigenbase.resgen.ResourceDefinition";
-        String parameterList = getParameterList(text);
-        String argumentList = getArgumentList(text); // e.g. "p0, p1"
+        String parameterList = getParameterList(resource);
+        String argumentList = getArgumentList(resource); // e.g. "p0, p1"
         String argumentArray = argumentList.equals("") ?
             "emptyObjectArray" :
             "new Object[] {" + argumentList + "}"; // e.g. "new Object[] {p0, p1}"
@@ -118,40 +179,196 @@ class JavaBaseGenerator extends AbstractJavaGenerator
         Util.generateCommentBlock(pw, resource.name, text, comment);
 
         pw.println("    public static final " + definitionClass + " " + resourceInitcap + " = new " + definitionClass + "(\"" + resourceInitcap + "\", " + Util.quoteForJava(text) + ");");
-        pw.println("    public String get" + resourceInitcap + "(" + parameterList + ") {");
-        pw.println("        return " + resourceInitcap + ".instantiate(" + addLists("this", argumentArray) + ").toString();");
-        pw.println("    }");
+        generateAccessors(resource, resourceInitcap, parameterList, argumentArray, pw);
+        generatePrimitiveAccessors(resource, resourceInitcap, pw);
         if (resource instanceof ResourceDef.Exception) {
             ResourceDef.Exception exception = (ResourceDef.Exception) resource;
             String errorClassName = getErrorClass(exception);
             final ExceptionDescription ed = new ExceptionDescription(errorClassName);
-            if (ed.hasInstCon()) {
-                pw.println("    public " + errorClassName + " new" + resourceInitcap + "(" + parameterList + ") {");
-                pw.println("        return new " + errorClassName + "(" + resourceInitcap + ".instantiate(" + addLists("this", argumentArray) + "));");
+            final boolean stackless = isStackless(exception);
+            final String instance = resourceInitcap + ".instantiate(" + addLists("this", argumentArray) + ")";
+            final String message = "get" + resourceInitcap + "(" + argumentList + ")";
+            String expr = newException(ed, errorClassName, instance, message, null, stackless, "        ");
+            if (expr != null
+                && stackless
+                && parameterList.equals("")
+                && ed.hasStacklessCon())
+            {
+                // The exception is immutable, so create it once per bundle.
+                final String cacheField = "cached" + resourceInitcap;
+                pw.println("    private volatile " + errorClassName + " " + cacheField + ";");
+                pw.println("    public " + errorClassName + " new" + resourceInitcap + "() {");
+                pw.println("        " + errorClassName + " e = " + cacheField + ";");
+                pw.println("        if (e == null) {");
+                pw.println("            e = " + expr + ";");
+                pw.println("            " + cacheField + " = e;");
+                pw.println("        }");
+                pw.println("        return e;");
                 pw.println("    }");
-            } else if (ed.hasInstThrowCon()) {
+            } else if (expr != null) {
                 pw.println("    public " + errorClassName + " new" + resourceInitcap + "(" + parameterList + ") {");
-                pw.println("        return new " + errorClassName + "(" + resourceInitcap + ".instantiate(" + addLists("this", argumentArray) + "), null);");
+                pw.println("        return " + expr + ";");
                 pw.println("    }");
-            } else if (ed.hasStringCon()) {
-                pw.println("    public " + errorClassName + " new" + resourceInitcap + "(" + parameterList + ") {");
-                pw.println("        return new " + errorClassName + "(get" + resourceInitcap + "(" + argumentList + "));");
+            }
+            expr = newException(ed, errorClassName, instance, message, "err", stackless, "        ");
+            if (expr != null) {
+                pw.println("    public " + errorClassName + " new" + resourceInitcap + "(" + addLists(parameterList, "Throwable err") + ") {");
+                pw.println("        return " + expr + ";");
                 pw.println("    }");
+            }
+        }
+    }
+
+    /**
+     * Returns an expression that creates an exception, or null if the
+     * exception class has no suitable constructor.
+     *
+     * <p>If the exception is stackless, uses a constructor that does not
+     * record a stack trace, if there is one; otherwise creates an anonymous
+     * subclass that overrides {@link Throwable#fillInStackTrace()}.
+     *
+     * @param ed Description of the exception class
+     * @param errorClassName Name of the exception class
+     * @param instance Expression for the resource instance
+     * @param message Expression for the formatted message
+     * @param cause Expression for the cause, or null if the method has no
+     *   cause
+     * @param stackless Whether the exception should not record a stack trace
+     * @param indent Indentation of the statement that contains the
+     *   expression
+     * @return Expression, or null
+     */
+    protected String newException(
+        ExceptionDescription ed,
+        String errorClassName,
+        String instance,
+        String message,
+        String cause,
+        boolean stackless,
+        String indent)
+    {
+        if (stackless) {
+            final String cause2 = cause == null ? "null" : cause;
+            if (ed.hasInstThrowStackCon()) {
+                return "new " + errorClassName + "(" + instance + ", " + cause2 + ", false)";
+            }
+            if (ed.hasStringThrowFlagsCon()) {
+                // If the constructor is protected, call it from an
+                // anonymous subclass.
+                return "new " + errorClassName + "(" + message + ", " + cause2 + ", false, false)"
+                    + (ed.stringThrowFlagsConProtected ? " {}" : "");
+            }
+        }
+        final String expr;
+        if (cause == null) {
+            if (ed.hasInstCon()) {
+                expr = "new " + errorClassName + "(" + instance + ")";
+            } else if (ed.hasInstThrowCon()) {
+                expr = "new " + errorClassName + "(" + instance + ", null)";
+            } else if (ed.hasStringCon()) {
+                expr = "new " + errorClassName + "(" + message + ")";
             } else if (ed.hasStringThrowCon()) {
-                pw.println("    public " + errorClassName + " new" + resourceInitcap + "(" + parameterList + ") {");
-                pw.println("        return new " + errorClassName + "(get" + resourceInitcap + "(" + argumentList + "), null);");
-                pw.println("    }");
+                expr = "new " + errorClassName + "(" + message + ", null)";
+            } else {
+                return null;
             }
+        } else {
             if (ed.hasInstThrowCon()) {
-                pw.println("    public " + errorClassName + " new" + resourceInitcap + "(" + addLists(parameterList, "Throwable err") + ") {");
-                pw.println("        return new " + errorClassName + "(" + resourceInitcap + ".instantiate(" + addLists("this", argumentArray) + "), err);");
-                pw.println("    }");
+                expr = "new " + errorClassName + "(" + instance + ", " + cause + ")";
             } else if (ed.hasStringThrowCon()) {
-                pw.println("    public " + errorClassName + " new" + resourceInitcap + "(" + addLists(parameterList, "Throwable err") + ") {");
-                pw.println("        return new " + errorClassName + "(get" + resourceInitcap + "(" + argumentList + "), err);");
-                pw.println("    }");
+                expr = "new " + errorClassName + "(" + message + ", " + cause + ")";
+            } else {
+                return null;
             }
         }
+        if (!stackless) {
+            return expr;
+        }
+        if (ed.isFinal) {
+            throw new BuildException(
+                "Exception class '" + errorClassName + "' is final and has "
+                + "no constructor that omits the stack trace; cannot "
+                + "generate stackless exceptions");
+        }
+        return expr + " {\n"
+            + indent + "    public synchronized Throwable fillInStackTrace() {\n"
+            + indent + "        return this;\n"
+            + indent + "    }\n"
+            + indent + "}";
+    }
+
+    /**
+     * Generates the <code>getXxx</code> and <code>appendXxx</code> methods
+     * for a resource.
+     *
+     * <p>If the message has no arguments, the methods call
+     * {@link ResourceDefinition#getConstant}, which returns the message
+     * formatted when it was first used in the bundle.
+     *
+     * @param resource Resource
+     * @param resourceInitcap Name of the resource, e.g. "Internal"
+     * @param parameterList Parameter list, e.g. "String p0, Number p1"
+     * @param argumentArray Argument array, e.g. "new Object[] {p0, p1}"
+     * @param pw Output
+     */
+    protected void generateAccessors(
+        ResourceDef.Resource resource,
+        String resourceInitcap,
+        String parameterList,
+        String argumentArray,
+        PrintWriter pw)
+    {
+        if (parameterList.equals("")) {
+            // The message is formatted once, then held by the bundle.
+            pw.println("    public String get" + resourceInitcap + "() {");
+            pw.println("        return " + resourceInitcap + ".getConstant(this);");
+            pw.println("    }");
+            pw.println("    public StringBuilder append" + resourceInitcap + "(StringBuilder buf) {");
+            pw.println("        return buf.append(" + resourceInitcap + ".getConstant(this));");
+            pw.println("    }");
+            return;
+        }
+        pw.println("    public String get" + resourceInitcap + "(" + parameterList + ") {");
+        pw.println("        return " + resourceInitcap + ".instantiate(" + addLists("this", argumentArray) + ").toString();");
+        pw.println("    }");
+        pw.println("    public StringBuilder append" + resourceInitcap + "(" + addLists("StringBuilder buf", parameterList) + ") {");
+        pw.println("        " + resourceInitcap + ".formatTo(" + addLists("this", argumentArray, "buf") + ");");
+        pw.println("        return buf;");
+        pw.println("    }");
+    }
+
+    /**
+     * Generates overloads of the <code>getXxx</code> and
+     * <code>appendXxx</code> methods in which the parameters of number
+     * arguments are <code>long</code>, and overloads in which they are
+     * <code>double</code>, if the message has number arguments. They format
+     * via {@link ResourceDefinition#arguments}, so the caller's values are not
+     * boxed. (An <code>int</code> value calls the <code>long</code>
+     * overload.)
+     *
+     * @param resource Resource
+     * @param resourceInitcap Name of the resource, e.g. "Internal"
+     * @param pw Output
+     */
+    protected void generatePrimitiveAccessors(
+        ResourceDef.Resource resource,
+        String resourceInitcap,
+        PrintWriter pw)
+    {
+        final String argChain = getArgChain(resource);
+        for (String primitive : new String[] {"long", "double"}) {
+            final String parameterList =
+                getPrimitiveParameterList(resource, primitive);
+            if (parameterList == null) {
+                return;
+            }
+            pw.println("    public String get" + resourceInitcap + "(" + parameterList + ") {");
+            pw.println("        return " + resourceInitcap + ".arguments(this)" + argChain + ".format();");
+            pw.println("    }");
+            pw.println("    public StringBuilder append" + resourceInitcap + "(" + addLists("StringBuilder buf", parameterList) + ") {");
+            pw.println("        return " + resourceInitcap + ".arguments(this)" + argChain + ".formatTo(buf);");
+            pw.println("    }");
+        }
     }
 
     /**
@@ -163,6 +380,10 @@ class JavaBaseGenerator extends AbstractJavaGenerator
         boolean hasInstThrowCon;
         boolean hasStringCon;
         boolean hasStringThrowCon;
+        boolean hasInstThrowStackCon;
+        boolean hasStringThrowFlagsCon;
+        boolean stringThrowFlagsConProtected;
+        boolean isFinal;
 
         boolean hasInstCon() {
             return hasInstCon
@@ -184,6 +405,25 @@ class JavaBaseGenerator extends AbstractJavaGenerator
                 || signatures.contains("(String message, Throwable cause)");
         }
 
+        boolean hasInstThrowStackCon() {
+            return hasInstThrowStackCon
+                || signatures.contains("(ResourceInstance r, Throwable cause, boolean writableStackTrace)");
+        }
+
+        boolean hasStringThrowFlagsCon() {
+            return hasStringThrowFlagsCon
+                || signatures.contains("(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace)");
+        }
+
+        /**
+         * Returns whether the class has a constructor that creates an
+         * exception with no stack trace and with suppression disabled;
+         * such an exception is immutable.
+         */
+        boolean hasStacklessCon() {
+            return hasInstThrowStackCon() || hasStringThrowFlagsCon();
+        }
+
         /**
          * Figures out what constructors the exception class has. We'd
          * prefer to use
@@ -192,7 +432,11 @@ class JavaBaseGenerator extends AbstractJavaGenerator
          * if it has them, but we can use
          * <code>init(String s)</code> and
          * <code>init(String s, Throwable e)</code>
-         * as a fall-back.
+         * as a fall-back. For exceptions without a stack trace, we use
+         * <code>init(ResourceDefinition rd, Throwable e,
+         * boolean writableStackTrace)</code> or the (possibly protected)
+         * <code>init(String s, Throwable e, boolean enableSuppression,
+         * boolean writableStackTrace)</code> if the class has them.
          *
          * Prints a warming message if the class cannot be loaded.
          *
@@ -235,10 +479,33 @@ class JavaBaseGenerator extends AbstractJavaGenerator
                         Throwable.class.isAssignableFrom(types[1])) {
                         hasStringThrowCon = true;
                     }
+                    if (types.length == 3 &&
+                        ResourceInstance.class.isAssignableFrom(types[0]) &&
+                        Throwable.class.isAssignableFrom(types[1]) &&
+                        types[2] == boolean.class) {
+                        hasInstThrowStackCon = true;
+                    }
+                }
+                isFinal = Modifier.isFinal(errorClass.getModifiers());
+                constructors = errorClass.getDeclaredConstructors();
+                for (int i = 0; i < constructors.length; i++) {
+                    Constructor constructor = constructors[i];
+                    Class[] types = constructor.getParameterTypes();
+                    final int modifiers = constructor.getModifiers();
+                    final boolean isProtected = Modifier.isProtected(modifiers);
+                    if (types.length == 4 &&
+                        String.class.isAssignableFrom(types[0]) &&
+                        Throwable.class.isAssignableFrom(types[1]) &&
+                        types[2] == boolean.class &&
+                        types[3] == boolean.class &&
+                        (Modifier.isPublic(modifiers) || isProtected && !isFinal)) {
+                        hasStringThrowFlagsCon = true;
+                        stringThrowFlagsConProtected = isProtected;
+                    }
                 }
             } catch (ClassNotFoundException e) {
                 if (warnedClasses.add(errorClassName)) {
-                    System.out.println("Warning: Could not find exception " +
+                    ResourceGen.log("Warning: Could not find exception " +
                         "class '" + errorClassName + "' on classpath. " +
                         "Exception factory methods will not be generated.");
                 }
@@ -0,0 +1,173 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.text.MessageFormat;
+
+/**
+ * Generates a Java class for the base locale, in "compiled" style.
+ *
+ * <p>The generated class has the same members as one generated in "dynamic"
+ * style (see {@link JavaBaseGenerator}), but each <code>getXxx</code> and
+ * <code>appendXxx</code> method formats the base message using straight-line
+ * code generated from the message at build time. For example, for the
+ * message "Happy Birthday, {0}! You don''t look {1,number}." it generates
+ *
+ * <blockquote><pre>
+ * public String getHappyBirthday(String p0, Number p1) {
+ *     if (!HappyBirthday.isBaseMessage(this)) {
+ *         return HappyBirthday.instantiate(this, new Object[] {p0, p1}).toString();
+ *     }
+ *     final String a1 = String.valueOf(p0);
+ *     final String a3 = HappyBirthday.formatArgument(this, 1, p1);
+ *     return new StringBuilder(34 + a1.length() + a3.length())
+ *         .append("Happy Birthday, ")
+ *         ...
+ *         .toString();
+ * }</pre></blockquote>
+ *
+ * <p>Arguments that are formatted, such as <code>{1,number}</code> above, are
+ * formatted by {@link ResourceDefinition#formatArgument}, which uses the
+ * current thread's copy of the sub-format that {@link MessageFormat} parsed
+ * from the base message; no format is created per call.
+ *
+ * <p>The generated code gives the same result as {@link MessageFormat}. If a
+ * resource bundle for another locale overrides the message, the method uses
+ * {@link MessageFormat}, as in "dynamic" style. Messages which contain
+ * <code>choice</code> arguments, and messages which have no arguments, are
+ * always generated in "dynamic" style.
+ *
+ * @author jhyde
+ */
+class JavaCompiledBaseGenerator extends JavaBaseGenerator
+{
+    JavaCompiledBaseGenerator(
+        File srcFile,
+        File file,
+        String className,
+        String baseClassName,
+        ResourceDef.ResourceBundle resourceBundle)
+    {
+        super(srcFile, file, className, baseClassName, resourceBundle);
+    }
+
+    protected void generateAccessors(
+        ResourceDef.Resource resource,
+        String resourceInitcap,
+        String parameterList,
+        String argumentArray,
+        PrintWriter pw)
+    {
+        final MessageTemplate template = ResourceGen.getTemplate(resource);
+        if (template.hasType("choice") || parameterList.equals("")) {
+            // A message without arguments is formatted once per bundle,
+            // which is cheaper than checking whether it is the base message.
+            super.generateAccessors(
+                resource, resourceInitcap, parameterList, argumentArray, pw);
+            return;
+        }
+        final String[] types = getArgTypes(resource);
+
+        pw.println("    public String get" + resourceInitcap + "(" + parameterList + ") {");
+        pw.println("        if (!" + resourceInitcap + ".isBaseMessage(this)) {");
+        pw.println("            return " + resourceInitcap + ".instantiate(" + addLists("this", argumentArray) + ").toString();");
+        pw.println("        }");
+        if (template.segments.isEmpty()) {
+            pw.println("        return \"\";");
+        } else if (template.segments.size() == 1
+            && template.segments.get(0).literal != null)
+        {
+            pw.println("        return " + Util.quoteForJava(template.segments.get(0).literal) + ";");
+        } else {
+            final StringBuilder capacity = new StringBuilder();
+            capacity.append(template.getLiteralLength());
+            int ordinal = 0;
+            for (int i = 0; i < template.segments.size(); i++) {
+                MessageTemplate.Segment segment = template.segments.get(i);
+                if (segment.literal == null) {
+                    pw.println("        final String a" + i + " = " + formatExpression(resourceInitcap, segment, ordinal++, types) + ";");
+                    capacity.append(" + a").append(i).append(".length()");
+                }
+            }
+            pw.println("        return new StringBuilder(" + capacity + ")");
+            for (int i = 0; i < template.segments.size(); i++) {
+                MessageTemplate.Segment segment = template.segments.get(i);
+                if (segment.literal != null) {
+                    pw.println("            .append(" + Util.quoteForJava(segment.literal) + ")");
+                } else {
+                    pw.println("            .append(a" + i + ")");
+                }
+            }
+            pw.println("            .toString();");
+        }
+        pw.println("    }");
+
+        pw.println("    public StringBuilder append" + resourceInitcap + "(" + addLists("StringBuilder buf", parameterList) + ") {");
+        pw.println("        if (!" + resourceInitcap + ".isBaseMessage(this)) {");
+        pw.println("            " + resourceInitcap + ".formatTo(" + addLists("this", argumentArray, "buf") + ");");
+        pw.println("            return buf;");
+        pw.println("        }");
+        int ordinal = 0;
+        for (MessageTemplate.Segment segment : template.segments) {
+            if (segment.literal != null) {
+                pw.println("        buf.append(" + Util.quoteForJava(segment.literal) + ");");
+            } else if (segment.type.equals("")
+                && types[segment.argument].equals("String"))
+            {
+                // StringBuilder.append(String) appends "null" for a null
+                // string, as MessageFormat does.
+                pw.println("        buf.append(p" + segment.argument + ");");
+                ++ordinal;
+            } else {
+                pw.println("        " + resourceInitcap + ".appendArgument(this, " + ordinal++ + ", p" + segment.argument + ", buf);");
+            }
+        }
+        pw.println("        return buf;");
+        pw.println("    }");
+    }
+
+    /**
+     * Generates an expression which formats an argument the same way as
+     * {@link MessageFormat} would.
+     *
+     * @param resourceInitcap Name of the resource definition's field
+     * @param segment Argument segment
+     * @param ordinal Position of the segment among the argument segments
+     * @param types Java types of the parameters
+     * @return Java expression of type String
+     */
+    private static String formatExpression(
+        String resourceInitcap,
+        MessageTemplate.Segment segment,
+        int ordinal,
+        String[] types)
+    {
+        final String p = "p" + segment.argument;
+        if (segment.type.equals("")
+            && types[segment.argument].equals("String"))
+        {
+            return "String.valueOf(" + p + ")";
+        }
+        return resourceInitcap + ".formatArgument(this, " + ordinal + ", "
+            + p + ")";
+    }
+}
+
+// End JavaCompiledBaseGenerator.java
@@ -64,18 +64,22 @@ public class JavaFunctorBaseGenerator extends JavaBaseGenerator
         String comment = ResourceGen.getComment(resource);
         final String resourceInitcap = ResourceGen.getResourceInitcap(resource);// e.g. "Internal"
 
-        String parameterList = getParameterList(text);
-        String argumentList = getArgumentList(text);
+        String parameterList = getParameterList(resource);
+        String argumentList = getArgumentList(resource);
         String propList = getPropList(resource);
         String errorClassName;
+        boolean stackless;
         if (resource instanceof ResourceDef.Exception) {
             ResourceDef.Exception exception = (ResourceDef.Exception) resource;
             errorClassName = getErrorClass(exception);
+            stackless = isStackless(exception);
         } else {
             errorClassName = null;
+            stackless = false;
         }
         String functorType =
-            getFunctorType(parameterList, argumentList, errorClassName);
+            getFunctorType(
+                resource, parameterList, argumentList, errorClassName, stackless);
 
         pw.println();
         Util.generateCommentBlock(pw, resource.name, text, comment);
@@ -101,22 +105,25 @@ public class JavaFunctorBaseGenerator extends JavaBaseGenerator
     }
 
     private String getFunctorType(
+        ResourceDef.Resource resource,
         String parameterList,
         String argumentList,
-        String errorClassName)
+        String errorClassName,
+        boolean stackless)
     {
-        List key = Arrays.asList(new String[] {parameterList, errorClassName});
+        List key = Arrays.asList(
+            new Object[] {parameterList, errorClassName, stackless});
         String functorType = (String) functorMap.get(key);
         if (functorType == null) {
             functorType = "_Def" + functorMap.size();
             functorMap.put(key, functorType);
-            genFunctor(functorType, parameterList, argumentList, errorClassName, functorPw);
+            genFunctor(functorType, resource, parameterList, argumentList, errorClassName, stackless, functorPw);
         }
 
         return functorType;
     }
 
-    private void genFunctor(String functorType, String parameterList, String argumentList, String errorClassName, PrintWriter pw) {
+    private void genFunctor(String functorType, ResourceDef.Resource resource, String parameterList, String argumentList, String errorClassName, boolean stackless, PrintWriter pw) {
         String definitionClass = "org.eigenbase.resgen.ResourceDefinition";
         final String classNameSansPackage = Util.removePackage(className);
         final String bundleThis = classNameSansPackage + ".this";
@@ -128,7 +135,8 @@ public class JavaFunctorBaseGenerator extends JavaBaseGenerator
         pw.println("     * Definition for resources which");
         if (errorClassName != null) {
             pw.println("     * return a "
-                + "{@link " + errorClassName + "} exception and");
+                + "{@link " + errorClassName + "} exception"
+                + (stackless ? " without a stack trace" : "") + " and");
         }
         pw.println("     * take arguments '" + parameterList + "'.");
         pw.println("     */");
@@ -136,35 +144,68 @@ public class JavaFunctorBaseGenerator extends JavaBaseGenerator
         pw.println("        " + functorType + "(String key, String baseMessage, String[] props) {");
         pw.println("            super(key, baseMessage, props);");
         pw.println("        }");
-        pw.println("        public String str(" + parameterList + ") {");
-        pw.println("            return instantiate(" + addLists(bundleThis, argumentArray) + ").toString();");
-        pw.println("        }");
+        if (parameterList.equals("")) {
+            // The message is formatted once, then held by the bundle.
+            pw.println("        public String str() {");
+            pw.println("            return getConstant(" + bundleThis + ");");
+            pw.println("        }");
+            pw.println("        public StringBuilder append(StringBuilder buf) {");
+            pw.println("            return buf.append(getConstant(" + bundleThis + "));");
+            pw.println("        }");
+        } else {
+            pw.println("        public String str(" + parameterList + ") {");
+            pw.println("            return instantiate(" + addLists(bundleThis, argumentArray) + ").toString();");
+            pw.println("        }");
+            pw.println("        public StringBuilder append(" + addLists("StringBuilder buf", parameterList) + ") {");
+            pw.println("            formatTo(" + addLists(bundleThis, argumentArray, "buf") + ");");
+            pw.println("            return buf;");
+            pw.println("        }");
+        }
+        // Messages with the same parameter list have the same number
+        // arguments, so the overloads depend only on the functor type.
+        final String argChain = getArgChain(resource);
+        for (String primitive : new String[] {"long", "double"}) {
+            final String primitiveParameterList =
+                getPrimitiveParameterList(resource, primitive);
+            if (primitiveParameterList == null) {
+                break;
+            }
+            pw.println("        public String str(" + primitiveParameterList + ") {");
+            pw.println("            return arguments(" + bundleThis + ")" + argChain + ".format();");
+            pw.println("        }");
+            pw.println("        public StringBuilder append(" + addLists("StringBuilder buf", primitiveParameterList) + ") {");
+            pw.println("            return arguments(" + bundleThis + ")" + argChain + ".formatTo(buf);");
+            pw.println("        }");
+        }
         if (errorClassName != null) {
             final ExceptionDescription ed = new ExceptionDescription(errorClassName);
-            if (ed.hasInstCon()) {
-                pw.println("        public " + errorClassName + " ex(" + parameterList + ") {");
-                pw.println("            return new " + errorClassName + "(instantiate(" + addLists(bundleThis, argumentArray) + "));");
+            final String instance = "instantiate(" + addLists(bundleThis, argumentArray) + ")";
+            final String message = instance + ".toString()";
+            String expr = newException(ed, errorClassName, instance, message, null, stackless, "            ");
+            if (expr != null
+                && stackless
+                && parameterList.equals("")
+                && ed.hasStacklessCon())
+            {
+                // The exception is immutable, so create it once per bundle.
+                pw.println("        private volatile " + errorClassName + " cached;");
+                pw.println("        public " + errorClassName + " ex() {");
+                pw.println("            " + errorClassName + " e = cached;");
+                pw.println("            if (e == null) {");
+                pw.println("                e = " + expr + ";");
+                pw.println("                cached = e;");
+                pw.println("            }");
+                pw.println("            return e;");
                 pw.println("        }");
-            } else if (ed.hasInstThrowCon()) {
+            } else if (expr != null) {
                 pw.println("        public " + errorClassName + " ex(" + parameterList + ") {");
-                pw.println("            return new " + errorClassName + "(instantiate(" + addLists(bundleThis, argumentArray) + "), null);");
-                pw.println("        }");
-            } else if (ed.hasStringCon()) {
-                pw.println("        public " + errorClassName + " ex(" + parameterList + ") {");
-                pw.println("            return new " + errorClassName + "(instantiate(" + addLists(bundleThis, argumentArray) + ").toString());");
-                pw.println("        }");
-            } else if (ed.hasStringThrowCon()) {
-                pw.println("        public " + errorClassName + " ex(" + parameterList + ") {");
-                pw.println("            return new " + errorClassName + "(instantiate(" + addLists(bundleThis, argumentArray) + ").toString(), null);");
+                pw.println("            return " + expr + ";");
                 pw.println("        }");
             }
-            if (ed.hasInstThrowCon()) {
-                pw.println("        public " + errorClassName + " ex(" + addLists(parameterList, "Throwable err") + ") {");
-                pw.println("            return new " + errorClassName + "(instantiate(" + addLists(bundleThis, argumentArray) + "), err);");
-                pw.println("        }");
-            } else if (ed.hasStringThrowCon()) {
+            expr = newException(ed, errorClassName, instance, message, "err", stackless, "            ");
+            if (expr != null) {
                 pw.println("        public " + errorClassName + " ex(" + addLists(parameterList, "Throwable err") + ") {");
-                pw.println("            return new " + errorClassName + "(instantiate(" + addLists(bundleThis, argumentArray) + ").toString(), err);");
+                pw.println("            return " + expr + ";");
                 pw.println("        }");
             }
         }
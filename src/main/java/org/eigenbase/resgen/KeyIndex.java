@@ -0,0 +1,300 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Minimal perfect hash of the keys of a resource bundle.
+ *
+ * <p>A key index maps each of a fixed set of <code>n</code> keys to a
+ * distinct ordinal between 0 and <code>n - 1</code>, and any other string to
+ * -1. A lookup computes two hash functions and does one string comparison;
+ * there are no collision chains and no per-entry objects.
+ *
+ * <p>The resource generator computes the index at build time, by calling
+ * {@link #create(String[])}, and generates code to re-create it:
+ *
+ * <blockquote><pre>
+ * private static final KeyIndex keyIndex =
+ *     new KeyIndex(
+ *         new String[] {
+ *             "HappyBirthday", "ShouldGiveWarning", "TooYoung", "WithMarkup"
+ *         },
+ *         new int[] {0, 1, 5, 0});
+ * protected KeyIndex getKeyIndex() {
+ *     return keyIndex;
+ * }</pre></blockquote>
+ *
+ * <p>{@link ShadowResourceBundle} then stores each locale's messages in
+ * arrays indexed by ordinal.
+ *
+ * <p>The index uses the "hash, displace" method. Each key is assigned to a
+ * bucket by its {@link String#hashCode()}. The keys in a bucket with one key
+ * go straight to a slot; the keys in a larger bucket are placed by a second
+ * hash function, whose seed is chosen so that none of them collide with
+ * keys already placed.
+ *
+ * @author jhyde
+ */
+public final class KeyIndex
+{
+    /** Number of seeds to try for each bucket before giving up. */
+    private static final int MAX_SEED = 1 << 20;
+
+    private final String[] keys;
+    private final int[] seeds;
+
+    /**
+     * Creates a key index from the output of {@link #create(String[])}.
+     *
+     * @param keys Keys, in ordinal order (see {@link #getKeys()})
+     * @param seeds Seeds (see {@link #getSeeds()})
+     * @throws IllegalArgumentException if the seeds do not map each key to
+     *   its ordinal; for example, if the index was generated by a different
+     *   version of this class
+     */
+    public KeyIndex(String[] keys, int[] seeds)
+    {
+        if (keys.length != seeds.length) {
+            throw new IllegalArgumentException("length mismatch");
+        }
+        this.keys = keys;
+        this.seeds = seeds;
+        for (int i = 0; i < keys.length; i++) {
+            if (indexOf(keys[i]) != i) {
+                throw new IllegalArgumentException(
+                    "key index is not valid for key '" + keys[i] + "'");
+            }
+        }
+    }
+
+    /**
+     * Creates a minimal perfect hash of a set of keys.
+     *
+     * <p>Keys with the same {@link String#hashCode()} fall in the same
+     * bucket. If many keys share a hash code, no seed may place them all,
+     * and this method fails rather than searching forever.
+     *
+     * @param keys Keys; must not contain duplicates
+     * @return Key index
+     * @throws IllegalArgumentException if there are duplicate keys, or if no
+     *   index can be found for the keys
+     */
+    public static KeyIndex create(String[] keys)
+    {
+        final int n = keys.length;
+        final Set<String> keySet = new HashSet<String>(Arrays.asList(keys));
+        if (keySet.size() != n) {
+            throw new IllegalArgumentException("duplicate keys");
+        }
+        final List<List<String>> buckets = new ArrayList<List<String>>(n);
+        for (int i = 0; i < n; i++) {
+            buckets.add(new ArrayList<String>(2));
+        }
+        for (String key : keys) {
+            buckets.get(bucket(key, n)).add(key);
+        }
+        final Integer[] bucketOrder = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            bucketOrder[i] = i;
+        }
+        // Place the largest buckets first, while most slots are free.
+        Arrays.sort(
+            bucketOrder,
+            new Comparator<Integer>() {
+                public int compare(Integer o1, Integer o2) {
+                    return buckets.get(o2).size() - buckets.get(o1).size();
+                }
+            });
+        final String[] slotKeys = new String[n];
+        final int[] seeds = new int[n];
+        final int[] slots = new int[n];
+        int b = 0;
+        for (; b < n; b++) {
+            final List<String> bucket = buckets.get(bucketOrder[b]);
+            if (bucket.size() <= 1) {
+                break;
+            }
+            for (int seed = 1;; seed++) {
+                if (place(bucket, seed, slotKeys, slots)) {
+                    seeds[bucketOrder[b]] = seed;
+                    break;
+                }
+                if (seed == MAX_SEED) {
+                    throw new IllegalArgumentException(
+                        "cannot index " + bucket.size() + " keys with the"
+                        + " same bucket, such as '" + bucket.get(0) + "'");
+                }
+            }
+        }
+        // Buckets with one key take the remaining slots, in order.
+        int freeSlot = 0;
+        for (; b < n; b++) {
+            final List<String> bucket = buckets.get(bucketOrder[b]);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            while (slotKeys[freeSlot] != null) {
+                ++freeSlot;
+            }
+            slotKeys[freeSlot] = bucket.get(0);
+            seeds[bucketOrder[b]] = -freeSlot - 1;
+        }
+        return new KeyIndex(slotKeys, seeds);
+    }
+
+    /**
+     * Tries to place the keys of a bucket using a given seed. Returns false,
+     * and places nothing, if two keys would share a slot or a key would
+     * occupy a slot that is already taken.
+     */
+    private static boolean place(
+        List<String> bucket,
+        int seed,
+        String[] slotKeys,
+        int[] slots)
+    {
+        final int n = slotKeys.length;
+        for (int i = 0; i < bucket.size(); i++) {
+            final int slot = slot(bucket.get(i), seed, n);
+            if (slotKeys[slot] != null) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == slot) {
+                    return false;
+                }
+            }
+            slots[i] = slot;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            slotKeys[slots[i]] = bucket.get(i);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ordinal of a key, or -1 if the key is not in this index.
+     *
+     * @param key Key
+     * @return Ordinal of key, or -1
+     */
+    public int indexOf(String key)
+    {
+        final int n = keys.length;
+        if (n == 0) {
+            return -1;
+        }
+        final int seed = seeds[bucket(key, n)];
+        final int slot = seed < 0 ? -seed - 1 : slot(key, seed, n);
+        final String k = keys[slot];
+        return k == key || k.equals(key) ? slot : -1;
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return Number of keys
+     */
+    public int size()
+    {
+        return keys.length;
+    }
+
+    /**
+     * Returns the key with a given ordinal.
+     *
+     * @param ordinal Ordinal
+     * @return Key
+     */
+    public String getKey(int ordinal)
+    {
+        return keys[ordinal];
+    }
+
+    /**
+     * Returns the keys, in ordinal order.
+     *
+     * @return List of keys
+     */
+    public List<String> getKeys()
+    {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /**
+     * Returns a hash of the keys in ordinal order. Two key indexes with the
+     * same fingerprint almost certainly assign the same ordinals.
+     *
+     * @return Fingerprint
+     */
+    int fingerprint()
+    {
+        int h = keys.length;
+        for (String key : keys) {
+            h = h * 31 + key.hashCode();
+        }
+        return h;
+    }
+
+    /**
+     * Returns the seeds. Each bucket has a seed. If the seed is negative,
+     * the bucket contains one key, whose ordinal is <code>-seed - 1</code>.
+     *
+     * @return Seeds
+     */
+    public int[] getSeeds()
+    {
+        return seeds.clone();
+    }
+
+    private static int bucket(String key, int n)
+    {
+        return (mix(key.hashCode()) & 0x7fffffff) % n;
+    }
+
+    private static int slot(String key, int seed, int n)
+    {
+        // FNV-1a, starting from a value derived from the seed.
+        int h = seed * 0x9e3779b9;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        return (mix(h) & 0x7fffffff) % n;
+    }
+
+    /** Finalization step of MurmurHash3; spreads the bits of a hash code. */
+    private static int mix(int h)
+    {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
+
+// End KeyIndex.java
@@ -0,0 +1,377 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Carries the locale of the current thread (see
+ * {@link ShadowResourceBundle#setThreadLocale(Locale)}) to tasks that run in
+ * other threads.
+ *
+ * <p>Each method wraps a task, or an executor. A wrapped task captures the
+ * locale of the thread that wraps it; a wrapped executor captures the locale
+ * of the thread that submits each task. When the task runs, the captured
+ * locale becomes the thread's locale, and afterwards the thread's previous
+ * locale is restored, as in
+ * {@link ShadowResourceBundle#runWithLocale(Locale, Runnable)}. So a pooled
+ * thread never keeps the locale of a task it has run, and does not need a
+ * thread-local map. The objects allocated are the wrapper, which holds the
+ * captured locale, and, while the task runs, the entry that records the
+ * thread's locale.
+ *
+ * <p>For example, to format a message in the caller's locale in a stage of
+ * a {@link java.util.concurrent.CompletableFuture}:
+ *
+ * <blockquote><pre>
+ * CompletableFuture.supplyAsync(
+ *         LocaleContext.supplier(() -&gt; loadBirthday(id)), executor)
+ *     .thenApply(
+ *         LocaleContext.function(
+ *             b -&gt; BirthdayResource.instance().getHappyBirthday(
+ *                 b.name, b.age)));</pre></blockquote>
+ *
+ * <p>Alternatively, wrap the executor with {@link #executor(Executor)}, and
+ * every <code>...Async</code> stage that uses it runs in the locale of the
+ * thread that triggered it.
+ *
+ * @author jhyde
+ */
+public final class LocaleContext
+{
+    private LocaleContext()
+    {
+    }
+
+    /**
+     * Wraps a {@link Runnable} so that it runs in the current thread's
+     * locale.
+     *
+     * @param runnable Task
+     * @return Wrapped task
+     */
+    public static Runnable runnable(Runnable runnable)
+    {
+        return new LocaleRunnable(
+            ShadowResourceBundle.getThreadLocale(), runnable);
+    }
+
+    /**
+     * Wraps a {@link Callable} so that it runs in the current thread's
+     * locale.
+     *
+     * @param callable Task
+     * @return Wrapped task
+     */
+    public static <T> Callable<T> callable(Callable<T> callable)
+    {
+        return new LocaleCallable<T>(
+            ShadowResourceBundle.getThreadLocale(), callable);
+    }
+
+    /**
+     * Wraps a {@link Supplier} so that it runs in the current thread's
+     * locale; for example, for
+     * {@link java.util.concurrent.CompletableFuture#supplyAsync(Supplier)}.
+     *
+     * @param supplier Supplier
+     * @return Wrapped supplier
+     */
+    public static <T> Supplier<T> supplier(final Supplier<T> supplier)
+    {
+        final Locale locale = ShadowResourceBundle.getThreadLocale();
+        return new Supplier<T>() {
+            public T get()
+            {
+                final Object previous =
+                    ShadowResourceBundle.enterLocale(locale);
+                try {
+                    return supplier.get();
+                } finally {
+                    ShadowResourceBundle.exitLocale(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a {@link Function} so that it runs in the current thread's
+     * locale; for example, for
+     * {@link java.util.concurrent.CompletableFuture#thenApply(Function)}.
+     *
+     * @param function Function
+     * @return Wrapped function
+     */
+    public static <T, R> Function<T, R> function(
+        final Function<T, R> function)
+    {
+        final Locale locale = ShadowResourceBundle.getThreadLocale();
+        return new Function<T, R>() {
+            public R apply(T t)
+            {
+                final Object previous =
+                    ShadowResourceBundle.enterLocale(locale);
+                try {
+                    return function.apply(t);
+                } finally {
+                    ShadowResourceBundle.exitLocale(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a {@link Consumer} so that it runs in the current thread's
+     * locale; for example, for
+     * {@link java.util.concurrent.CompletableFuture#thenAccept(Consumer)}.
+     *
+     * @param consumer Consumer
+     * @return Wrapped consumer
+     */
+    public static <T> Consumer<T> consumer(final Consumer<T> consumer)
+    {
+        final Locale locale = ShadowResourceBundle.getThreadLocale();
+        return new Consumer<T>() {
+            public void accept(T t)
+            {
+                final Object previous =
+                    ShadowResourceBundle.enterLocale(locale);
+                try {
+                    consumer.accept(t);
+                } finally {
+                    ShadowResourceBundle.exitLocale(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a {@link BiFunction} so that it runs in the current thread's
+     * locale; for example, for
+     * {@link java.util.concurrent.CompletableFuture#handle(BiFunction)}.
+     *
+     * @param function Function
+     * @return Wrapped function
+     */
+    public static <T, U, R> BiFunction<T, U, R> biFunction(
+        final BiFunction<T, U, R> function)
+    {
+        final Locale locale = ShadowResourceBundle.getThreadLocale();
+        return new BiFunction<T, U, R>() {
+            public R apply(T t, U u)
+            {
+                final Object previous =
+                    ShadowResourceBundle.enterLocale(locale);
+                try {
+                    return function.apply(t, u);
+                } finally {
+                    ShadowResourceBundle.exitLocale(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps an {@link Executor} so that each task runs in the locale of the
+     * thread that submitted it.
+     *
+     * @param executor Executor
+     * @return Wrapped executor
+     */
+    public static Executor executor(final Executor executor)
+    {
+        return new Executor() {
+            public void execute(Runnable command)
+            {
+                executor.execute(runnable(command));
+            }
+        };
+    }
+
+    /**
+     * Wraps an {@link ExecutorService} so that each task runs in the locale
+     * of the thread that submitted it. Shutting down the wrapper shuts down
+     * the underlying service.
+     *
+     * @param executorService Executor service
+     * @return Wrapped executor service
+     */
+    public static ExecutorService executorService(
+        ExecutorService executorService)
+    {
+        return new LocaleExecutorService(executorService);
+    }
+
+    private static <T> List<Callable<T>> wrapAll(
+        Collection<? extends Callable<T>> tasks)
+    {
+        final Locale locale = ShadowResourceBundle.getThreadLocale();
+        final List<Callable<T>> list = new ArrayList<Callable<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+            list.add(new LocaleCallable<T>(locale, task));
+        }
+        return list;
+    }
+
+    /**
+     * Runnable that runs in a given locale.
+     */
+    private static class LocaleRunnable implements Runnable
+    {
+        private final Locale locale;
+        private final Runnable runnable;
+
+        LocaleRunnable(Locale locale, Runnable runnable)
+        {
+            this.locale = locale;
+            this.runnable = runnable;
+        }
+
+        public void run()
+        {
+            ShadowResourceBundle.runWithLocale(locale, runnable);
+        }
+    }
+
+    /**
+     * Callable that runs in a given locale.
+     */
+    private static class LocaleCallable<T> implements Callable<T>
+    {
+        private final Locale locale;
+        private final Callable<T> callable;
+
+        LocaleCallable(Locale locale, Callable<T> callable)
+        {
+            this.locale = locale;
+            this.callable = callable;
+        }
+
+        public T call() throws Exception
+        {
+            return ShadowResourceBundle.callWithLocale(locale, callable);
+        }
+    }
+
+    /**
+     * Executor service that runs each task in the locale of the thread that
+     * submitted it.
+     */
+    private static class LocaleExecutorService implements ExecutorService
+    {
+        private final ExecutorService service;
+
+        LocaleExecutorService(ExecutorService service)
+        {
+            this.service = service;
+        }
+
+        public void execute(Runnable command)
+        {
+            service.execute(runnable(command));
+        }
+
+        public Future<?> submit(Runnable task)
+        {
+            return service.submit(runnable(task));
+        }
+
+        public <T> Future<T> submit(Runnable task, T result)
+        {
+            return service.submit(runnable(task), result);
+        }
+
+        public <T> Future<T> submit(Callable<T> task)
+        {
+            return service.submit(callable(task));
+        }
+
+        public <T> List<Future<T>> invokeAll(
+            Collection<? extends Callable<T>> tasks)
+            throws InterruptedException
+        {
+            return service.invokeAll(wrapAll(tasks));
+        }
+
+        public <T> List<Future<T>> invokeAll(
+            Collection<? extends Callable<T>> tasks,
+            long timeout,
+            TimeUnit unit)
+            throws InterruptedException
+        {
+            return service.invokeAll(wrapAll(tasks), timeout, unit);
+        }
+
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException
+        {
+            return service.invokeAny(wrapAll(tasks));
+        }
+
+        public <T> T invokeAny(
+            Collection<? extends Callable<T>> tasks,
+            long timeout,
+            TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException
+        {
+            return service.invokeAny(wrapAll(tasks), timeout, unit);
+        }
+
+        public void shutdown()
+        {
+            service.shutdown();
+        }
+
+        public List<Runnable> shutdownNow()
+        {
+            return service.shutdownNow();
+        }
+
+        public boolean isShutdown()
+        {
+            return service.isShutdown();
+        }
+
+        public boolean isTerminated()
+        {
+            return service.isTerminated();
+        }
+
+        public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException
+        {
+            return service.awaitTermination(timeout, unit);
+        }
+    }
+}
+
+// End LocaleContext.java
@@ -0,0 +1,383 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Record of the files that {@link ResourceGen} has generated, and of what
+ * each was generated from.
+ *
+ * <p>For each output file, the manifest holds two hashes. The <em>key</em>
+ * is a hash of everything the file's content depends on: the content of its
+ * input files, the options of the task, and the code of the generator
+ * itself (see {@link KeyBuilder}). The <em>content hash</em> is a hash of the
+ * file as it was generated.
+ *
+ * <p>A file is up to date if its key has not changed and its content is
+ * still what was generated. Unlike a comparison of timestamps, this notices
+ * a change of options or of generator, and a file that has been edited by
+ * hand; and it does not regenerate files because a version-control system
+ * has touched their inputs without changing them.
+ *
+ * <p>The manifest is a text file with a line for each output:
+ *
+ * <blockquote><pre>key contentHash path</pre></blockquote>
+ *
+ * <p>where <code>path</code> is relative to the manifest's directory if the
+ * output is inside it. Methods may be called from several threads.
+ *
+ * @author jhyde
+ */
+final class Manifest
+{
+    private static final String HEADER =
+        "# Generated by " + ResourceGen.class.getName()
+        + ". Do not edit.";
+
+    private final File file;
+    private final String dirPrefix;
+
+    /** Entries, keyed by the path of the output file. Each value is an array
+     * of the key and the content hash. */
+    private final ConcurrentMap<String, String[]> entries =
+        new ConcurrentHashMap<String, String[]>();
+
+    private Manifest(File file)
+    {
+        this.file = file;
+        final File dir = file.getAbsoluteFile().getParentFile();
+        this.dirPrefix =
+            dir == null ? null : dir.getPath() + File.separator;
+    }
+
+    /**
+     * Reads a manifest. If the file does not exist, or cannot be read,
+     * returns an empty manifest, and every output will be regenerated.
+     *
+     * @param file Manifest file
+     * @return Manifest
+     */
+    static Manifest load(File file)
+    {
+        final Manifest manifest = new Manifest(file);
+        if (!file.exists()) {
+            return manifest;
+        }
+        try {
+            final BufferedReader reader =
+                new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("#")) {
+                        continue;
+                    }
+                    final String[] fields = line.split(" ", 3);
+                    if (fields.length == 3) {
+                        manifest.entries.put(
+                            fields[2], new String[] {fields[0], fields[1]});
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            ResourceGen.log(
+                "WARNING: Could not read manifest " + file + ": " + e);
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest. Entries are sorted by path, so that the file does
+     * not depend on the order in which outputs were generated.
+     *
+     * <p>If the manifest cannot be written, prints a warning; the next run
+     * will regenerate the outputs that it does not record.
+     */
+    void save()
+    {
+        final Map<String, String[]> sorted =
+            new TreeMap<String, String[]>(entries);
+        try {
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            final PrintWriter pw =
+                new PrintWriter(
+                    new OutputStreamWriter(
+                        new FileOutputStream(file), "UTF-8"));
+            try {
+                pw.println(HEADER);
+                for (Map.Entry<String, String[]> entry : sorted.entrySet()) {
+                    final String[] value = entry.getValue();
+                    pw.println(
+                        value[0] + " " + value[1] + " " + entry.getKey());
+                }
+            } finally {
+                pw.close();
+            }
+            if (pw.checkError()) {
+                throw new IOException("error while writing");
+            }
+        } catch (IOException e) {
+            ResourceGen.log(
+                "WARNING: Could not write manifest " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Returns whether an output file is up to date: it was generated with
+     * the same key, and has not changed since.
+     *
+     * @param output Output file
+     * @param key Key of the output's current inputs
+     * @return Whether the output does not need to be generated
+     */
+    boolean isUpToDate(File output, String key)
+    {
+        final String[] value = entries.get(path(output));
+        if (value == null || !value[0].equals(key) || !output.isFile()) {
+            return false;
+        }
+        try {
+            return value[1].equals(hash(output));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records that an output file has been generated.
+     *
+     * @param output Output file
+     * @param key Key of the inputs from which it was generated
+     */
+    void record(File output, String key)
+    {
+        try {
+            entries.put(path(output), new String[] {key, hash(output)});
+        } catch (IOException e) {
+            entries.remove(path(output));
+        }
+    }
+
+    private String path(File output)
+    {
+        final String path = output.getAbsolutePath();
+        if (dirPrefix != null && path.startsWith(dirPrefix)) {
+            return path.substring(dirPrefix.length()).replace('\\', '/');
+        }
+        return path.replace('\\', '/');
+    }
+
+    /**
+     * Returns a hash of the content of a file.
+     */
+    static String hash(File file) throws IOException
+    {
+        final KeyBuilder builder = new KeyBuilder();
+        builder.addContent(file);
+        return builder.toString();
+    }
+
+    /**
+     * Returns a hash of the code of the generator. It changes whenever the
+     * generator is rebuilt with different code, so an upgrade regenerates
+     * every output.
+     */
+    static String getGeneratorVersion()
+    {
+        return GeneratorVersionHolder.VERSION;
+    }
+
+    /**
+     * Computes a key by hashing a sequence of values.
+     *
+     * <p>Values are separated, so that, for example, "ab" followed by "c"
+     * gives a different key than "a" followed by "bc".
+     */
+    static class KeyBuilder
+    {
+        private final MessageDigest digest;
+        private final byte[] buf = new byte[8192];
+
+        KeyBuilder()
+        {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform is required to support SHA-256.
+                throw new AssertionError(e);
+            }
+        }
+
+        /**
+         * Adds a string, which may be null.
+         *
+         * @param s String
+         * @return This builder
+         */
+        KeyBuilder add(String s)
+        {
+            if (s == null) {
+                digest.update((byte) 0);
+            } else {
+                digest.update((byte) 1);
+                try {
+                    digest.update(s.getBytes("UTF-8"));
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+                digest.update((byte) 0);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the path and content of an input file. A file that does not
+         * exist is different from an empty file.
+         *
+         * @param file File
+         * @return This builder
+         * @throws IOException if the file exists but cannot be read
+         */
+        KeyBuilder add(File file) throws IOException
+        {
+            add(file.getPath());
+            if (file.isFile()) {
+                digest.update((byte) 1);
+                addContent(file);
+            } else {
+                digest.update((byte) 0);
+            }
+            return this;
+        }
+
+        private void addContent(File file) throws IOException
+        {
+            final InputStream in = new FileInputStream(file);
+            try {
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    digest.update(buf, 0, n);
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        /**
+         * Returns the key, as a string of hexadecimal digits.
+         */
+        public String toString()
+        {
+            final byte[] bytes = digest.digest();
+            final StringBuilder sb = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Holds the generator version, which is computed the first time it is
+     * needed.
+     */
+    private static class GeneratorVersionHolder
+    {
+        static final String VERSION = compute();
+
+        /**
+         * Hashes the jar file that contains the generator, or, if the
+         * generator was loaded from a directory, the class files of its
+         * package. If neither can be read, uses the implementation version
+         * of the package, which may be null.
+         */
+        private static String compute()
+        {
+            final KeyBuilder builder = new KeyBuilder();
+            final Package pkg = ResourceGen.class.getPackage();
+            builder.add(pkg == null ? null : pkg.getImplementationVersion());
+            try {
+                final CodeSource codeSource =
+                    ResourceGen.class.getProtectionDomain().getCodeSource();
+                final URL location =
+                    codeSource == null ? null : codeSource.getLocation();
+                if (location != null && location.getProtocol().equals("file")) {
+                    final File file = new File(location.toURI());
+                    if (file.isFile()) {
+                        builder.addContent(file);
+                    } else {
+                        addDirectory(
+                            builder,
+                            new File(
+                                file,
+                                ResourceGen.class.getPackage().getName()
+                                    .replace('.', File.separatorChar)));
+                    }
+                }
+            } catch (Exception e) {
+                // Fall back to the implementation version.
+            }
+            return builder.toString();
+        }
+
+        private static void addDirectory(KeyBuilder builder, File dir)
+            throws IOException
+        {
+            final File[] files = dir.listFiles();
+            if (files == null) {
+                return;
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    addDirectory(builder, file);
+                } else {
+                    builder.add(file.getName());
+                    builder.addContent(file);
+                }
+            }
+        }
+    }
+}
+
+// End Manifest.java
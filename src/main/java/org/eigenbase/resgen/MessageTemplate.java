@@ -0,0 +1,381 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.text.ChoiceFormat;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parsed form of a message, following the syntax of
+ * {@link java.text.MessageFormat}.
+ *
+ * <p>A template is a list of segments. Each segment is either literal text,
+ * from which quotes have already been removed, or an argument such as
+ * <code>{1,number,integer}</code>.
+ *
+ * <p>For example, the message "Happy Birthday, {0}! You don''t look
+ * {1,number}." has five segments: the literal "Happy Birthday, ", argument
+ * 0, the literal "! You don't look ", argument 1 of type "number", and the
+ * literal ".".
+ *
+ * <p>A template is immutable. The generators parse each resource's message
+ * into a template once (see {@link ResourceGen#getTemplate}) and derive
+ * parameter types, generated code and warnings from it; at run time,
+ * {@link ResourceDefinition} parses each message once and derives argument
+ * types and formatting from it.
+ *
+ * @author jhyde
+ */
+final class MessageTemplate
+{
+    final String message;
+    final List<Segment> segments;
+    /** Whether the message ends inside a quoted string. */
+    final boolean unclosedQuote;
+    /** Type of each argument, such as {@link ResourceDefinition#TYPE_NUMBER},
+     * indexed by argument ordinal. */
+    private final int[] argTypes;
+
+    private static final String[] TYPE_KEYWORDS =
+        {"", "number", "date", "time", "choice"};
+    private static final String[] NUMBER_STYLE_KEYWORDS =
+        {"", "currency", "percent", "integer"};
+    private static final String[] DATE_TIME_STYLE_KEYWORDS =
+        {"", "short", "medium", "long", "full"};
+
+    private MessageTemplate(
+        String message,
+        List<Segment> segments,
+        boolean unclosedQuote)
+    {
+        this.message = message;
+        this.segments = Collections.unmodifiableList(segments);
+        this.unclosedQuote = unclosedQuote;
+        int argCount = 0;
+        for (Segment segment : segments) {
+            argCount = Math.max(argCount, segment.argument + 1);
+        }
+        this.argTypes = new int[argCount];
+        // If an argument occurs more than once, the last occurrence
+        // determines its type, as in MessageFormat.getFormatsByArgumentIndex.
+        for (Segment segment : segments) {
+            if (segment.literal == null) {
+                argTypes[segment.argument] = segment.getArgType();
+            }
+        }
+    }
+
+    /**
+     * Parses a message.
+     *
+     * <p>The rules are the same as those of
+     * {@link java.text.MessageFormat#applyPattern(String)}. Like
+     * <code>MessageFormat</code>, rejects a sub-format pattern that is
+     * invalid, such as <code>{0,number,#.#.#}</code>.
+     *
+     * @param message Message
+     * @return Parsed message
+     * @throws IllegalArgumentException if the message is invalid
+     */
+    static MessageTemplate parse(String message)
+    {
+        final List<Segment> segments = new ArrayList<Segment>();
+        final StringBuilder[] parts = new StringBuilder[4];
+        parts[0] = new StringBuilder();
+        int part = 0;
+        boolean inQuote = false;
+        int braceStack = 0;
+        for (int i = 0; i < message.length(); ++i) {
+            char ch = message.charAt(i);
+            if (part == 0) {
+                if (ch == '\'') {
+                    if (i + 1 < message.length()
+                        && message.charAt(i + 1) == '\'')
+                    {
+                        parts[0].append(ch);
+                        ++i;
+                    } else {
+                        inQuote = !inQuote;
+                    }
+                } else if (ch == '{' && !inQuote) {
+                    part = 1;
+                    parts[1] = new StringBuilder();
+                } else {
+                    parts[0].append(ch);
+                }
+            } else if (inQuote) {
+                // Quotes within an argument are kept; the sub-format will
+                // interpret them.
+                parts[part].append(ch);
+                if (ch == '\'') {
+                    inQuote = false;
+                }
+            } else {
+                switch (ch) {
+                case ',':
+                    if (part < 3) {
+                        parts[++part] = new StringBuilder();
+                    } else {
+                        parts[part].append(ch);
+                    }
+                    break;
+                case '{':
+                    ++braceStack;
+                    parts[part].append(ch);
+                    break;
+                case '}':
+                    if (braceStack == 0) {
+                        if (parts[0].length() > 0) {
+                            segments.add(new Segment(parts[0].toString()));
+                            parts[0].setLength(0);
+                        }
+                        segments.add(makeArgument(parts));
+                        parts[1] = parts[2] = parts[3] = null;
+                        part = 0;
+                    } else {
+                        --braceStack;
+                        parts[part].append(ch);
+                    }
+                    break;
+                case ' ':
+                    // Skip leading spaces in the type.
+                    if (part != 2 || parts[2].length() > 0) {
+                        parts[part].append(ch);
+                    }
+                    break;
+                case '\'':
+                    inQuote = true;
+                    parts[part].append(ch);
+                    break;
+                default:
+                    parts[part].append(ch);
+                    break;
+                }
+            }
+        }
+        if (braceStack == 0 && part != 0) {
+            throw new IllegalArgumentException(
+                "Unmatched braces in the pattern.");
+        }
+        if (parts[0].length() > 0) {
+            segments.add(new Segment(parts[0].toString()));
+        }
+        return new MessageTemplate(message, segments, inQuote);
+    }
+
+    private static Segment makeArgument(StringBuilder[] parts)
+    {
+        final int argument;
+        try {
+            argument = Integer.parseInt(parts[1].toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                "can't parse argument number: " + parts[1]);
+        }
+        if (argument < 0) {
+            throw new IllegalArgumentException(
+                "negative argument number: " + argument);
+        }
+        final String type = parts[2] == null ? "" : parts[2].toString();
+        final String style = parts[3] == null ? "" : parts[3].toString();
+        final int typeIndex = findKeyword(type, TYPE_KEYWORDS);
+        switch (typeIndex) {
+        case 0:
+            return new Segment(argument, "", "", null);
+        case 1:
+            return makeArgument(
+                argument, "number", style, NUMBER_STYLE_KEYWORDS);
+        case 2:
+        case 3:
+            return makeArgument(
+                argument, TYPE_KEYWORDS[typeIndex], style,
+                DATE_TIME_STYLE_KEYWORDS);
+        case 4:
+            // Throws if the pattern is invalid, as MessageFormat would.
+            new ChoiceFormat(style);
+            return new Segment(argument, "choice", null, style);
+        default:
+            throw new IllegalArgumentException(
+                "unknown format type: " + type);
+        }
+    }
+
+    private static Segment makeArgument(
+        int argument,
+        String type,
+        String style,
+        String[] styleKeywords)
+    {
+        final int styleIndex = findKeyword(style, styleKeywords);
+        if (styleIndex >= 0) {
+            return new Segment(argument, type, styleKeywords[styleIndex], null);
+        }
+        // Throws if the pattern is invalid, as MessageFormat would.
+        if (type.equals("number")) {
+            new DecimalFormat(style);
+        } else {
+            new SimpleDateFormat(style);
+        }
+        return new Segment(argument, type, null, style);
+    }
+
+    private static int findKeyword(String s, String[] keywords)
+    {
+        final String s2 = s.trim().toLowerCase(Locale.ENGLISH);
+        for (int i = 0; i < keywords.length; i++) {
+            if (s.equals(keywords[i]) || s2.equals(keywords[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the total length of the literal segments.
+     *
+     * @return Number of characters of literal text
+     */
+    int getLiteralLength()
+    {
+        int n = 0;
+        for (Segment segment : segments) {
+            if (segment.literal != null) {
+                n += segment.literal.length();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of argument segments. An argument that occurs
+     * more than once in the message is counted each time.
+     *
+     * @return Number of argument segments
+     */
+    int getArgumentCount()
+    {
+        int n = 0;
+        for (Segment segment : segments) {
+            if (segment.literal == null) {
+                ++n;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the types of the arguments, ordered by argument ordinal.
+     * An argument that does not occur in the message has type "string".
+     *
+     * <p>For example, for the message "I bought {0,number} {2}s",
+     * <code>getArgTypes(new String[] {"String", "Number", "Date",
+     * "Time"})</code> returns <code>{"Number", "String", "String"}</code>.
+     *
+     * @param typeNames Names of the types {@link ResourceDefinition#TYPE_STRING},
+     *   {@link ResourceDefinition#TYPE_NUMBER},
+     *   {@link ResourceDefinition#TYPE_DATE} and
+     *   {@link ResourceDefinition#TYPE_TIME}
+     * @return Array of type names; the caller may modify it
+     */
+    String[] getArgTypes(String[] typeNames)
+    {
+        final String[] types = new String[argTypes.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = typeNames[argTypes[i]];
+        }
+        return types;
+    }
+
+    /**
+     * Returns whether any argument has a given format type.
+     *
+     * @param type Format type, for example "choice"
+     * @return Whether there is an argument of the given type
+     */
+    boolean hasType(String type)
+    {
+        for (Segment segment : segments) {
+            if (type.equals(segment.type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Segment of a message: either a piece of literal text or an argument.
+     */
+    static final class Segment
+    {
+        /** Literal text, or null if this segment is an argument. */
+        final String literal;
+        /** Ordinal of the argument, or -1 if this segment is literal. */
+        final int argument;
+        /** Format type: "" (none), "number", "date", "time" or "choice";
+         * null if this segment is literal. */
+        final String type;
+        /** Format style keyword, such as "" (none), "integer" or "short";
+         * null if the argument has a {@link #pattern}. */
+        final String style;
+        /** Format pattern, such as "#,##0.0" or "yyyy-MM-dd"; null if the
+         * argument has a style keyword. */
+        final String pattern;
+
+        Segment(String literal)
+        {
+            this.literal = literal;
+            this.argument = -1;
+            this.type = null;
+            this.style = null;
+            this.pattern = null;
+        }
+
+        Segment(int argument, String type, String style, String pattern)
+        {
+            this.literal = null;
+            this.argument = argument;
+            this.type = type;
+            this.style = style;
+            this.pattern = pattern;
+        }
+
+        /**
+         * Returns the type code of this argument, such as
+         * {@link ResourceDefinition#TYPE_NUMBER}. Like
+         * {@link java.text.MessageFormat}, treats a <code>choice</code>
+         * argument as a number, and a <code>time</code> argument as a date.
+         */
+        int getArgType()
+        {
+            if (type.equals("number") || type.equals("choice")) {
+                return ResourceDefinition.TYPE_NUMBER;
+            } else if (type.equals("date") || type.equals("time")) {
+                return ResourceDefinition.TYPE_DATE;
+            } else {
+                return ResourceDefinition.TYPE_STRING;
+            }
+        }
+    }
+}
+
+// End MessageTemplate.java
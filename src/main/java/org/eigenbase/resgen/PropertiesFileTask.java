@@ -39,6 +39,22 @@ class PropertiesFileTask extends FileTask
         this.locale = Util.fileNameToLocale(fileName, ".properties");
     }
 
+    /**
+     * Returns the XML file that defines the resources (such as
+     * <code>happy/Birthday.xml</code>), as well as the properties file.
+     */
+    File[] getInputFiles()
+    {
+        return new File[] {getFile(), getXmlFile()};
+    }
+
+    private File getXmlFile()
+    {
+        // e.g. happy/Birthday_fr_FR.properties
+        String s = Util.fileNameSansLocale(fileName, ".properties");
+        return new File(include.root.src, s + ".xml");
+    }
+
     /**
      * Given an existing properties file such as
      * <code>happy/Birthday_fr_FR.properties</code>, generates the
@@ -48,10 +64,7 @@ class PropertiesFileTask extends FileTask
      */
     void process(ResourceGen generator) throws IOException
     {
-        // e.g. happy/Birthday_fr_FR.properties
-        String s = Util.fileNameSansLocale(fileName, ".properties");
-        File file = new File(include.root.src, s + ".xml");
-        URL url = Util.convertPathToURL(file);
+        URL url = Util.convertPathToURL(getXmlFile());
         ResourceDef.ResourceBundle resourceList = Util.load(url);
 
         if (outputJava) {
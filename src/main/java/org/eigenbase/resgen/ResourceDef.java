@@ -1,7 +1,7 @@
 /*
 // This java file was automatically generated
 // from XOM model 'resource'
-// on Mon Nov 14 16:56:43 PST 2016
+// on Fri Oct 16 21:06:22 UTC 2026
 // Do not edit this file by hand.
 */
 
@@ -9,7 +9,7 @@ package org.eigenbase.resgen;
 /**
  * This model specifies the elements which make up a resource file. See
  * {@link ResourceGenTask} for more information.
- * <p>This class was generated from XOM model 'resource' on Mon Nov 14 16:56:43 PST 2016
+ * <p>This class was generated from XOM model 'resource' on Fri Oct 16 21:06:22 UTC 2026
  */
 public class ResourceDef {
 
@@ -234,6 +234,12 @@ public class ResourceDef {
 		}
 		// BEGIN pass-through code block ---
 abstract org.eigenbase.xom.DOMWrapper getDef();
+        /** Parsed message; see ResourceGen#getTemplate. */
+        MessageTemplate template;
+        /** Comment, or null; see ResourceGen#getComment. */
+        String comment;
+        /** Whether {@link #comment} has been read from the DOM. */
+        boolean commentDone;
 		// END pass-through code block ---
 	}
 
@@ -368,6 +374,7 @@ org.eigenbase.xom.DOMWrapper getDef() { return _def; }
 				cppClassName = (String)_parser.getAttribute("cppClassName", "String", null, null, false);
 				cppClassLocation = (String)_parser.getAttribute("cppClassLocation", "String", null, null, false);
 				cppChainExceptions = (String)_parser.getAttribute("cppChainExceptions", "String", null, null, false);
+				stackTrace = (String)_parser.getAttribute("stackTrace", "String", null, null, false);
 				name = (String)_parser.getAttribute("name", "String", null, null, true);
 				_tempArray = _parser.getArray(Property.class, 0, 0);
 				properties = new Property[_tempArray.length];
@@ -383,6 +390,7 @@ org.eigenbase.xom.DOMWrapper getDef() { return _def; }
 		public String cppClassName;  // optional attribute
 		public String cppClassLocation;  // optional attribute
 		public String cppChainExceptions;  // optional attribute
+		public String stackTrace;  // optional attribute
 		public org.eigenbase.xom.DOMWrapper _def;
 
 
@@ -398,6 +406,7 @@ org.eigenbase.xom.DOMWrapper getDef() { return _def; }
 			displayAttribute(_out, "cppClassName", cppClassName, _indent+1);
 			displayAttribute(_out, "cppClassLocation", cppClassLocation, _indent+1);
 			displayAttribute(_out, "cppChainExceptions", cppChainExceptions, _indent+1);
+			displayAttribute(_out, "stackTrace", stackTrace, _indent+1);
 			displayAttribute(_out, "name", name, _indent+1);
 			displayElementArray(_out, "properties", properties, _indent+1);
 			displayElement(_out, "text", (org.eigenbase.xom.ElementDef) text, _indent+1);
@@ -409,6 +418,7 @@ org.eigenbase.xom.DOMWrapper getDef() { return _def; }
 				.add("cppClassName", cppClassName)
 				.add("cppClassLocation", cppClassLocation)
 				.add("cppChainExceptions", cppChainExceptions)
+				.add("stackTrace", stackTrace)
 				.add("name", name)
 				);
 			displayXMLElementArray(_out, properties);
@@ -422,6 +432,7 @@ org.eigenbase.xom.DOMWrapper getDef() { return _def; }
 			_diff = _diff && displayAttributeDiff("cppClassName", cppClassName, _cother.cppClassName, _out, _indent+1);
 			_diff = _diff && displayAttributeDiff("cppClassLocation", cppClassLocation, _cother.cppClassLocation, _out, _indent+1);
 			_diff = _diff && displayAttributeDiff("cppChainExceptions", cppChainExceptions, _cother.cppChainExceptions, _out, _indent+1);
+			_diff = _diff && displayAttributeDiff("stackTrace", stackTrace, _cother.stackTrace, _out, _indent+1);
 			_diff = _diff && displayElementArrayDiff("properties", properties, _cother.properties, _out, _indent+1);
 			_diff = _diff && displayElementDiff("text", text, _cother.text, _out, _indent+1);
 			return _diff;
@@ -17,14 +17,22 @@
 */
 package org.eigenbase.resgen;
 
+import java.io.IOException;
+import java.text.FieldPosition;
 import java.text.MessageFormat;
 import java.text.Format;
 import java.text.NumberFormat;
 import java.text.DateFormat;
+import java.util.Date;
+import java.util.Locale;
 import java.util.ResourceBundle;
 import java.util.Properties;
-import java.lang.reflect.Method;
-import java.lang.reflect.InvocationTargetException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Definition of a resource such as a parameterized message or exception.
@@ -34,7 +42,10 @@ import java.lang.reflect.InvocationTargetException;
  * usually US-English (en_US)). It may also have a set of properties, which are
  * represented as name-value pairs.
  *
- * <p>A resource definition is immutable.
+ * <p>A resource definition is immutable. It does, however, cache the
+ * {@link MessageFormat} it parses from its message in each locale, so that
+ * formatting the same resource many times does not parse the message each
+ * time. See {@link #getFormat(String, Locale)}.
  *
  * @author jhyde
  */
@@ -45,6 +56,7 @@ public class ResourceDefinition
     private final String[] props;
 
     private static final String[] EmptyStringArray = new String[0];
+    private static final Object[] EmptyObjectArray = new Object[0];
 
     public static final int TYPE_UNKNOWN = -1;
     public static final int TYPE_STRING = 0;
@@ -54,6 +66,56 @@ public class ResourceDefinition
     private static final String[] TypeNames =
         {"string", "number", "date", "time"};
 
+    /**
+     * Parsed formats of this resource's message, keyed by locale. Each entry
+     * remembers the message it was parsed from, so if a bundle supplies a
+     * different message for the same locale the entry is replaced. Entries
+     * cached before a bundle was reloaded are also replaced; see
+     * {@link ShadowResourceBundle#setReloadInterval(long)}.
+     */
+    private final ConcurrentMap<Locale, CachedFormat> formatCache =
+        new ConcurrentHashMap<Locale, CachedFormat>();
+
+    /** Parsed base message; computed on first use. */
+    private volatile MessageTemplate baseTemplate;
+
+    /** Number of entries in the format caches of all resource definitions. */
+    private static final AtomicInteger formatCacheSize = new AtomicInteger();
+
+    /**
+     * Formats in the order they were cached, oldest first. When the queue
+     * is longer than {@link #formatCacheLimit}, the oldest formats are
+     * removed from the caches of their resource definitions. A format that
+     * has since been replaced in its cache is simply dropped from the queue.
+     */
+    private static final Queue<CachedFormat> formatQueue =
+        new ConcurrentLinkedQueue<CachedFormat>();
+
+    /** Length of {@link #formatQueue}. */
+    private static final AtomicInteger formatQueueLength = new AtomicInteger();
+
+    /** Number of messages parsed into a {@link MessageFormat}. */
+    private static final AtomicLong formatParseCount = new AtomicLong();
+
+    /** Number of formats removed from the caches to make room for others. */
+    private static final AtomicLong formatEvictionCount = new AtomicLong();
+
+    /** Maximum number of formats in the caches of all resource definitions. */
+    private static volatile int formatCacheLimit = 10000;
+
+    /**
+     * Per-thread buffer into which {@link #formatTo} and {@link Arguments}
+     * format messages before copying them to the caller's buffer.
+     * ({@link MessageFormat} can only format into a {@link StringBuffer}.)
+     */
+    private static final ThreadLocal<Scratch> scratch =
+        new ThreadLocal<Scratch>() {
+            protected Scratch initialValue()
+            {
+                return new Scratch();
+            }
+        };
+
     /**
      * Creates a resource definition with no properties.
      *
@@ -109,6 +171,124 @@ public class ResourceDefinition
         return baseMessage;
     }
 
+    /**
+     * Returns whether a resource bundle's message for this resource is the
+     * same as the message in the base locale.
+     *
+     * <p>Code generated in the "compiled" style calls this method to decide
+     * whether it can use its pre-compiled form of the base message, or must
+     * format the bundle's message using {@link MessageFormat}.
+     *
+     * @param bundle Resource bundle
+     * @return Whether the bundle's message is the base message
+     */
+    public boolean isBaseMessage(ResourceBundle bundle)
+    {
+        final String message = bundle.getString(key);
+        if (message == baseMessage || message.equals(baseMessage)) {
+            if (ResourceMetrics.isEnabled()) {
+                // The caller is about to format the message itself.
+                ResourceMetrics.recordFormat(bundle, key, 0);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Formats an argument of this resource's base message in the same way
+     * as {@link MessageFormat}, and returns the result.
+     *
+     * <p>Code generated in the "compiled" style calls this method to format
+     * arguments that have a sub-format, such as <code>{1,number}</code>, or
+     * that are numbers or dates. The sub-format is a copy, owned by the
+     * current thread, of the one parsed from the base message, so no format
+     * is created on each call.
+     *
+     * @param bundle Resource bundle
+     * @param ordinal Position of the argument among the arguments of the
+     *   base message, counting each occurrence; the same as its index in
+     *   {@link MessageFormat#getFormats()}
+     * @param value Argument value
+     * @return Formatted argument
+     */
+    public String formatArgument(
+        ResourceBundle bundle,
+        int ordinal,
+        Object value)
+    {
+        if (value == null) {
+            return "null";
+        }
+        final StringBuilder sb = new StringBuilder();
+        appendArgument(bundle, ordinal, value, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Formats an argument of this resource's base message in the same way
+     * as {@link MessageFormat}, and appends the result to a buffer. See
+     * {@link #formatArgument(ResourceBundle, int, Object)}.
+     *
+     * @param bundle Resource bundle
+     * @param ordinal Position of the argument among the arguments of the
+     *   base message
+     * @param value Argument value
+     * @param sb Buffer to append to
+     */
+    public void appendArgument(
+        ResourceBundle bundle,
+        int ordinal,
+        Object value,
+        StringBuilder sb)
+    {
+        final Locale locale = bundle.getLocale();
+        final CachedFormat cached = getCachedFormat(baseMessage, locale);
+        final Scratch s = Scratch.acquire();
+        try {
+            append(
+                s, sb, cached.formats(s)[ordinal], value,
+                cached.format.getLocale());
+        } finally {
+            s.release();
+        }
+    }
+
+    /**
+     * Appends an argument, following the rules of {@link MessageFormat}.
+     *
+     * @param s Scratch buffer of the current thread
+     * @param sb Buffer to append to
+     * @param format Sub-format, or null
+     * @param o Argument value
+     * @param locale Locale of the message format
+     */
+    private static void append(
+        Scratch s,
+        StringBuilder sb,
+        Format format,
+        Object o,
+        Locale locale)
+    {
+        if (o == null) {
+            sb.append("null");
+        } else if (format != null) {
+            format.format(o, s.buf, s.pos);
+            s.flush(sb);
+        } else if (o instanceof Number) {
+            s.numberFormat(locale).format(o, s.buf, s.pos);
+            s.flush(sb);
+        } else if (o instanceof Date) {
+            s.dateTimeFormat(locale).format(o, s.buf, s.pos);
+            s.flush(sb);
+        } else if (o instanceof String) {
+            sb.append((String) o);
+        } else {
+            final String str = o.toString();
+            sb.append(str == null ? "null" : str);
+        }
+    }
+
     /**
      * Returns the properties of this resource definition.
      *
@@ -132,7 +312,21 @@ public class ResourceDefinition
      */
     public String[] getArgTypes()
     {
-        return getArgTypes(baseMessage, TypeNames);
+        return getBaseTemplate().getArgTypes(TypeNames);
+    }
+
+    /**
+     * Returns the parsed base message, parsing it if necessary.
+     */
+    private MessageTemplate getBaseTemplate()
+    {
+        MessageTemplate template = baseTemplate;
+        if (template == null) {
+            // If two threads race, both parse; templates are immutable, so
+            // either result may be kept.
+            template = baseTemplate = MessageTemplate.parse(baseMessage);
+        }
+        return template;
     }
 
     /**
@@ -151,14 +345,335 @@ public class ResourceDefinition
         return new Instance(bundle, this, args);
     }
 
+    /**
+     * Formats this resource with a set of arguments, and appends the result
+     * to a {@link StringBuilder}.
+     *
+     * <p>The result is the same as
+     * <code>instantiate(bundle, args).toString()</code>, but this method
+     * creates neither a {@link ResourceInstance} nor a {@link String}. A
+     * derived class which overrides {@link #instantiate} should override this
+     * method also.
+     *
+     * @param bundle Resource bundle (This contains the locale, among other
+     *   things.)
+     * @param args Arguments to populate the message's parameters
+     * @param buf Buffer to append to
+     */
+    public void formatTo(
+        ResourceBundle bundle,
+        Object[] args,
+        StringBuilder buf)
+    {
+        if (args == null || args.length == 0) {
+            buf.append(getConstant(bundle));
+            return;
+        }
+        final Scratch s = format(bundle, args);
+        buf.append(s.buf);
+        s.release();
+    }
+
+    /**
+     * Formats this resource with a set of arguments, and appends the result
+     * to an {@link Appendable}.
+     *
+     * @param bundle Resource bundle
+     * @param args Arguments to populate the message's parameters
+     * @param out Appendable to append to
+     * @throws IOException if <code>out</code> throws
+     * @see #formatTo(ResourceBundle, Object[], StringBuilder)
+     */
+    public void formatTo(ResourceBundle bundle, Object[] args, Appendable out)
+        throws IOException
+    {
+        if (args == null || args.length == 0) {
+            out.append(getConstant(bundle));
+            return;
+        }
+        final Scratch s = format(bundle, args);
+        try {
+            out.append(s.buf);
+        } finally {
+            s.release();
+        }
+    }
+
+    /**
+     * Returns the message of this resource, which has no arguments,
+     * formatted.
+     *
+     * <p>The result is the same as
+     * <code>instantiate(bundle, new Object[0]).toString()</code>. But if
+     * <code>bundle</code> is a {@link ShadowResourceBundle}, the message is
+     * formatted only the first time, and is then held by the bundle;
+     * subsequent calls allocate nothing. Code generated for a message
+     * without arguments calls this method.
+     *
+     * @param bundle Resource bundle
+     * @return Formatted message
+     */
+    public String getConstant(ResourceBundle bundle)
+    {
+        if (!ResourceMetrics.isEnabled()) {
+            return constant(bundle);
+        }
+        final long start = System.nanoTime();
+        final String s = constant(bundle);
+        ResourceMetrics.recordFormat(bundle, key, System.nanoTime() - start);
+        return s;
+    }
+
+    private String constant(ResourceBundle bundle)
+    {
+        if (bundle instanceof ShadowResourceBundle) {
+            return ((ShadowResourceBundle) bundle).getConstant(key);
+        }
+        return formatConstant(bundle.getString(key));
+    }
+
+    /**
+     * Formats a message with no arguments, giving the same result as
+     * {@link MessageFormat}: quotes are removed, and if the message
+     * nevertheless contains arguments (say a translator added one), each is
+     * printed as, for example, "{0}".
+     *
+     * @param message Message
+     * @return Formatted message
+     */
+    static String formatConstant(String message)
+    {
+        final MessageTemplate template = MessageTemplate.parse(message);
+        if (template.getArgumentCount() > 0) {
+            formatParseCount.incrementAndGet();
+            return new MessageFormat(message).format(EmptyObjectArray);
+        }
+        switch (template.segments.size()) {
+        case 0:
+            return "";
+        case 1:
+            return template.segments.get(0).literal;
+        default:
+            // Cannot happen; adjacent literals are merged.
+            final StringBuilder buf = new StringBuilder();
+            for (MessageTemplate.Segment segment : template.segments) {
+                buf.append(segment.literal);
+            }
+            return buf.toString();
+        }
+    }
+
+    /**
+     * Returns an empty argument list with which to format this resource.
+     *
+     * <p>Code generated for a message with <code>{n,number}</code> arguments
+     * includes overloaded methods whose number parameters are
+     * <code>long</code> or <code>double</code>, so that callers need not box
+     * them. Those methods add each argument to the list, then format it; for
+     * example,
+     *
+     * <blockquote><pre>
+     * HappyBirthday.arguments(this).arg(p0).arg(p1).format()</pre></blockquote>
+     *
+     * <p>Primitive arguments are not boxed, and no {@link ResourceInstance}
+     * or <code>Object[]</code> is created. Each call returns a new list, so
+     * an argument may itself be formatted from another resource's argument
+     * list; the list is small, and the JIT compiler can often avoid
+     * allocating it in a chain of calls such as the one above.
+     *
+     * <p>The result is the same as that of {@link MessageFormat}.
+     *
+     * @param bundle Resource bundle (This contains the locale, among other
+     *   things.)
+     * @return Empty argument list
+     */
+    public Arguments arguments(ResourceBundle bundle)
+    {
+        return new Arguments(this, bundle);
+    }
+
+    /**
+     * Formats this resource into the current thread's scratch buffer. The
+     * caller must release the buffer when it has copied the result.
+     */
+    private Scratch format(ResourceBundle bundle, Object[] args)
+    {
+        if (!ResourceMetrics.isEnabled()) {
+            return format0(bundle, args);
+        }
+        final long start = System.nanoTime();
+        final Scratch s = format0(bundle, args);
+        ResourceMetrics.recordFormat(bundle, key, System.nanoTime() - start);
+        return s;
+    }
+
+    private Scratch format0(ResourceBundle bundle, Object[] args)
+    {
+        String message = bundle.getString(key);
+        MessageFormat format = getFormat(message, bundle.getLocale());
+        final Scratch s = Scratch.acquire();
+        try {
+            format.format(args, s.buf, s.pos);
+        } catch (RuntimeException e) {
+            s.release();
+            throw e;
+        }
+        return s;
+    }
+
+    /**
+     * Returns a {@link MessageFormat} for this resource's message in a given
+     * locale.
+     *
+     * <p>The format is parsed the first time it is needed, and is cached
+     * for subsequent calls with the same locale and message. The result must
+     * not be modified, and must only be used by the calling thread; if the
+     * message has sub-formats (such as <code>{0,number}</code>), which are
+     * not thread-safe, each call returns a clone of the cached format.
+     *
+     * @param message Message, as found in the resource bundle
+     * @param locale Locale of the resource bundle; if null, the format is
+     *   not cached
+     * @return Format
+     */
+    protected MessageFormat getFormat(String message, Locale locale)
+    {
+        if (locale != null) {
+            final CachedFormat cached = formatCache.get(locale);
+            if (cached != null && cached.matches(message)) {
+                return cached.get();
+            }
+        }
+        formatParseCount.incrementAndGet();
+        MessageFormat format = new MessageFormat(message);
+        format.setLocale(locale);
+        if (locale != null) {
+            cacheFormat(new CachedFormat(this, locale, message, format));
+        }
+        return format;
+    }
+
+    /**
+     * Returns the cached format of this resource's message in a given locale,
+     * parsing and caching it if necessary. Unlike
+     * {@link #getFormat(String, Locale)}, the result is never cloned.
+     */
+    private CachedFormat getCachedFormat(String message, Locale locale)
+    {
+        if (locale != null) {
+            final CachedFormat cached = formatCache.get(locale);
+            if (cached != null && cached.matches(message)) {
+                return cached;
+            }
+        }
+        formatParseCount.incrementAndGet();
+        MessageFormat format = new MessageFormat(message);
+        format.setLocale(locale);
+        final CachedFormat cached =
+            new CachedFormat(this, locale, message, format);
+        if (locale != null) {
+            cacheFormat(cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Adds a format to the cache, replacing any format of a different message
+     * in the same locale. If the caches of all resource definitions then hold
+     * more than {@link #setFormatCacheLimit(int) the limit}, removes the
+     * formats that were cached longest ago.
+     */
+    private void cacheFormat(CachedFormat cached)
+    {
+        if (formatCache.put(cached.locale, cached) == null) {
+            formatCacheSize.incrementAndGet();
+        }
+        formatQueue.add(cached);
+        int length = formatQueueLength.incrementAndGet();
+        while (length > formatCacheLimit) {
+            final CachedFormat oldest = formatQueue.poll();
+            if (oldest == null) {
+                break;
+            }
+            length = formatQueueLength.decrementAndGet();
+            if (oldest.definition.formatCache.remove(oldest.locale, oldest)) {
+                formatCacheSize.decrementAndGet();
+                formatEvictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of formats held in the caches of all resource
+     * definitions.
+     *
+     * @return Number of cached formats
+     */
+    public static int getFormatCacheSize()
+    {
+        return formatCacheSize.get();
+    }
+
+    /**
+     * Returns the number of times that a message has been parsed into a
+     * {@link MessageFormat}. If the cache is effective, this number stops
+     * growing once each resource has been used in each locale.
+     *
+     * @return Number of messages parsed
+     */
+    public static long getFormatParseCount()
+    {
+        return formatParseCount.get();
+    }
+
+    /**
+     * Returns the number of formats that have been removed from the caches
+     * of resource definitions to keep them within
+     * {@link #setFormatCacheLimit(int) the limit}. If this number grows
+     * steadily, the limit is too small for the resources and locales in use,
+     * and messages are being parsed again and again.
+     *
+     * @return Number of formats evicted
+     */
+    public static long getFormatCacheEvictionCount()
+    {
+        return formatEvictionCount.get();
+    }
+
+    /**
+     * Sets the maximum number of formats held in the caches of all resource
+     * definitions. The default is 10,000. When the limit is reached, caching
+     * a new format removes the format that was cached longest ago (see
+     * {@link #getFormatCacheEvictionCount()}). Lowering the limit takes
+     * effect when the next format is cached.
+     *
+     * @param limit Maximum number of cached formats
+     */
+    public static void setFormatCacheLimit(int limit)
+    {
+        formatCacheLimit = limit;
+    }
+
+    /**
+     * Returns the maximum number of formats held in the caches of all
+     * resource definitions.
+     *
+     * @return Maximum number of cached formats
+     * @see #setFormatCacheLimit(int)
+     */
+    public static int getFormatCacheLimit()
+    {
+        return formatCacheLimit;
+    }
+
     /**
      * Parses a message for the arguments inside it, and
      * returns an array with the types of those arguments.
      *
      * <p>For example, <code>getArgTypes("I bought {0,number} {2}s",
      * new String[] {"string", "number", "date", "time"})</code>
-     * yields {"number", null, "string"}.
-     * Note the null corresponding to missing message #1.
+     * yields {"number", "string", "string"}.
+     * Note that missing argument #1 is treated as a string.
      *
      * @param message Message to be parsed.
      * @param typeNames Strings to return for types.
@@ -167,36 +682,7 @@ public class ResourceDefinition
     protected static String[] getArgTypes(String message, String[] typeNames)
     {
         assert typeNames.length == 4;
-        Format[] argFormats;
-        try {
-            // We'd like to do
-            //  argFormats = format.getFormatsByArgumentIndex()
-            // but it doesn't exist until JDK 1.4, and we'd like this code
-            // to work earlier.
-            Method method = MessageFormat.class.getMethod(
-                "getFormatsByArgumentIndex", (Class[]) null);
-            try {
-                MessageFormat format = new MessageFormat(message);
-                argFormats = (Format[]) method.invoke(format, (Object[]) null);
-                String[] argTypes = new String[argFormats.length];
-                for (int i = 0; i < argFormats.length; i++) {
-                    int x = formatToType(argFormats[i]);
-                    argTypes[i] =  typeNames[x];
-                }
-                return argTypes;
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e.toString());
-            } catch (IllegalArgumentException e) {
-                throw new RuntimeException(e.toString());
-            } catch (InvocationTargetException e) {
-                throw new RuntimeException(e.toString());
-            }
-        } catch (NoSuchMethodException e) {
-            // Fallback pre JDK 1.4
-            return getArgTypesByHand(message, typeNames);
-        } catch (SecurityException e) {
-            throw new RuntimeException(e.toString());
-        }
+        return MessageTemplate.parse(message).getArgTypes(typeNames);
     }
 
     protected static String [] getArgTypesByHand(
@@ -261,18 +747,434 @@ public class ResourceDefinition
 
 
     /**
-     * Converts a {@link Format} to a type code ({@link #TYPE_STRING} etc.)
+     * Parsed format of a message, as held in a resource definition's cache.
      */
-    private static int formatToType(Format format) {
-        if (format == null) {
-            return TYPE_STRING;
-        } else if (format instanceof NumberFormat) {
-            return TYPE_NUMBER;
-        } else if (format instanceof DateFormat) {
-            // might be date or time, but assume it's date
-            return TYPE_DATE;
-        } else {
-            return TYPE_STRING;
+    private static class CachedFormat {
+        final ResourceDefinition definition;
+        final Locale locale;
+        final String message;
+        final MessageFormat format;
+        final boolean shared;
+        final int version;
+
+        /** Parsed message, or null if {@link Arguments} cannot format it
+         * segment by segment; computed on first use. */
+        private volatile MessageTemplate template;
+        private volatile boolean templateDone;
+
+        /** Sub-formats of a format that has none, that is, an array of
+         * nulls; computed on first use. */
+        private volatile Format[] nullFormats;
+
+        CachedFormat(
+            ResourceDefinition definition,
+            Locale locale,
+            String message,
+            MessageFormat format)
+        {
+            this.definition = definition;
+            this.locale = locale;
+            this.message = message;
+            this.version = BundleReloader.version();
+            this.shared = !hasSubformats(format);
+            // If the format is going to be cloned, cache a private copy;
+            // the caller is about to use the original.
+            this.format = shared ? format : (MessageFormat) format.clone();
+        }
+
+        boolean matches(String message)
+        {
+            return (message == this.message || message.equals(this.message))
+                && version == BundleReloader.version();
+        }
+
+        /**
+         * Returns a format that the calling thread may use. A format without
+         * sub-formats holds no mutable state while formatting, so it can be
+         * shared between threads.
+         */
+        MessageFormat get()
+        {
+            return shared ? format : (MessageFormat) format.clone();
+        }
+
+        /**
+         * Returns the parsed message, or null if the message has
+         * <code>choice</code> arguments (whose output may be a message to be
+         * formatted in turn) or is not understood by {@link MessageTemplate}.
+         *
+         * @param definition Resource definition whose cache holds this
+         *   format; if the message is the base message, its parsed form is
+         *   reused
+         */
+        MessageTemplate template(ResourceDefinition definition)
+        {
+            if (!templateDone) {
+                MessageTemplate t;
+                try {
+                    t = message.equals(definition.baseMessage)
+                        ? definition.getBaseTemplate()
+                        : MessageTemplate.parse(message);
+                    if (t.hasType("choice")
+                        || t.getArgumentCount() != format.getFormats().length)
+                    {
+                        t = null;
+                    }
+                } catch (IllegalArgumentException e) {
+                    t = null;
+                }
+                template = t;
+                templateDone = true;
+            }
+            return template;
+        }
+
+        /**
+         * Returns the sub-formats of the message's arguments, in the order
+         * that they occur in the message, which the thread that owns a
+         * scratch buffer may use. An element is null if its argument has no
+         * format.
+         */
+        Format[] formats(Scratch s)
+        {
+            if (shared) {
+                Format[] formats = nullFormats;
+                if (formats == null) {
+                    formats = nullFormats = format.getFormats();
+                }
+                return formats;
+            }
+            final int slot =
+                System.identityHashCode(this) & (Scratch.FORMAT_SLOTS - 1);
+            if (s.formatOwners[slot] == this) {
+                return s.formats[slot];
+            }
+            final Format[] formats = format.getFormats();
+            for (int i = 0; i < formats.length; i++) {
+                if (formats[i] != null) {
+                    formats[i] = (Format) formats[i].clone();
+                }
+            }
+            s.formatOwners[slot] = this;
+            s.formats[slot] = formats;
+            return formats;
+        }
+
+        private static boolean hasSubformats(MessageFormat format)
+        {
+            final Format[] formats = format.getFormats();
+            for (int i = 0; i < formats.length; i++) {
+                if (formats[i] != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Buffer into which a thread formats messages, and the formats that it
+     * has copied in order to do so.
+     */
+    private static class Scratch {
+        /** Buffers which grow beyond this size are not kept. */
+        private static final int MAX_CAPACITY = 4096;
+
+        /** Number of messages whose copied sub-formats a thread keeps; a
+         * power of 2. */
+        static final int FORMAT_SLOTS = 64;
+
+        StringBuffer buf = new StringBuffer();
+        final FieldPosition pos = new FieldPosition(0);
+        boolean inUse;
+
+        /** Cached formats whose sub-formats have been copied, and the
+         * copies, indexed by the identity hash code of the cached format. A
+         * message whose slot is taken by another has its sub-formats copied
+         * again. */
+        final CachedFormat[] formatOwners = new CachedFormat[FORMAT_SLOTS];
+        final Format[][] formats = new Format[FORMAT_SLOTS][];
+
+        /** Format for numbers that have no sub-format, and its locale. */
+        private NumberFormat numberFormat;
+        private Locale numberFormatLocale;
+
+        /** Format for dates that have no sub-format, and its locale. */
+        private DateFormat dateTimeFormat;
+        private Locale dateTimeFormatLocale;
+
+        /**
+         * Returns the current thread's scratch buffer, or a new one if the
+         * thread is already using it (say, because an argument's
+         * <code>toString</code> method is formatting a resource).
+         */
+        static Scratch acquire()
+        {
+            Scratch s = scratch.get();
+            if (s.inUse) {
+                s = new Scratch();
+            }
+            s.inUse = true;
+            return s;
+        }
+
+        void release()
+        {
+            if (buf.capacity() > MAX_CAPACITY) {
+                buf = new StringBuffer();
+            } else {
+                buf.setLength(0);
+            }
+            inUse = false;
+        }
+
+        /**
+         * Returns the format for numbers that have no sub-format, which
+         * {@link MessageFormat} would create for each argument.
+         */
+        NumberFormat numberFormat(Locale locale)
+        {
+            if (numberFormat == null || !locale.equals(numberFormatLocale)) {
+                numberFormat = NumberFormat.getInstance(locale);
+                numberFormatLocale = locale;
+            }
+            return numberFormat;
+        }
+
+        /**
+         * Returns the format for dates that have no sub-format, which
+         * {@link MessageFormat} would create for each argument.
+         */
+        DateFormat dateTimeFormat(Locale locale)
+        {
+            if (dateTimeFormat == null
+                || !locale.equals(dateTimeFormatLocale))
+            {
+                dateTimeFormat =
+                    DateFormat.getDateTimeInstance(
+                        DateFormat.SHORT, DateFormat.SHORT, locale);
+                dateTimeFormatLocale = locale;
+            }
+            return dateTimeFormat;
+        }
+
+        /**
+         * Moves what has been formatted into {@link #buf} to a
+         * {@link StringBuilder}.
+         */
+        void flush(StringBuilder sb)
+        {
+            sb.append(buf);
+            buf.setLength(0);
+        }
+    }
+
+    /**
+     * List of arguments with which to format a resource; see
+     * {@link ResourceDefinition#arguments(ResourceBundle)}.
+     *
+     * <p>Arguments of type <code>long</code> and <code>double</code> are
+     * held without boxing, and are formatted using
+     * {@link NumberFormat#format(long, StringBuffer, FieldPosition)} and
+     * {@link NumberFormat#format(double, StringBuffer, FieldPosition)}.
+     * (An <code>int</code> argument is widened to <code>long</code>.)
+     */
+    public static final class Arguments
+    {
+        private static final byte OBJECT = 0;
+        private static final byte LONG = 1;
+        private static final byte DOUBLE = 2;
+
+        private final ResourceDefinition definition;
+        private final ResourceBundle bundle;
+        private int count;
+
+        private byte[] kinds = new byte[4];
+
+        /** Values of <code>long</code> arguments, and the bits of
+         * <code>double</code> arguments. */
+        private long[] values = new long[4];
+
+        /** Values of object arguments; created when the first is added. */
+        private Object[] objects;
+
+        Arguments(ResourceDefinition definition, ResourceBundle bundle)
+        {
+            this.definition = definition;
+            this.bundle = bundle;
+        }
+
+        /**
+         * Adds an argument.
+         *
+         * @param value Argument value
+         * @return This argument list
+         */
+        public Arguments arg(Object value)
+        {
+            final int i = add(OBJECT);
+            if (objects == null) {
+                objects = new Object[kinds.length];
+            }
+            objects[i] = value;
+            return this;
+        }
+
+        /**
+         * Adds an argument of type <code>long</code>.
+         *
+         * @param value Argument value
+         * @return This argument list
+         */
+        public Arguments arg(long value)
+        {
+            values[add(LONG)] = value;
+            return this;
+        }
+
+        /**
+         * Adds an argument of type <code>double</code>.
+         *
+         * @param value Argument value
+         * @return This argument list
+         */
+        public Arguments arg(double value)
+        {
+            values[add(DOUBLE)] = Double.doubleToRawLongBits(value);
+            return this;
+        }
+
+        private int add(byte kind)
+        {
+            if (count == kinds.length) {
+                final int n = count * 2;
+                final byte[] kinds2 = new byte[n];
+                System.arraycopy(kinds, 0, kinds2, 0, count);
+                kinds = kinds2;
+                final long[] values2 = new long[n];
+                System.arraycopy(values, 0, values2, 0, count);
+                values = values2;
+                if (objects != null) {
+                    final Object[] objects2 = new Object[n];
+                    System.arraycopy(objects, 0, objects2, 0, count);
+                    objects = objects2;
+                }
+            }
+            kinds[count] = kind;
+            return count++;
+        }
+
+        /**
+         * Formats the resource with these arguments.
+         *
+         * @return Formatted message
+         */
+        public String format()
+        {
+            return formatTo(new StringBuilder()).toString();
+        }
+
+        /**
+         * Formats the resource with these arguments, and appends the result
+         * to a {@link StringBuilder}.
+         *
+         * @param sb Buffer to append to
+         * @return The buffer
+         */
+        public StringBuilder formatTo(StringBuilder sb)
+        {
+            if (!ResourceMetrics.isEnabled()) {
+                formatTo0(sb);
+                return sb;
+            }
+            final long start = System.nanoTime();
+            formatTo0(sb);
+            ResourceMetrics.recordFormat(
+                bundle, definition.key, System.nanoTime() - start);
+            return sb;
+        }
+
+        private void formatTo0(StringBuilder sb)
+        {
+            final String message = bundle.getString(definition.key);
+            final CachedFormat cached =
+                definition.getCachedFormat(message, bundle.getLocale());
+            final MessageTemplate template = cached.template(definition);
+            if (template == null) {
+                sb.append(cached.get().format(toArray()));
+                return;
+            }
+            final Scratch s = Scratch.acquire();
+            try {
+                final Format[] formats = cached.formats(s);
+                final Locale locale = cached.format.getLocale();
+                int f = 0;
+                for (MessageTemplate.Segment segment : template.segments) {
+                    if (segment.literal != null) {
+                        sb.append(segment.literal);
+                        continue;
+                    }
+                    final Format format = formats[f++];
+                    final int i = segment.argument;
+                    if (i >= count) {
+                        // As MessageFormat, print the argument reference.
+                        sb.append('{').append(i).append('}');
+                        continue;
+                    }
+                    switch (kinds[i]) {
+                    case LONG:
+                        if (format == null || format instanceof NumberFormat) {
+                            final NumberFormat numberFormat = format == null
+                                ? s.numberFormat(locale)
+                                : (NumberFormat) format;
+                            numberFormat.format(values[i], s.buf, s.pos);
+                            s.flush(sb);
+                        } else {
+                            append(
+                                s, sb, format, Long.valueOf(values[i]), locale);
+                        }
+                        break;
+                    case DOUBLE:
+                        final double d = Double.longBitsToDouble(values[i]);
+                        if (format == null || format instanceof NumberFormat) {
+                            final NumberFormat numberFormat = format == null
+                                ? s.numberFormat(locale)
+                                : (NumberFormat) format;
+                            numberFormat.format(d, s.buf, s.pos);
+                            s.flush(sb);
+                        } else {
+                            append(s, sb, format, Double.valueOf(d), locale);
+                        }
+                        break;
+                    default:
+                        append(s, sb, format, objects[i], locale);
+                    }
+                }
+            } finally {
+                s.release();
+            }
+        }
+
+        /**
+         * Returns the arguments as an array, boxing primitive values.
+         */
+        private Object[] toArray()
+        {
+            final Object[] args = new Object[count];
+            for (int i = 0; i < count; i++) {
+                switch (kinds[i]) {
+                case LONG:
+                    args[i] = Long.valueOf(values[i]);
+                    break;
+                case DOUBLE:
+                    args[i] =
+                        Double.valueOf(Double.longBitsToDouble(values[i]));
+                    break;
+                default:
+                    args[i] = objects[i];
+                }
+            }
+            return args;
         }
     }
 
@@ -296,12 +1198,37 @@ public class ResourceDefinition
 
         public String toString()
         {
+            if (!ResourceMetrics.isEnabled()) {
+                return format();
+            }
+            final long start = System.nanoTime();
+            final String s = format();
+            ResourceMetrics.recordFormat(
+                bundle, definition.key, System.nanoTime() - start);
+            return s;
+        }
+
+        private String format()
+        {
+            if (args == null || args.length == 0) {
+                return definition.constant(bundle);
+            }
             String message = bundle.getString(definition.key);
-            MessageFormat format = new MessageFormat(message);
-            format.setLocale(bundle.getLocale());
+            MessageFormat format =
+                definition.getFormat(message, bundle.getLocale());
             String formattedMessage = format.format(args);
             return formattedMessage;
         }
+
+        public void formatTo(StringBuilder buf)
+        {
+            definition.formatTo(bundle, args, buf);
+        }
+
+        public void formatTo(Appendable out) throws IOException
+        {
+            definition.formatTo(bundle, args, out);
+        }
     }
 }
 
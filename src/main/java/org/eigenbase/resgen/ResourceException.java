@@ -0,0 +1,142 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+/**
+ * Runtime exception whose message is a {@link ResourceInstance}, formatted
+ * the first time it is needed.
+ *
+ * <p>Creating a <code>ResourceException</code> does not format its message;
+ * the exception holds the resource instance, which holds the resource
+ * definition, resource bundle and arguments. The message is formatted the
+ * first time that {@link #getMessage()} or {@link #getLocalizedMessage()} is
+ * called, and remembered after that. If an application catches and handles
+ * the exception without reading its message, the message is never
+ * formatted.
+ *
+ * <p>Because formatting is deferred, arguments should not be modified after
+ * the exception has been created.
+ *
+ * <p>To use this class, or a class derived from it, specify it as the
+ * <code>className</code> of an <code>exception</code> element, or as the
+ * <code>exceptionClassName</code> of the <code>resourceBundle</code>. The
+ * generated <code>newXxx</code> methods call the
+ * {@link #ResourceException(ResourceInstance)} and
+ * {@link #ResourceException(ResourceInstance, Throwable)} constructors, and
+ * {@link #ResourceException(ResourceInstance, Throwable, boolean)} if the
+ * exception is declared without a stack trace. (If
+ * the class is not on the class path when the code is generated, declare
+ * these constructors using <code>factory</code> elements.)
+ *
+ * @author jhyde
+ */
+public class ResourceException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    private transient final ResourceInstance resourceInstance;
+    private volatile String message;
+
+    /**
+     * Creates a ResourceException.
+     *
+     * @param resourceInstance Resource instance
+     */
+    public ResourceException(ResourceInstance resourceInstance)
+    {
+        this(resourceInstance, null);
+    }
+
+    /**
+     * Creates a ResourceException with a cause.
+     *
+     * @param resourceInstance Resource instance
+     * @param cause Cause, or null
+     */
+    public ResourceException(ResourceInstance resourceInstance, Throwable cause)
+    {
+        super(null, cause);
+        this.resourceInstance = resourceInstance;
+    }
+
+    /**
+     * Creates a ResourceException that optionally does not record a stack
+     * trace.
+     *
+     * <p>If <code>writableStackTrace</code> is false, the exception does not
+     * call {@link #fillInStackTrace()}, which is the main cost of creating
+     * an exception, and suppressed exceptions are disabled; the exception
+     * is therefore immutable, and one instance can safely be thrown many
+     * times. Generated code calls this constructor for
+     * <code>exception</code> elements whose <code>stackTrace</code>
+     * attribute is "false".
+     *
+     * @param resourceInstance Resource instance
+     * @param cause Cause, or null
+     * @param writableStackTrace Whether to record a stack trace
+     */
+    public ResourceException(
+        ResourceInstance resourceInstance,
+        Throwable cause,
+        boolean writableStackTrace)
+    {
+        super(null, cause, writableStackTrace, writableStackTrace);
+        this.resourceInstance = resourceInstance;
+    }
+
+    /**
+     * Returns the resource instance which is the message of this exception.
+     * Returns null if this exception has been deserialized.
+     *
+     * @return Resource instance
+     */
+    public ResourceInstance getResourceInstance()
+    {
+        return resourceInstance;
+    }
+
+    public String getMessage()
+    {
+        String message = this.message;
+        if (message == null && resourceInstance != null) {
+            // Benign race: two threads may format the message, but they
+            // get the same result.
+            message = resourceInstance.toString();
+            this.message = message;
+        }
+        return message;
+    }
+
+    public String getLocalizedMessage()
+    {
+        return getMessage();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        // The resource instance is not serializable; send the formatted
+        // message instead.
+        getMessage();
+        out.defaultWriteObject();
+    }
+}
+
+// End ResourceException.java
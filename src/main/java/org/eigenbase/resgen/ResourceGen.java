@@ -17,10 +17,20 @@
 */
 package org.eigenbase.resgen;
 
+import org.apache.tools.ant.BuildException;
 import org.eigenbase.xom.DOMWrapper;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 /**
  * <code>ResourceGen</code> parses an XML file containing error messages, and
@@ -38,16 +48,48 @@ import java.io.IOException;
  * function corresponding to each error message in
  * <code>MyResource_en.xml</code>.</p>
  *
- * <p>See also the ANT Task, {@link ResourceGenTask}.</p>
+ * <p>Options are the same as the attributes of the ANT Task,
+ * {@link ResourceGenTask}; for example, <code>-threads 4</code> generates
+ * up to four files at a time.</p>
  *
  * @author jhyde
  */
 public class ResourceGen
 {
+    /**
+     * Messages written by the include that the current thread is
+     * processing; null if messages are written directly to the output
+     * stream.
+     */
+    private static final ThreadLocal<List<String>> commentBuffer =
+        new ThreadLocal<List<String>>();
+
+    /** Pool on which {@link #runAll} runs tasks; null if tasks are run one
+     * at a time. */
+    private ExecutorService pool;
+
+    /** Record of the files generated by this and previous runs; null if
+     * the task has no manifest file, and files are compared by modification
+     * time. */
+    Manifest manifest;
+
+    private static final String USAGE =
+        "Usage: java org.eigenbase.resgen.ResourceGen [-mode java|c++|all]"
+        + " [-srcdir dir] [-destdir dir] [-resdir dir] [-locales locales]"
+        + " [-style style] [-commentstyle normal|scm-safe] [-force]"
+        + " [-catalog] [-manifest file] [-threads n] xmlFile...";
 
     public static void main(String [] args) throws IOException
     {
-        ResourceGenTask rootArgs = parse(args);
+        final ResourceGenTask rootArgs;
+        try {
+            rootArgs = parse(args);
+        } catch (BuildException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
         new ResourceGen().run(rootArgs);
     }
 
@@ -56,22 +98,37 @@ public class ResourceGen
         ResourceGenTask rootArgs = new ResourceGenTask();
         for (int i = 0; i < args.length; i++) {
             String arg = args[i];
-            if (arg.equals("-mode") && i + 1 < args.length) {
-                rootArgs.setMode(args[++i]);
-            } else if (arg.equals("-srcdir") && i + 1 < args.length) {
-                rootArgs.setSrcdir(new File(args[++i]));
-            } else if (arg.equals("-destdir") && i + 1 < args.length) {
-                rootArgs.setDestdir(new File(args[++i]));
-            } else if (arg.equals("-resdir") && i + 1 < args.length) {
-                rootArgs.setResdir(new File(args[++i]));
-            } else if (arg.equals("-locales") && i + 1 < args.length) {
-                rootArgs.setLocales(args[++i]);
-            } else if (arg.equals("-style") && i + 1 < args.length) {
-                rootArgs.setStyle(args[++i]);
+            if (arg.equals("-mode")) {
+                rootArgs.setMode(getValue(args, ++i));
+            } else if (arg.equals("-srcdir")) {
+                rootArgs.setSrcdir(new File(getValue(args, ++i)));
+            } else if (arg.equals("-destdir")) {
+                rootArgs.setDestdir(new File(getValue(args, ++i)));
+            } else if (arg.equals("-resdir")) {
+                rootArgs.setResdir(new File(getValue(args, ++i)));
+            } else if (arg.equals("-locales")) {
+                rootArgs.setLocales(getValue(args, ++i));
+            } else if (arg.equals("-style")) {
+                rootArgs.setStyle(getValue(args, ++i));
             } else if (arg.equals("-force")) {
                 rootArgs.setForce(true);
+            } else if (arg.equals("-catalog")) {
+                rootArgs.setCatalog(true);
             } else if (arg.equals("-commentstyle")) {
-                rootArgs.setCommentStyle(args[++i]);
+                rootArgs.setCommentStyle(getValue(args, ++i));
+            } else if (arg.equals("-manifest")) {
+                rootArgs.setManifest(new File(getValue(args, ++i)));
+            } else if (arg.equals("-threads")) {
+                final String value = getValue(args, ++i);
+                try {
+                    rootArgs.setThreads(Integer.parseInt(value));
+                } catch (NumberFormatException e) {
+                    throw new BuildException(
+                        "Invalid value '" + value + "' of option -threads;"
+                        + " expected a number");
+                }
+            } else if (arg.startsWith("-")) {
+                throw new BuildException("Unknown option '" + arg + "'");
             } else {
                 ResourceGenTask.Include resourceArgs =
                         new ResourceGenTask.Include();
@@ -80,7 +137,7 @@ public class ResourceGen
             }
         }
         if (rootArgs.getIncludes().length == 0) {
-            throw new java.lang.Error("No input file specified.");
+            throw new BuildException("No input file specified.");
         }
         if (rootArgs.getDestdir() == null) {
             rootArgs.setDestdir(rootArgs.getSrcdir());
@@ -88,11 +145,159 @@ public class ResourceGen
         return rootArgs;
     }
 
+    /**
+     * Returns the value of the option before position <code>i</code> of the
+     * command line.
+     *
+     * @throws BuildException if the option is the last argument
+     */
+    private static String getValue(String[] args, int i)
+    {
+        if (i >= args.length) {
+            throw new BuildException(
+                "Option '" + args[i - 1] + "' requires a value");
+        }
+        return args[i];
+    }
+
     void run(ResourceGenTask rootArgs) throws IOException {
         rootArgs.validate();
         final ResourceGenTask.Include[] includes = rootArgs.getIncludes();
-        for (int i = 0; i < includes.length; i++) {
-            includes[i].process(this);
+        final int threads = rootArgs.getThreadCount();
+        final File manifestFile = rootArgs.getManifestFile();
+        manifest = manifestFile == null ? null : Manifest.load(manifestFile);
+        if (threads > 1) {
+            // The thread that calls runAll also runs tasks, so the pool
+            // needs one thread fewer.
+            pool = Executors.newFixedThreadPool(threads - 1);
+        }
+        try {
+            final List<Runnable> tasks = new ArrayList<Runnable>();
+            for (final ResourceGenTask.Include include : includes) {
+                tasks.add(
+                    new Runnable() {
+                        public void run() {
+                            include.process(ResourceGen.this);
+                        }
+                    });
+            }
+            runAll(tasks);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+            // Record the files generated before any failure.
+            if (manifest != null) {
+                manifest.save();
+            }
+        }
+    }
+
+    /**
+     * Runs a list of tasks, such as processing includes, or generating the
+     * files of an include.
+     *
+     * <p>If there is no thread pool, runs the tasks one at a time, and stops
+     * at the first that fails. Otherwise, runs them concurrently. The
+     * messages of each task are buffered, and printed in the order of the
+     * tasks, so the output is the same as a serial run. Every task runs even
+     * if one fails; then the error of the first task that failed, in the
+     * order of the tasks, is thrown, and the messages of the tasks after it
+     * are discarded, as if they had not run.
+     *
+     * <p>Tasks may call this method recursively; all share the same pool.
+     * While a thread waits for its tasks, it runs those that no pool thread
+     * has started, so it never waits for a task that is queued behind it.
+     *
+     * @param tasks Tasks
+     */
+    void runAll(List<Runnable> tasks)
+    {
+        if (pool == null) {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            return;
+        }
+        final List<FutureTask<Void>> futures = new ArrayList<FutureTask<Void>>();
+        final List<List<String>> buffers = new ArrayList<List<String>>();
+        for (final Runnable task : tasks) {
+            final List<String> buffer = new ArrayList<String>();
+            final FutureTask<Void> future =
+                new FutureTask<Void>(
+                    new Callable<Void>() {
+                        public Void call() {
+                            final List<String> previous = commentBuffer.get();
+                            commentBuffer.set(buffer);
+                            try {
+                                task.run();
+                            } finally {
+                                commentBuffer.set(previous);
+                            }
+                            return null;
+                        }
+                    });
+            futures.add(future);
+            buffers.add(buffer);
+            pool.execute(future);
+        }
+        Throwable failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            final FutureTask<Void> future = futures.get(i);
+            // Does nothing if a pool thread has started the task.
+            future.run();
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                    // Print the messages written before the task failed.
+                    printAll(buffers.get(i));
+                }
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BuildException("Interrupted", e);
+            }
+            if (failure == null) {
+                // The task has finished, so it no longer writes to its
+                // buffer.
+                printAll(buffers.get(i));
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new BuildException(failure);
+        }
+    }
+
+    /**
+     * Runs a task in the current thread, and adds the messages that it
+     * prints, including those of tasks that it runs in parallel, to a list
+     * rather than printing them.
+     *
+     * @param messages List to add messages to
+     * @param task Task
+     */
+    static void captureMessages(List<String> messages, Runnable task)
+    {
+        final List<String> previous = commentBuffer.get();
+        commentBuffer.set(messages);
+        try {
+            task.run();
+        } finally {
+            commentBuffer.set(previous);
+        }
+    }
+
+    private static void printAll(List<String> messages)
+    {
+        for (String message : messages) {
+            log(message);
         }
     }
 
@@ -101,7 +306,22 @@ public class ResourceGen
      */
     void comment(String message)
     {
-        System.out.println(message);
+        log(message);
+    }
+
+    /**
+     * Prints a message to the output stream, or, if the current thread is
+     * running a task in parallel with others (see {@link #runAll}), adds it
+     * to the messages of that task.
+     */
+    static void log(String message)
+    {
+        final List<String> buffer = commentBuffer.get();
+        if (buffer != null) {
+            buffer.add(message);
+        } else {
+            System.out.println(message);
+        }
     }
 
     /**
@@ -118,19 +338,85 @@ public class ResourceGen
         }
     }
 
+    /**
+     * Returns the parsed message of a resource. The message is parsed the
+     * first time, and the result is held by the resource, so the Java, C++
+     * and properties generators share it.
+     *
+     * @param resource Resource
+     * @return Parsed message
+     * @throws BuildException if the resource has no message, or if its
+     *   message is invalid
+     */
+    static MessageTemplate getTemplate(ResourceDef.Resource resource)
+    {
+        MessageTemplate template = resource.template;
+        if (template == null) {
+            if (resource.text == null || resource.text.cdata == null) {
+                throw new BuildException(
+                    "Resource '" + resource.name + "' has no message");
+            }
+            try {
+                template = MessageTemplate.parse(resource.text.cdata);
+            } catch (IllegalArgumentException e) {
+                throw new BuildException(
+                    "Resource '" + resource.name + "' has invalid message: "
+                    + e.getMessage());
+            }
+            // If another thread is parsing the same message, it will create
+            // an equivalent template; templates are immutable.
+            resource.template = template;
+        }
+        return template;
+    }
+
+    /**
+     * Creates an index of the keys of a resource bundle, or returns null if
+     * the keys cannot be indexed (see {@link KeyIndex#create}). The
+     * generated Java class and the binary catalogs of a bundle must use the
+     * same index; the result is deterministic, so they do.
+     */
+    static KeyIndex createKeyIndex(ResourceDef.ResourceBundle resourceList)
+    {
+        final String[] keys = new String[resourceList.resources.length];
+        final Set<String> keySet = new HashSet<String>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = resourceList.resources[i].name;
+            if (!keySet.add(keys[i])) {
+                throw new BuildException(
+                    "Resource '" + keys[i] + "' is defined more than once");
+            }
+        }
+        try {
+            return KeyIndex.create(keys);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**
      * Returns any comment relating to the message.
+     *
+     * <p>The comment is read from the DOM the first time, and the result is
+     * held by the resource. The DOM is not safe for use by several threads,
+     * so {@link XmlFileTask} calls this method for every resource before it
+     * generates files in parallel.
      */
     static String getComment(ResourceDef.Resource resource)
     {
-        DOMWrapper[] children = resource.getDef().getChildren();
-        for (int i = 0; i < children.length; i++) {
-            DOMWrapper child = children[i];
-            if (child.getType() == DOMWrapper.COMMENT) {
-                return child.getText(); // first comment only
+        if (!resource.commentDone) {
+            resource.comment = null; // no comment
+            DOMWrapper[] children = resource.getDef().getChildren();
+            for (int i = 0; i < children.length; i++) {
+                DOMWrapper child = children[i];
+                if (child.getType() == DOMWrapper.COMMENT) {
+                    resource.comment = child.getText(); // first comment only
+                    break;
+                }
             }
+            resource.commentDone = true;
         }
-        return null; // no comment
+        return resource.comment;
     }
 
     FileTask createXmlTask(
@@ -56,7 +56,12 @@ import java.util.ArrayList;
  *source/happy/BirthdayResource.h
  *source/happy/BirthdayResource.cpp</pre></blockquote>
  *
- * <p>Files are not generated if there is an existing newer one.</p>
+ * <p>Files are not generated if they are up to date. By default, a file is
+ * up to date if it is newer than the file it is generated from. If a
+ * manifest file is specified (see <a href="#manifest">manifest</a>), it
+ * records, for each generated file, a hash of the inputs and options it was
+ * generated from and a hash of its content, and a file is up to date if
+ * neither has changed since it was generated.</p>
  *
  * <p>The output path is determined by 'destdir' (or 'resdir' for .properties
  * files) and the package-name (derived from the XML file's path relative to
@@ -113,11 +118,16 @@ import java.util.ArrayList;
  *
  * <tr>
  * <td><a name="style">style</a></td>
- * <td>Code-generation style. Values are "dynamic" or "functor".
+ * <td>Code-generation style. Values are "dynamic", "functor" or
+ *     "compiled".
  *     Default is "dynamic": generate several non-static methods for each
  *     resource.
  *     In the "functor" style, there is one member per resource, which has
- *     several methods.</td>
+ *     several methods.
+ *     The "compiled" style generates the same methods as "dynamic", but
+ *     each getter formats the base message using code generated at build
+ *     time, and only uses {@link java.text.MessageFormat} if a locale
+ *     overrides the message.</td>
  * <td>No</td>
  * </tr>
  *
@@ -129,6 +139,16 @@ import java.util.ArrayList;
  * </tr>
  *
  * <tr>
+ * <td><a name="catalog">catalog</a></td>
+ * <td>Whether to generate a binary catalog, such as
+ *     <code>MyResource_fr_FR.catalog</code>, next to each
+ *     <code>.properties</code> file. A {@link ShadowResourceBundle} reads
+ *     the catalog, if present, instead of parsing the properties file.
+ *     Default is false.</td>
+ * <td>No</td>
+ * </tr>
+ *
+ * <tr>
  * <td><a name="commentstyle">commentstyle</a></td>
  * <td>Generated comment style.  Values are "normal" and "scm-safe".  The
  *     default is "normal": generates comments that indicate the source file's
@@ -138,6 +158,28 @@ import java.util.ArrayList;
  *     the source file's path and states that the file was generated and should
  *     not be edited manually.</td>
  * <td>No</td>
+ * </tr>
+ *
+ * <tr>
+ * <td><a name="manifest">manifest</a></td>
+ * <td>File in which to record what each generated file was generated from,
+ *     and by which to decide whether it is up to date. Put it in a build
+ *     directory, not in a source tree. If not specified, no manifest is
+ *     written, and files are compared by modification time.</td>
+ * <td>No</td>
+ * </tr>
+ *
+ * <tr>
+ * <td><a name="threads">threads</a></td>
+ * <td>Number of threads with which to process include files, and to
+ *     generate the files of each include (the Java class and properties
+ *     file of each locale, and the C++ files) at the same time. The default
+ *     is 1: generate one file at a time. 0 means the number of available
+ *     processors. Messages are printed, and the first error is reported, in
+ *     the same order as a serial run. Includes processed in parallel must
+ *     not generate the same files.</td>
+ * <td>No</td>
+ * </tr>
  * </table>
  *
  * Nested element: &lt;{@link Include include}&gt;.
@@ -154,7 +196,10 @@ public class ResourceGenTask extends Task
     int style = STYLE_DYNAMIC;
     String locales;
     boolean force;
+    boolean catalog;
     int commentStyle = COMMENT_STYLE_NORMAL;
+    int threads = 1;
+    File manifest;
 
     private static final int MODE_UNKNOWN = -1;
     private static final int MODE_JAVA = 1;
@@ -163,6 +208,7 @@ public class ResourceGenTask extends Task
 
     public static final int STYLE_DYNAMIC = 1;
     public static final int STYLE_FUNCTOR = 2;
+    public static final int STYLE_COMPILED = 3;
 
     public static final int COMMENT_STYLE_NORMAL = 1;
     public static final int COMMENT_STYLE_SCM_SAFE = 2;
@@ -206,6 +252,9 @@ public class ResourceGenTask extends Task
         if (res == null) {
             res = dest;
         }
+        if (threads < 0) {
+            throw new BuildException("'threads' must not be negative");
+        }
         final Include[] args = getIncludes();
         for (int i = 0; i < args.length; i++) {
             args[i].validate();
@@ -284,6 +333,8 @@ public class ResourceGenTask extends Task
             this.style = STYLE_DYNAMIC;
         } else if (style.equals("functor")) {
             this.style = STYLE_FUNCTOR;
+        } else if (style.equals("compiled")) {
+            this.style = STYLE_COMPILED;
         } else {
             throw new BuildException("Invalid style '" + style + "'");
         }
@@ -305,6 +356,14 @@ public class ResourceGenTask extends Task
         this.force = force;
     }
 
+    /** Sets <a href="#catalog">catalog</a>.
+     *
+     * @param catalog Whether to generate binary catalogs */
+    public void setCatalog(boolean catalog)
+    {
+        this.catalog = catalog;
+    }
+
     /** Sets <a href="#commentstyle">commentstyle</a>.
      *
      * @param commentStyle Comment style */
@@ -320,6 +379,46 @@ public class ResourceGenTask extends Task
         }
     }
 
+    /** Sets <a href="#threads">threads</a>.
+     *
+     * @param threads Number of threads with which to generate files */
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the number of threads with which to generate files; if
+     * <a href="#threads">threads</a> is 0, the number of available
+     * processors.
+     *
+     * @return Number of threads
+     */
+    int getThreadCount()
+    {
+        return threads == 0
+            ? Runtime.getRuntime().availableProcessors()
+            : threads;
+    }
+
+    /** Sets <a href="#manifest">manifest</a>.
+     *
+     * @param manifest Manifest file */
+    public void setManifest(File manifest)
+    {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Returns the manifest file, or null if none was specified.
+     *
+     * @return Manifest file, or null
+     */
+    File getManifestFile()
+    {
+        return manifest;
+    }
+
     /**
      * <code>Include</code> implements &lt;include&gt; element nested
      * within a &lt;resgen&gt; task (see {@link ResourceGenTask}).
@@ -17,6 +17,8 @@
 */
 package org.eigenbase.resgen;
 
+import java.io.IOException;
+
 /**
  * A <code>ResourceInstance</code> is an occurrence of a
  * {@link ResourceDefinition} with a set of arguments.
@@ -25,6 +27,35 @@ package org.eigenbase.resgen;
  */
 public interface ResourceInstance {
     public String toString();
+
+    /**
+     * Formats this resource instance, and appends the result to a
+     * {@link StringBuilder}.
+     *
+     * <p>The result is the same as {@link #toString()}. The default
+     * implementation appends {@link #toString()}, so that existing
+     * implementations of this interface need not change; implementations
+     * such as {@link ResourceDefinition}'s override it to format directly
+     * into the buffer, without creating an intermediate {@link String}.
+     *
+     * @param buf Buffer to append to
+     */
+    default void formatTo(StringBuilder buf) {
+        buf.append(toString());
+    }
+
+    /**
+     * Formats this resource instance, and appends the result to an
+     * {@link Appendable}, such as a {@link java.io.Writer}.
+     *
+     * <p>The default implementation appends {@link #toString()}.
+     *
+     * @param out Appendable to append to
+     * @throws IOException if <code>out</code> throws
+     */
+    default void formatTo(Appendable out) throws IOException {
+        out.append(toString());
+    }
 }
 
 // End ResourceInstance.java
@@ -0,0 +1,349 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each resource is used, and how long it takes to format.
+ *
+ * <p>Metrics are disabled by default. Enable them by calling
+ * {@link #setEnabled(boolean)}, or by setting the system property
+ * "org.eigenbase.resgen.metrics" to "true". While they are disabled, the
+ * cost is one read of a volatile field per message.
+ *
+ * <p>For each key of each resource bundle, the following are counted:
+ * <ul>
+ * <li>the number of times the message was formatted, by
+ *     {@link ResourceDefinition} or by the fast path of a class generated in
+ *     the "compiled" style;</li>
+ * <li>the total time spent formatting with {@link java.text.MessageFormat},
+ *     in nanoseconds (the fast path of the "compiled" style is counted but
+ *     not timed);</li>
+ * <li>the number of times a {@link ShadowResourceBundle} found the message
+ *     not in the table of its own locale but in that of a parent locale
+ *     (a bundle whose tables are flattened never falls back);</li>
+ * <li>the number of times a {@link ShadowResourceBundle} did not find the
+ *     key.</li>
+ * </ul>
+ *
+ * <p>Counters are {@link LongAdder}s, so threads that use the same resource
+ * do not contend. Call {@link #snapshot()} to read them; for example, to find
+ * the resources that take the most time to format, and which are therefore
+ * candidates for the "compiled" style.
+ *
+ * @author jhyde
+ */
+public final class ResourceMetrics
+{
+    private static volatile boolean enabled =
+        Boolean.getBoolean("org.eigenbase.resgen.metrics");
+
+    /** Counters, by bundle name and then by key. */
+    private static final ConcurrentMap<String, ConcurrentMap<String, Counters>>
+        counters =
+        new ConcurrentHashMap<String, ConcurrentMap<String, Counters>>();
+
+    /** Names of resource bundle classes; see {@link #bundleName}. */
+    private static final ClassValue<String> bundleNames =
+        new ClassValue<String>() {
+            protected String computeValue(Class<?> type)
+            {
+                // The base name of a bundle is the name of the class whose
+                // parent is ShadowResourceBundle; for example,
+                // "happy.BirthdayResource" for "happy.BirthdayResource_fr_FR".
+                Class<?> clazz = type;
+                while (clazz.getSuperclass() != null
+                    && clazz.getSuperclass() != ShadowResourceBundle.class
+                    && ResourceBundle.class.isAssignableFrom(
+                        clazz.getSuperclass()))
+                {
+                    clazz = clazz.getSuperclass();
+                }
+                return clazz.getName();
+            }
+        };
+
+    private ResourceMetrics()
+    {
+    }
+
+    /**
+     * Returns whether metrics are being collected.
+     *
+     * @return Whether metrics are enabled
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops collecting metrics. Stopping does not discard the
+     * metrics collected so far; see {@link #reset()}.
+     *
+     * @param enabled Whether to collect metrics
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        ResourceMetrics.enabled = enabled;
+    }
+
+    /**
+     * Discards all metrics.
+     */
+    public static void reset()
+    {
+        counters.clear();
+    }
+
+    /**
+     * Returns the current value of the metrics of each resource that has been
+     * used since metrics were enabled, the most formatted first.
+     *
+     * <p>Counters continue to change while the snapshot is being taken, so
+     * the values of different resources may not be from exactly the same
+     * moment.
+     *
+     * @return List of metrics, one per resource
+     */
+    public static List<KeyMetrics> snapshot()
+    {
+        final List<KeyMetrics> list = new ArrayList<KeyMetrics>();
+        for (Map.Entry<String, ConcurrentMap<String, Counters>> bundleEntry
+            : counters.entrySet())
+        {
+            for (Map.Entry<String, Counters> entry
+                : bundleEntry.getValue().entrySet())
+            {
+                final Counters c = entry.getValue();
+                list.add(
+                    new KeyMetrics(
+                        bundleEntry.getKey(),
+                        entry.getKey(),
+                        c.formatCount.sum(),
+                        c.formatNanos.sum(),
+                        c.fallbackCount.sum(),
+                        c.missingCount.sum()));
+            }
+        }
+        Collections.sort(
+            list,
+            new Comparator<KeyMetrics>() {
+                public int compare(KeyMetrics o1, KeyMetrics o2)
+                {
+                    return Long.compare(
+                        o2.getFormatCount(), o1.getFormatCount());
+                }
+            });
+        return list;
+    }
+
+    /**
+     * Records that a message has been formatted. Callers should check
+     * {@link #isEnabled()} first.
+     *
+     * @param bundle Resource bundle
+     * @param key Key
+     * @param nanos Time taken to format, in nanoseconds, or 0 if not timed
+     */
+    static void recordFormat(ResourceBundle bundle, String key, long nanos)
+    {
+        final Counters c = counters(bundle, key);
+        c.formatCount.increment();
+        if (nanos > 0) {
+            c.formatNanos.add(nanos);
+        }
+    }
+
+    /**
+     * Records that a message was found in the table of a parent locale.
+     *
+     * @param bundle Resource bundle
+     * @param key Key
+     */
+    static void recordFallback(ResourceBundle bundle, String key)
+    {
+        counters(bundle, key).fallbackCount.increment();
+    }
+
+    /**
+     * Records that a key was not found.
+     *
+     * @param bundle Resource bundle
+     * @param key Key
+     */
+    static void recordMissing(ResourceBundle bundle, String key)
+    {
+        counters(bundle, key).missingCount.increment();
+    }
+
+    private static Counters counters(ResourceBundle bundle, String key)
+    {
+        final String bundleName = bundleName(bundle);
+        ConcurrentMap<String, Counters> map = counters.get(bundleName);
+        if (map == null) {
+            map = new ConcurrentHashMap<String, Counters>();
+            final ConcurrentMap<String, Counters> previous =
+                counters.putIfAbsent(bundleName, map);
+            if (previous != null) {
+                map = previous;
+            }
+        }
+        Counters c = map.get(key);
+        if (c == null) {
+            c = new Counters();
+            final Counters previous = map.putIfAbsent(key, c);
+            if (previous != null) {
+                c = previous;
+            }
+        }
+        return c;
+    }
+
+    private static String bundleName(ResourceBundle bundle)
+    {
+        if (bundle instanceof ShadowResourceBundle) {
+            return bundleNames.get(bundle.getClass());
+        }
+        final String baseName = bundle.getBaseBundleName();
+        return baseName != null ? baseName : bundle.getClass().getName();
+    }
+
+    /**
+     * Counters for one key.
+     */
+    private static class Counters
+    {
+        final LongAdder formatCount = new LongAdder();
+        final LongAdder formatNanos = new LongAdder();
+        final LongAdder fallbackCount = new LongAdder();
+        final LongAdder missingCount = new LongAdder();
+    }
+
+    /**
+     * Metrics of one resource, as returned by {@link #snapshot()}.
+     */
+    public static class KeyMetrics
+    {
+        private final String bundleName;
+        private final String key;
+        private final long formatCount;
+        private final long formatNanos;
+        private final long fallbackCount;
+        private final long missingCount;
+
+        KeyMetrics(
+            String bundleName,
+            String key,
+            long formatCount,
+            long formatNanos,
+            long fallbackCount,
+            long missingCount)
+        {
+            this.bundleName = bundleName;
+            this.key = key;
+            this.formatCount = formatCount;
+            this.formatNanos = formatNanos;
+            this.fallbackCount = fallbackCount;
+            this.missingCount = missingCount;
+        }
+
+        /**
+         * Returns the base name of the resource bundle; for example,
+         * "happy.BirthdayResource".
+         *
+         * @return Bundle name
+         */
+        public String getBundleName()
+        {
+            return bundleName;
+        }
+
+        /**
+         * Returns the key of the resource.
+         *
+         * @return Key
+         */
+        public String getKey()
+        {
+            return key;
+        }
+
+        /**
+         * Returns the number of times the message was formatted.
+         *
+         * @return Number of formats
+         */
+        public long getFormatCount()
+        {
+            return formatCount;
+        }
+
+        /**
+         * Returns the total time spent formatting the message with
+         * {@link java.text.MessageFormat}, in nanoseconds.
+         *
+         * @return Formatting time
+         */
+        public long getFormatNanos()
+        {
+            return formatNanos;
+        }
+
+        /**
+         * Returns the number of times the message was found in the table of a
+         * parent locale.
+         *
+         * @return Number of fallbacks
+         */
+        public long getFallbackCount()
+        {
+            return fallbackCount;
+        }
+
+        /**
+         * Returns the number of times the key was not found.
+         *
+         * @return Number of misses
+         */
+        public long getMissingCount()
+        {
+            return missingCount;
+        }
+
+        public String toString()
+        {
+            return bundleName + "." + key
+                + " {formats=" + formatCount
+                + ", nanos=" + formatNanos
+                + ", fallbacks=" + fallbackCount
+                + ", missing=" + missingCount + "}";
+        }
+    }
+}
+
+// End ResourceMetrics.java
@@ -0,0 +1,279 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+*/
+package org.eigenbase.resgen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.PropertyResourceBundle;
+
+/**
+ * Messages read from one <code>.properties</code> file.
+ *
+ * <p>A {@link ShadowResourceBundle} holds a table for its own properties
+ * file and for the properties file of each parent locale. How the table
+ * stores its messages depends upon the storage mode; see
+ * {@link ShadowResourceBundle#STORAGE_PROPERTIES} and
+ * {@link ShadowResourceBundle#STORAGE_COMPACT}.
+ *
+ * <p>If the bundle has a {@link KeyIndex}, the table also stores its messages
+ * by ordinal, and {@link #get(int)} finds a message without hashing or
+ * comparing the key again.
+ *
+ * @author jhyde
+ */
+abstract class ResourceTable
+{
+    /**
+     * Returns the message for a given key, or null if this table does not
+     * contain the key.
+     *
+     * @param key Key
+     * @return Message, or null
+     */
+    abstract String get(String key);
+
+    /**
+     * Returns the message for the key with a given ordinal in this table's
+     * {@link KeyIndex}, or null if this table does not contain the key.
+     *
+     * @param ordinal Ordinal of key
+     * @return Message, or null
+     * @throws UnsupportedOperationException if this table has no key index
+     */
+    abstract String get(int ordinal);
+
+    /**
+     * Returns the keys in this table.
+     *
+     * @return Collection of keys
+     */
+    abstract Collection<String> keys();
+
+    /**
+     * Reads a table from a stream in <code>.properties</code> format.
+     *
+     * @param stream Input stream
+     * @param storage Storage mode, for example
+     *   {@link ShadowResourceBundle#STORAGE_COMPACT}
+     * @param keyIndex Key index, or null
+     * @return Table
+     * @throws IOException on error
+     */
+    static ResourceTable load(
+        InputStream stream,
+        int storage,
+        KeyIndex keyIndex)
+        throws IOException
+    {
+        switch (storage) {
+        case ShadowResourceBundle.STORAGE_PROPERTIES:
+            if (keyIndex != null) {
+                return ArrayTable.load(stream, keyIndex);
+            }
+            return new PropertiesTable(new PropertyResourceBundle(stream));
+        case ShadowResourceBundle.STORAGE_COMPACT:
+            return CompactResourceTable.load(stream, keyIndex);
+        default:
+            throw new AssertionError("unexpected storage " + storage);
+        }
+    }
+
+    /**
+     * Merges the tables of a bundle and its parent locales into a single
+     * table. If a key occurs in more than one table, the message of the
+     * earliest table wins.
+     *
+     * @param tables Tables, most specific locale first
+     * @param storage Storage mode
+     * @param keyIndex Key index, or null
+     * @return Merged table
+     */
+    static ResourceTable flatten(
+        ResourceTable[] tables,
+        int storage,
+        KeyIndex keyIndex)
+    {
+        final Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int i = tables.length - 1; i >= 0; i--) {
+            for (String key : tables[i].keys()) {
+                map.put(key, tables[i].get(key));
+            }
+        }
+        switch (storage) {
+        case ShadowResourceBundle.STORAGE_PROPERTIES:
+            if (keyIndex != null) {
+                return ArrayTable.create(map, keyIndex);
+            }
+            return new MapTable(new HashMap<String, String>(map));
+        case ShadowResourceBundle.STORAGE_COMPACT:
+            return CompactResourceTable.create(
+                map.keySet().toArray(new String[map.size()]),
+                map.values().toArray(new String[map.size()]),
+                keyIndex);
+        default:
+            throw new AssertionError("unexpected storage " + storage);
+        }
+    }
+
+    /**
+     * Table backed by a {@link PropertyResourceBundle}, which holds each
+     * message as a {@link String} in a hash map.
+     */
+    static class PropertiesTable extends ResourceTable
+    {
+        private final PropertyResourceBundle bundle;
+
+        PropertiesTable(PropertyResourceBundle bundle)
+        {
+            this.bundle = bundle;
+        }
+
+        String get(String key)
+        {
+            return (String) bundle.handleGetObject(key);
+        }
+
+        String get(int ordinal)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        Collection<String> keys()
+        {
+            return Collections.list(bundle.getKeys());
+        }
+    }
+
+    /**
+     * Table which holds its messages in a hash map.
+     */
+    static class MapTable extends ResourceTable
+    {
+        private final Map<String, String> map;
+
+        MapTable(Map<String, String> map)
+        {
+            this.map = map;
+        }
+
+        String get(String key)
+        {
+            return map.get(key);
+        }
+
+        String get(int ordinal)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        Collection<String> keys()
+        {
+            return map.keySet();
+        }
+    }
+
+    /**
+     * Table which holds its messages in an array indexed by the ordinals of a
+     * {@link KeyIndex}. Keys which are not in the index, if any, are held in a
+     * hash map.
+     */
+    static class ArrayTable extends ResourceTable
+    {
+        private final KeyIndex keyIndex;
+        private final String[] values;
+        private final Map<String, String> extras;
+
+        private ArrayTable(
+            KeyIndex keyIndex,
+            String[] values,
+            Map<String, String> extras)
+        {
+            this.keyIndex = keyIndex;
+            this.values = values;
+            this.extras = extras;
+        }
+
+        static ArrayTable load(InputStream stream, KeyIndex keyIndex)
+            throws IOException
+        {
+            final Properties properties = new Properties();
+            properties.load(stream);
+            final Map<String, String> map = new HashMap<String, String>();
+            for (String key : properties.stringPropertyNames()) {
+                map.put(key, properties.getProperty(key));
+            }
+            return create(map, keyIndex);
+        }
+
+        static ArrayTable create(Map<String, String> map, KeyIndex keyIndex)
+        {
+            final String[] values = new String[keyIndex.size()];
+            Map<String, String> extras = Collections.emptyMap();
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                final String key = entry.getKey();
+                final String value = entry.getValue();
+                final int ordinal = keyIndex.indexOf(key);
+                if (ordinal >= 0) {
+                    values[ordinal] = value;
+                } else {
+                    if (extras.isEmpty()) {
+                        extras = new HashMap<String, String>();
+                    }
+                    extras.put(key, value);
+                }
+            }
+            return new ArrayTable(keyIndex, values, extras);
+        }
+
+        String get(String key)
+        {
+            final int ordinal = keyIndex.indexOf(key);
+            if (ordinal >= 0) {
+                return values[ordinal];
+            }
+            return extras.get(key);
+        }
+
+        String get(int ordinal)
+        {
+            return values[ordinal];
+        }
+
+        Collection<String> keys()
+        {
+            final List<String> keys = new ArrayList<String>();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    keys.add(keyIndex.getKey(i));
+                }
+            }
+            keys.addAll(extras.keySet());
+            return keys;
+        }
+    }
+}
+
+// End ResourceTable.java
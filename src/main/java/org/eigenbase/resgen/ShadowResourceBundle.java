@@ -17,9 +17,26 @@
 */
 package org.eigenbase.resgen;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 /**
  * <code>ShadowResourceBundle</code> is an abstract base class for
@@ -50,10 +67,86 @@ import java.util.*;
  * load the properties file based upon the name of the class.
  */
 public abstract class ShadowResourceBundle extends ResourceBundle {
-    private PropertyResourceBundle bundle;
-    private static final ThreadLocal mapThreadToLocale = new ThreadLocal();
+    /** Tables of messages, one per properties file, most specific locale
+     * first. Replaced, never modified, when the bundle is reloaded. */
+    private volatile ResourceTable[] tables;
+    /** Formatted messages of resources that have no arguments, by key
+     * ordinal, or null if this bundle has no key index; see
+     * {@link #getConstant(String)}. Replaced, after {@link #tables}, when
+     * the bundle is reloaded. */
+    private volatile String[] constants;
+    /** Index of the keys of this bundle, or null. */
+    private final KeyIndex keyIndex;
+    /** Storage mode. */
+    private final int storage;
+    /** Whether to merge the tables of parent locales into one table. */
+    private final boolean flattened;
+    /** Files from which {@link #tables} were read, if they were read from
+     * the file system, and their modification times. */
+    private volatile FileStamp[] stamps;
+    /** Modification times of the files when they were last found to have
+     * changed, or null; see {@link #isStale(boolean)}. */
+    private FileStamp[] pendingStamps;
+    /** Tables of messages, by the class whose properties file they were
+     * read from; see {@link #getTable}. */
+    private static final Map<Class<?>, SharedTable> sharedTables =
+        new WeakHashMap<Class<?>, SharedTable>();
+    private static final ThreadLocal<Locale> mapThreadToLocale =
+        new ThreadLocal<Locale>();
+    /** Whether any thread has called {@link #setThreadLocale} with a
+     * locale. Until then, {@link #mapThreadToLocale} is not read, so that
+     * threads do not create thread-local maps merely by asking for their
+     * locale. */
+    private static volatile boolean threadLocaleSet;
+    /** Locales of threads that are running a task in a scope created by
+     * {@link #runWithLocale} or {@link #callWithLocale}, or
+     * {@link #NO_LOCALE} if the scope has no locale. A thread's entry is
+     * removed when it leaves its outermost scope. */
+    private static final ConcurrentMap<Thread, Object> scopedLocales =
+        new ConcurrentHashMap<Thread, Object>();
+    /** Value in {@link #scopedLocales} of a scope whose locale is the
+     * default locale. */
+    private static final Object NO_LOCALE = new Object();
     protected static final Object[] emptyObjectArray = new Object[0];
 
+    /**
+     * Storage mode in which each properties file is held in a
+     * {@link PropertyResourceBundle}. This is the default.
+     */
+    public static final int STORAGE_PROPERTIES = 0;
+
+    /**
+     * Storage mode in which the messages of each properties file are packed
+     * into a single byte array, and are converted to strings only when they
+     * are used. Use this mode to reduce the memory used by large resource
+     * bundles.
+     */
+    public static final int STORAGE_COMPACT = 1;
+
+    private static volatile int defaultStorage =
+        parseStorage(
+            System.getProperty("org.eigenbase.resgen.storage", "properties"));
+
+    private static volatile boolean defaultFlattened =
+        Boolean.getBoolean("org.eigenbase.resgen.flatten");
+
+    static {
+        final String reload =
+            System.getProperty("org.eigenbase.resgen.reload");
+        if (reload != null) {
+            try {
+                setReloadInterval(Long.parseLong(reload.trim()));
+            } catch (IllegalArgumentException e) {
+                // Includes NumberFormatException. A bad value must not make
+                // every resource bundle class fail to initialize.
+                System.err.println(
+                    "WARNING: Ignoring invalid value '" + reload
+                    + "' of property org.eigenbase.resgen.reload; reloading"
+                    + " is disabled");
+            }
+        }
+    }
+
     /**
      * Creates a <code>ShadowResourceBundle</code>, and reads resources from
      * a <code>.properties</code> file with the same name as the current class.
@@ -62,19 +155,49 @@ public abstract class ShadowResourceBundle extends ResourceBundle {
      * <code>foo/MyResource_en.properties</code>, then
      * <code>foo/MyResource.properties</code>.
      *
+     * <p>If there is a binary catalog with the same name, such as
+     * <code>foo/MyResource_en_US.catalog</code>, reads it instead of the
+     * <code>.properties</code> file. (See the <code>catalog</code> attribute
+     * of {@link ResourceGenTask}.)
+     *
      * @throws IOException on error
      */
     protected ShadowResourceBundle() throws IOException {
         super();
-        Class clazz = getClass();
-        InputStream stream = openPropertiesFile(clazz);
-        if (stream == null) {
+        storage = getStorage();
+        keyIndex = getKeyIndex();
+        flattened = isFlattened();
+        final List<FileStamp> stampList = new ArrayList<FileStamp>();
+        final boolean reloadable = BundleReloader.isEnabled();
+        tables = loadTables(stampList, reloadable);
+        constants = keyIndex == null ? null : new String[keyIndex.size()];
+        stamps = stampList.toArray(new FileStamp[stampList.size()]);
+        if (reloadable && stamps.length > 0) {
+            BundleReloader.register(this);
+        }
+    }
+
+    /**
+     * Loads the tables of messages for this class and its parent locales,
+     * and merges them if this bundle is flattened. Adds the files that were
+     * read, if any, to <code>stampList</code>.
+     *
+     * <p>If <code>checkFiles</code> is true, does not use a shared table
+     * whose files have changed since it was loaded; see {@link #getTable}.
+     */
+    private ResourceTable[] loadTables(
+        List<FileStamp> stampList,
+        boolean checkFiles)
+        throws IOException
+    {
+        final List<ResourceTable> tableList = new ArrayList<ResourceTable>();
+        Class<?> clazz = getClass();
+        ResourceTable table =
+            getTable(clazz, storage, keyIndex, stampList, checkFiles);
+        if (table == null) {
             throw new IOException("could not open properties file for " + getClass());
         }
-        MyPropertyResourceBundle previousBundle =
-                new MyPropertyResourceBundle(stream);
-        bundle = previousBundle;
-        stream.close();
+        tableList.add(table);
         // Now load properties files for parent locales, which we deduce from
         // the names of our super-class, and its super-class.
         while (true) {
@@ -84,58 +207,521 @@ public abstract class ShadowResourceBundle extends ResourceBundle {
                     !ResourceBundle.class.isAssignableFrom(clazz)) {
                 break;
             }
-            stream = openPropertiesFile(clazz);
-            if (stream == null) {
-                continue;
+            table = getTable(clazz, storage, keyIndex, stampList, checkFiles);
+            if (table != null) {
+                tableList.add(table);
             }
-            MyPropertyResourceBundle newBundle =
-                    new MyPropertyResourceBundle(stream);
+        }
+        final ResourceTable[] tables =
+            tableList.toArray(new ResourceTable[tableList.size()]);
+        if (flattened && tables.length > 1) {
+            return new ResourceTable[] {
+                ResourceTable.flatten(tables, storage, keyIndex)
+            };
+        }
+        return tables;
+    }
+
+    /**
+     * Returns the table of messages for a given class, loading it if it has
+     * not been loaded before by a bundle with the same storage mode and key
+     * index, or, if <code>checkFiles</code> is true, if its files have
+     * changed since. Files are checked only while reloading is enabled, so
+     * that creating a bundle does not otherwise read the modification time
+     * of every file.
+     *
+     * <p>Tables are immutable, so a table is shared by all bundles that
+     * need it. For example, <code>MyResource_en_US</code>,
+     * <code>MyResource_fr_FR</code> and <code>MyResource_fr_CA</code> all
+     * use the same table for <code>MyResource.properties</code>, and
+     * <code>MyResource_fr_FR</code> and <code>MyResource_fr_CA</code> share
+     * the table for <code>MyResource_fr.properties</code>. Tables are held
+     * for each class, and therefore for each class loader, and are
+     * discarded when the class is unloaded.
+     */
+    private static ResourceTable getTable(
+        Class<?> clazz,
+        int storage,
+        KeyIndex keyIndex,
+        List<FileStamp> stampList,
+        boolean checkFiles)
+        throws IOException
+    {
+        SharedTable shared;
+        synchronized (sharedTables) {
+            shared = sharedTables.get(clazz);
+        }
+        if (shared == null || !shared.isValid(storage, keyIndex, checkFiles)) {
+            final List<FileStamp> list = new ArrayList<FileStamp>();
+            final ResourceTable table =
+                loadTable(clazz, storage, keyIndex, list);
+            shared =
+                new SharedTable(
+                    table, storage, keyIndex,
+                    list.toArray(new FileStamp[list.size()]));
+            synchronized (sharedTables) {
+                sharedTables.put(clazz, shared);
+            }
+        }
+        stampList.addAll(Arrays.asList(shared.stamps));
+        return shared.table;
+    }
+
+    /**
+     * Loads the table of messages for a given class from its catalog or
+     * properties file, or returns null if it has neither.
+     *
+     * <p>If the catalog and properties file are both files, and the
+     * properties file has been modified since the catalog was generated,
+     * reads the properties file.
+     */
+    private static ResourceTable loadTable(
+        Class<?> clazz,
+        int storage,
+        KeyIndex keyIndex,
+        List<FileStamp> stampList)
+        throws IOException
+    {
+        final URL catalogUrl = findResource(clazz, ".catalog");
+        final URL propertiesUrl = findResource(clazz, ".properties");
+        final File catalogFile = toFile(catalogUrl);
+        final File propertiesFile = toFile(propertiesUrl);
+        if (catalogFile != null) {
+            stampList.add(new FileStamp(catalogFile));
+        }
+        if (propertiesFile != null) {
+            stampList.add(new FileStamp(propertiesFile));
+        }
+        if (catalogUrl != null
+            && !(catalogFile != null
+                 && propertiesFile != null
+                 && propertiesFile.lastModified()
+                    > catalogFile.lastModified()))
+        {
+            final ResourceTable table =
+                CompactResourceTable.read(
+                    readCatalog(catalogUrl, catalogFile), keyIndex);
+            if (table != null) {
+                return table;
+            }
+            // The catalog was generated for a different set of keys. Fall
+            // back to the properties file.
+        }
+        if (propertiesUrl == null) {
+            return null;
+        }
+        final InputStream stream = propertiesUrl.openStream();
+        try {
+            return ResourceTable.load(stream, storage, keyIndex);
+        } finally {
             stream.close();
-            if (previousBundle != null) {
-                previousBundle.setParentTrojan(newBundle);
-            } else {
-                bundle = newBundle;
+        }
+    }
+
+    /**
+     * Converts a URL to a file, or returns null if the URL is null or is not
+     * a file URL.
+     */
+    private static File toFile(URL url) throws IOException {
+        if (url == null || !url.getProtocol().equals("file")) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("invalid URL " + url);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Enables or disables reloading of resource bundles whose files change.
+     *
+     * <p>When reloading is enabled, a background thread checks, every
+     * <code>millis</code> milliseconds, whether the <code>.properties</code>
+     * or <code>.catalog</code> files of any resource bundle have been
+     * modified since they were read. If so, it reads them again and replaces
+     * the bundle's messages in a single step. Threads using the bundle are
+     * not blocked, and see either the old messages or the new messages,
+     * never a mixture. Cached message formats derived from the old messages
+     * are discarded. If a file cannot be read, for example because it is
+     * being written, the bundle keeps its old messages and the file is
+     * checked again later.
+     *
+     * <p>Only files in the file system are checked; bundles loaded from jar
+     * files are never reloaded. Only bundles created while reloading is
+     * enabled are checked, so enable it before the bundles are first used.
+     * Reloading is disabled by default. It can also be enabled by setting
+     * the system property "org.eigenbase.resgen.reload" to an interval in
+     * milliseconds; if the value is not a valid interval, a warning is
+     * printed and reloading remains disabled.
+     *
+     * @param millis Interval between checks, in milliseconds, or 0 to
+     *   disable reloading
+     */
+    public static void setReloadInterval(long millis) {
+        BundleReloader.schedule(millis);
+    }
+
+    /**
+     * Reloads, immediately, every resource bundle whose files have changed.
+     * Unlike {@link #setReloadInterval(long)}, does not start a background
+     * thread. Only bundles created while reloading was enabled are
+     * checked.
+     *
+     * @return Number of resource bundles reloaded
+     */
+    public static int reloadChanged() {
+        return BundleReloader.checkAll(false);
+    }
+
+    /**
+     * Returns whether any of the files from which this bundle was read has
+     * been modified since.
+     *
+     * <p>If <code>settle</code> is true, a modified file is not reported
+     * until it has been unchanged for two consecutive calls. This prevents
+     * the bundle from being reloaded from a file that is still being written.
+     * Called only by {@link BundleReloader}, which serializes calls.
+     */
+    boolean isStale(boolean settle) {
+        final FileStamp[] stamps = this.stamps;
+        final FileStamp[] current = new FileStamp[stamps.length];
+        boolean changed = false;
+        for (int i = 0; i < stamps.length; i++) {
+            current[i] = new FileStamp(stamps[i].file);
+            changed |= !current[i].equals(stamps[i]);
+        }
+        if (!changed) {
+            pendingStamps = null;
+            return false;
+        }
+        if (!settle || Arrays.equals(current, pendingStamps)) {
+            return true;
+        }
+        pendingStamps = current;
+        return false;
+    }
+
+    /**
+     * Reads this bundle's files again, and replaces its messages. If the
+     * files cannot be read, throws, and leaves the bundle unchanged.
+     *
+     * @throws IOException on error
+     */
+    void reload() throws IOException {
+        final List<FileStamp> stampList = new ArrayList<FileStamp>();
+        final ResourceTable[] newTables = loadTables(stampList, true);
+        stamps = stampList.toArray(new FileStamp[stampList.size()]);
+        pendingStamps = null;
+        tables = newTables;
+        if (keyIndex != null) {
+            constants = new String[keyIndex.size()];
+        }
+    }
+
+    /**
+     * Table of messages loaded for a class, and the information needed to
+     * decide whether another bundle can use it.
+     */
+    private static class SharedTable {
+        /** Table, or null if the class has no properties file. */
+        final ResourceTable table;
+        final int storage;
+        final KeyIndex keyIndex;
+        final FileStamp[] stamps;
+
+        SharedTable(
+            ResourceTable table,
+            int storage,
+            KeyIndex keyIndex,
+            FileStamp[] stamps)
+        {
+            this.table = table;
+            this.storage = storage;
+            this.keyIndex = keyIndex;
+            this.stamps = stamps;
+        }
+
+        /**
+         * Returns whether this table can be used by a bundle with a given
+         * storage mode and key index; it cannot if <code>checkFiles</code>
+         * is true and its files have changed since it was loaded.
+         */
+        boolean isValid(int storage, KeyIndex keyIndex, boolean checkFiles) {
+            if (storage != this.storage || keyIndex != this.keyIndex) {
+                return false;
+            }
+            if (!checkFiles) {
+                return true;
             }
-            previousBundle = newBundle;
+            for (FileStamp stamp : stamps) {
+                if (!stamp.equals(new FileStamp(stamp.file))) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
-    static class MyPropertyResourceBundle extends PropertyResourceBundle {
-        public MyPropertyResourceBundle(InputStream stream) throws IOException {
-            super(stream);
+    /**
+     * A file and its modification time when it was read.
+     */
+    private static class FileStamp {
+        final File file;
+        final long lastModified;
+        final long length;
+
+        FileStamp(File file) {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof FileStamp
+                && ((FileStamp) obj).file.equals(file)
+                && ((FileStamp) obj).lastModified == lastModified
+                && ((FileStamp) obj).length == length;
         }
 
-        void setParentTrojan(ResourceBundle parent) {
-            super.setParent(parent);
+        public int hashCode() {
+            return file.hashCode() ^ (int) lastModified;
         }
     }
 
     /**
-     * Opens the properties file corresponding to a given class. The code is
-     * copied from {@link ResourceBundle}.
+     * Reads a catalog into a buffer. If the catalog is a file, maps it into
+     * memory; otherwise, for example if it is in a jar file, reads it with
+     * a single bulk read.
+     */
+    private static ByteBuffer readCatalog(URL url, File file)
+        throws IOException
+    {
+        if (file != null) {
+            final FileInputStream in = new FileInputStream(file);
+            try {
+                final FileChannel channel = in.getChannel();
+                // The mapping remains valid after the channel is closed.
+                return channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                in.close();
+            }
+        }
+        final URLConnection connection = url.openConnection();
+        final int length = connection.getContentLength();
+        final InputStream in = connection.getInputStream();
+        try {
+            if (length >= 0) {
+                final byte[] bytes = new byte[length];
+                new DataInputStream(in).readFully(bytes);
+                return ByteBuffer.wrap(bytes);
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns how this resource bundle stores its messages:
+     * {@link #STORAGE_PROPERTIES} or {@link #STORAGE_COMPACT}.
+     *
+     * <p>The default implementation returns the value set by
+     * {@link #setDefaultStorage(int)}, or by the system property
+     * "org.eigenbase.resgen.storage" (values "properties" and "compact").
+     * A derived class may override this method to choose a storage mode for
+     * itself. The method is called from the constructor, so must not depend
+     * on the state of the derived class.
+     *
+     * @return Storage mode
+     */
+    protected int getStorage() {
+        return defaultStorage;
+    }
+
+    /**
+     * Returns an index of the keys of this resource bundle, or null.
+     *
+     * <p>If there is an index, each table stores its messages in an array,
+     * and {@link #handleGetObject(String)} finds a message by computing the
+     * key's ordinal once, then reading from the array of each table.
+     * Generated resource bundle classes override this method; see
+     * {@link KeyIndex}. Like {@link #getStorage()}, this method is called
+     * from the constructor.
+     *
+     * @return Key index, or null
+     */
+    protected KeyIndex getKeyIndex() {
+        return null;
+    }
+
+    /**
+     * Returns whether this resource bundle merges the messages of its parent
+     * locales into a single table when it is loaded.
+     *
+     * <p>If a bundle is flattened, finding a message takes one lookup, even
+     * if the message is only defined for a parent locale; otherwise the
+     * bundle looks in the table of its own locale, then in the table of each
+     * parent locale in turn. The cost is memory: each flattened bundle has
+     * its own merged table, whereas the table of a parent locale is
+     * otherwise shared by all of the bundles that need it.
+     *
+     * <p>The default implementation returns the value set by
+     * {@link #setDefaultFlattened(boolean)}, or by the system property
+     * "org.eigenbase.resgen.flatten". Like {@link #getStorage()}, this
+     * method is called from the constructor.
+     *
+     * @return Whether this bundle is flattened
+     */
+    protected boolean isFlattened() {
+        return defaultFlattened;
+    }
+
+    /**
+     * Sets whether resource bundles which are created from now on merge the
+     * messages of their parent locales into a single table. The default is
+     * false. Bundles which have already been created are not affected.
+     *
+     * @param flattened Whether to flatten bundles
      */
-    private static InputStream openPropertiesFile(Class clazz) {
+    public static void setDefaultFlattened(boolean flattened) {
+        defaultFlattened = flattened;
+    }
+
+    /**
+     * Sets the storage mode used by resource bundles which are created from
+     * now on. Bundles which have already been created are not affected.
+     *
+     * @param storage Storage mode, {@link #STORAGE_PROPERTIES} or
+     *   {@link #STORAGE_COMPACT}
+     */
+    public static void setDefaultStorage(int storage) {
+        switch (storage) {
+        case STORAGE_PROPERTIES:
+        case STORAGE_COMPACT:
+            defaultStorage = storage;
+            break;
+        default:
+            throw new IllegalArgumentException("invalid storage " + storage);
+        }
+    }
+
+    private static int parseStorage(String storage) {
+        if (storage.equals("compact")) {
+            return STORAGE_COMPACT;
+        } else {
+            return STORAGE_PROPERTIES;
+        }
+    }
+
+    /**
+     * Finds the resource with the same name as a given class and a given
+     * suffix, such as ".catalog". Returns null if not found.
+     */
+    private static URL findResource(Class<?> clazz, String suffix) {
         final ClassLoader loader = clazz.getClassLoader();
-        final String resName = clazz.getName().replace('.', '/') + ".properties";
-        return (InputStream)java.security.AccessController.doPrivileged(
-            new java.security.PrivilegedAction() {
-                public Object run() {
+        final String resName = clazz.getName().replace('.', '/') + suffix;
+        return java.security.AccessController.doPrivileged(
+            new java.security.PrivilegedAction<URL>() {
+                public URL run() {
                     if (loader != null) {
-                        return loader.getResourceAsStream(resName);
+                        return loader.getResource(resName);
                     } else {
-                        return ClassLoader.getSystemResourceAsStream(resName);
+                        return ClassLoader.getSystemResource(resName);
                     }
                 }
             });
     }
 
     public Enumeration getKeys() {
-        return bundle.getKeys();
+        final Set<String> keys = new LinkedHashSet<String>();
+        final ResourceTable[] tables = this.tables;
+        for (ResourceTable table : tables) {
+            keys.addAll(table.keys());
+        }
+        return Collections.enumeration(keys);
     }
 
     protected Object handleGetObject(String key)
             throws MissingResourceException {
-        return bundle.getObject(key);
+        // Read the tables once; the bundle may be reloaded meanwhile.
+        final ResourceTable[] tables = this.tables;
+        if (keyIndex != null) {
+            final int ordinal = keyIndex.indexOf(key);
+            if (ordinal >= 0) {
+                for (int i = 0; i < tables.length; i++) {
+                    final String value = tables[i].get(ordinal);
+                    if (value != null) {
+                        if (i > 0 && ResourceMetrics.isEnabled()) {
+                            ResourceMetrics.recordFallback(this, key);
+                        }
+                        return value;
+                    }
+                }
+                throw missing(key);
+            }
+        }
+        for (int i = 0; i < tables.length; i++) {
+            final String value = tables[i].get(key);
+            if (value != null) {
+                if (i > 0 && ResourceMetrics.isEnabled()) {
+                    ResourceMetrics.recordFallback(this, key);
+                }
+                return value;
+            }
+        }
+        throw missing(key);
+    }
+
+    /**
+     * Returns the formatted message of a resource that has no arguments.
+     *
+     * <p>The message is formatted the first time it is needed (see
+     * {@link ResourceDefinition#formatConstant(String)}), and if this bundle
+     * has a key index, is held until the bundle is reloaded. Subsequent
+     * calls allocate nothing.
+     *
+     * @param key Key
+     * @return Formatted message
+     */
+    String getConstant(String key) {
+        // Read the constants before the tables, so that a message read from
+        // the old tables is never stored in the new constants.
+        final String[] constants = this.constants;
+        if (constants != null) {
+            final int ordinal = keyIndex.indexOf(key);
+            if (ordinal >= 0) {
+                String s = constants[ordinal];
+                if (s == null) {
+                    // Harmless race: another thread may store an equal
+                    // string.
+                    s = ResourceDefinition.formatConstant(getString(key));
+                    constants[ordinal] = s;
+                }
+                return s;
+            }
+        }
+        return ResourceDefinition.formatConstant(getString(key));
+    }
+
+    private MissingResourceException missing(String key) {
+        if (ResourceMetrics.isEnabled()) {
+            ResourceMetrics.recordMissing(this, key);
+        }
+        return new MissingResourceException(
+            "Can't find resource for bundle " + getClass().getName()
+            + ", key " + key,
+            getClass().getName(),
+            key);
     }
 
     /**
@@ -249,6 +835,218 @@ public abstract class ShadowResourceBundle extends ResourceBundle {
         return (ShadowResourceBundle) bundle;
     }
 
+    /**
+     * Loads a resource bundle for several locales in parallel.
+     *
+     * <p>The first request for a resource bundle in a given locale has to
+     * find and load the properties file of that locale and of each of its
+     * parent locales. An application can call this method at startup, so
+     * that its first requests do not wait.
+     *
+     * <p>Each locale is loaded by a task submitted to <code>executor</code>.
+     * If <code>executor</code> is null, this method creates a thread pool
+     * with one thread per processor, and shuts it down when the locales are
+     * loaded. This method returns when all locales are loaded; if any of
+     * them fails, it throws the first failure, after the others have
+     * finished.
+     *
+     * <p>Generated resource bundle classes have a method
+     * <code>preload(Collection, Executor)</code>, which also fills the cache
+     * used by their <code>instance(Locale)</code> method.
+     *
+     * @param baseName Base name of resource bundle
+     * @param loader Class loader, or null to use the system class loader
+     * @param locales Locales to load
+     * @param executor Executor, or null to use a temporary thread pool
+     * @return Time taken to load each locale, in nanoseconds, in the order
+     *   of <code>locales</code>
+     * @throws MissingResourceException if a bundle cannot be found
+     */
+    public static Map<Locale, Long> preload(
+        final String baseName,
+        ClassLoader loader,
+        Collection<Locale> locales,
+        Executor executor)
+    {
+        final ClassLoader classLoader =
+            loader != null ? loader : ClassLoader.getSystemClassLoader();
+        return preload(
+            locales, executor,
+            new LocaleLoader() {
+                public void load(Locale locale) {
+                    ResourceBundle.getBundle(baseName, locale, classLoader);
+                }
+            });
+    }
+
+    private static Map<Locale, Long> preload(
+        Collection<Locale> locales,
+        Executor executor,
+        final LocaleLoader loader)
+    {
+        ExecutorService pool = null;
+        if (executor == null) {
+            pool = Executors.newFixedThreadPool(
+                Math.max(
+                    1,
+                    Math.min(
+                        locales.size(),
+                        Runtime.getRuntime().availableProcessors())));
+            executor = pool;
+        }
+        try {
+            final Map<Locale, FutureTask<Long>> tasks =
+                new LinkedHashMap<Locale, FutureTask<Long>>();
+            for (final Locale locale : locales) {
+                if (tasks.containsKey(locale)) {
+                    continue;
+                }
+                final FutureTask<Long> task =
+                    new FutureTask<Long>(
+                        new Callable<Long>() {
+                            public Long call() {
+                                final long start = System.nanoTime();
+                                loader.load(locale);
+                                return System.nanoTime() - start;
+                            }
+                        });
+                tasks.put(locale, task);
+                executor.execute(task);
+            }
+            final Map<Locale, Long> times = new LinkedHashMap<Locale, Long>();
+            Throwable failure = null;
+            for (Map.Entry<Locale, FutureTask<Long>> entry : tasks.entrySet()) {
+                try {
+                    times.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(
+                        "interrupted while preloading " + entry.getKey(), e);
+                }
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new RuntimeException(failure);
+            }
+            return times;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Loads a resource bundle for a locale; used by
+     * {@link ShadowResourceBundle#preload}.
+     */
+    private interface LocaleLoader {
+        void load(Locale locale);
+    }
+
+    /**
+     * Cache of the instances of a resource bundle class, one per locale.
+     *
+     * <p>Looking up a locale that has been seen before reads a concurrent
+     * map, and neither locks nor allocates. The first lookup for a locale
+     * calls {@link ResourceBundle#getBundle(String, Locale, ClassLoader)}
+     * using the class's own class loader; if two threads do this at the same
+     * time, both get the instance which was cached first.
+     *
+     * <p>A generated resource bundle class uses a cache as follows:
+     * <blockquote>
+     *
+     * <pre>class MyResource extends ShadowResourceBundle {
+     *    private static final BundleCache&lt;MyResource&gt; instances =
+     *        new BundleCache&lt;MyResource&gt;(MyResource.class);
+     *
+     *    public static MyResource instance(Locale locale) {
+     *       return instances.get(locale);
+     *    }
+     *    ...
+     * }</pre></blockquote>
+     *
+     * @param <T> Resource bundle class
+     */
+    protected static class BundleCache<T extends ShadowResourceBundle> {
+        private final Class<T> clazz;
+        private final ClassLoader classLoader;
+        private final ConcurrentMap<Locale, T> instances =
+            new ConcurrentHashMap<Locale, T>();
+
+        /**
+         * Creates a cache for a given resource bundle class.
+         *
+         * @param clazz Resource bundle class; its name is the base name of
+         *   the bundle
+         */
+        public BundleCache(Class<T> clazz)
+        {
+            this.clazz = clazz;
+            final ClassLoader loader = clazz.getClassLoader();
+            this.classLoader =
+                loader != null ? loader : ClassLoader.getSystemClassLoader();
+        }
+
+        /**
+         * Returns the instance of the resource bundle for a given locale.
+         *
+         * @param locale Locale
+         * @return Resource bundle
+         */
+        public T get(Locale locale)
+        {
+            final T bundle = instances.get(locale);
+            if (bundle != null) {
+                return bundle;
+            }
+            return load(locale);
+        }
+
+        /**
+         * Loads the instances of the resource bundle for several locales in
+         * parallel, so that later calls to {@link #get(Locale)} for those
+         * locales do not have to wait. See
+         * {@link ShadowResourceBundle#preload(String, ClassLoader, Collection, Executor)}.
+         *
+         * @param locales Locales
+         * @param executor Executor, or null to use a temporary thread pool
+         * @return Time taken to load each locale, in nanoseconds
+         */
+        public Map<Locale, Long> preload(
+            Collection<Locale> locales,
+            Executor executor)
+        {
+            return ShadowResourceBundle.preload(
+                locales, executor,
+                new LocaleLoader() {
+                    public void load(Locale locale) {
+                        get(locale);
+                    }
+                });
+        }
+
+        private T load(Locale locale)
+        {
+            final String baseName = clazz.getName();
+            final T bundle =
+                clazz.cast(
+                    instance(
+                        baseName, locale,
+                        ResourceBundle.getBundle(
+                            baseName, locale, classLoader)));
+            final T previous = instances.putIfAbsent(locale, bundle);
+            return previous != null ? previous : bundle;
+        }
+    }
+
     /** Returns the preferred locale of the current thread, or
      * the default locale if the current thread has not called
      * {@link #setThreadLocale}.
@@ -266,17 +1064,121 @@ public abstract class ShadowResourceBundle extends ResourceBundle {
     /** Sets the locale for the current thread.
      * Used by {@link #instance(String,Locale)}.
      *
-     * @param locale Locale */
+     * <p>Consider using {@link #runWithLocale(Locale, Runnable)} instead,
+     * which restores the thread's previous locale when it is done. If the
+     * thread is running a task in such a scope, this method changes the
+     * locale until the end of the scope.
+     *
+     * @param locale Locale, or null to revert to the default locale */
     public static void setThreadLocale(Locale locale) {
-        mapThreadToLocale.set(locale);
+        if (scopedLocales.replace(
+                Thread.currentThread(), locale == null ? NO_LOCALE : locale)
+            != null)
+        {
+            return;
+        }
+        if (locale == null) {
+            // Remove the entry rather than storing null, so that a thread
+            // which no longer has a locale does not hold an entry.
+            if (threadLocaleSet) {
+                mapThreadToLocale.remove();
+            }
+        } else {
+            threadLocaleSet = true;
+            mapThreadToLocale.set(locale);
+        }
     }
 
     /** Returns the preferred locale of the current thread, or null if the
-     * thread has not called {@link #setThreadLocale}.
+     * thread has not called {@link #setThreadLocale} and is not running a
+     * task in a scope created by {@link #runWithLocale}.
+     *
+     * <p>The locale of the current scope, if any, takes precedence. A thread
+     * in a scope does not read the thread-local locale; nor does any thread
+     * until some thread has called {@link #setThreadLocale}.
      *
      * @return Locale */
     public static Locale getThreadLocale() {
-        return (Locale) mapThreadToLocale.get();
+        final Object scoped = scopedLocales.get(Thread.currentThread());
+        if (scoped != null) {
+            return scoped == NO_LOCALE ? null : (Locale) scoped;
+        }
+        return threadLocaleSet ? mapThreadToLocale.get() : null;
+    }
+
+    /**
+     * Runs a task with a given locale as the current thread's locale, then
+     * restores the thread's previous locale.
+     *
+     * <p>While the task is running, {@link #getThreadLocale()} returns
+     * <code>locale</code>, and the <code>instance()</code> methods of
+     * generated classes return the bundle for that locale. Calls may be
+     * nested.
+     *
+     * <p>The locale is held in an explicit context, keyed by thread, rather
+     * than in a {@link ThreadLocal}, and the thread's entry is removed when
+     * the outermost task finishes, even if it throws. So a thread, such as a
+     * short-lived virtual thread or a pooled thread, holds no state before
+     * or after the task, and does not create a thread-local map.
+     *
+     * @param locale Locale, or null to use the default locale
+     * @param runnable Task
+     */
+    public static void runWithLocale(Locale locale, Runnable runnable) {
+        final Object previous = enterLocale(locale);
+        try {
+            runnable.run();
+        } finally {
+            exitLocale(previous);
+        }
+    }
+
+    /**
+     * Calls a task with a given locale as the current thread's locale, then
+     * restores the thread's previous locale, and returns the task's result.
+     * See {@link #runWithLocale(Locale, Runnable)}.
+     *
+     * @param locale Locale, or null to use the default locale
+     * @param callable Task
+     * @return Result of task
+     * @throws Exception if the task throws
+     */
+    public static <T> T callWithLocale(Locale locale, Callable<T> callable)
+        throws Exception
+    {
+        final Object previous = enterLocale(locale);
+        try {
+            return callable.call();
+        } finally {
+            exitLocale(previous);
+        }
+    }
+
+    /**
+     * Enters a scope in which a given locale is the current thread's
+     * locale. The caller must pass the result to {@link #exitLocale} when
+     * the scope ends.
+     *
+     * @param locale Locale, or null to use the default locale
+     * @return Locale of the enclosing scope, or null if there is none
+     */
+    static Object enterLocale(Locale locale) {
+        return scopedLocales.put(
+            Thread.currentThread(), locale == null ? NO_LOCALE : locale);
+    }
+
+    /**
+     * Leaves a scope entered by {@link #enterLocale}, restoring the locale
+     * of the enclosing scope, if any.
+     *
+     * @param previous Value returned by {@link #enterLocale}
+     */
+    static void exitLocale(Object previous) {
+        if (previous == null) {
+            scopedLocales.remove(Thread.currentThread());
+        } else {
+            scopedLocales.put(Thread.currentThread(), previous);
+        }
     }
 }
 
@@ -59,6 +59,21 @@ abstract class Util {
         }
     }
 
+    /** reads the whole content of a file */
+    static byte[] readFully(File file)
+        throws IOException
+    {
+        final byte[] bytes = new byte[(int) file.length()];
+        final DataInputStream in =
+            new DataInputStream(new FileInputStream(file));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
     /**
      * Left-justify a block of text.  Line breaks are preserved, but long lines
      * are broken.
@@ -214,7 +229,7 @@ abstract class Util {
         }
         String s0;
         s0 = replace(val, "\\", "\\\\");
-        s0 = replace(val, "\"", "\\\"");
+        s0 = replace(s0, "\"", "\\\"");
         s0 = replace(s0, "\n\r", "\\n");
         s0 = replace(s0, "\n", "\\n");
         s0 = replace(s0, "\r", "\\r");
@@ -61,9 +61,9 @@ class XmlFileTask extends FileTask
         this.cppBaseClassName = cppBaseClassName;
     }
 
-    void process(ResourceGen generator) throws IOException {
+    void process(final ResourceGen generator) throws IOException {
         URL url = Util.convertPathToURL(getFile());
-        ResourceDef.ResourceBundle resourceList = Util.load(url);
+        final ResourceDef.ResourceBundle resourceList = Util.load(url);
         if (resourceList.locale == null) {
             throw new BuildException(
                     "Resource file " + url + " must have locale");
@@ -97,24 +97,72 @@ class XmlFileTask extends FileTask
             }
         }
 
-
-        if (outputJava) {
-            generateJava(generator, resourceList, null);
+        // Parse each message, and read each comment from the DOM, before
+        // generating. The generators share this model, and do not modify it,
+        // so they can run in parallel.
+        for (int i = 0; i < resourceList.resources.length; i++) {
+            final ResourceDef.Resource resource = resourceList.resources[i];
+            ResourceGen.getTemplate(resource);
+            ResourceGen.getComment(resource);
         }
 
-        generateProperties(generator, resourceList, null);
-
+        final KeyIndex keyIndex =
+            include.root.catalog
+                ? ResourceGen.createKeyIndex(resourceList)
+                : null;
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        addTasks(tasks, generator, resourceList, keyIndex, null);
         for (int i = 0; i < locales.length; i++) {
-            Locale locale = locales[i];
-            if (outputJava) {
-                generateJava(generator, resourceList, locale);
-            }
-            generateProperties(generator, resourceList, locale);
+            addTasks(tasks, generator, resourceList, keyIndex, locales[i]);
         }
-
         if (outputCpp) {
-            generateCpp(generator, resourceList);
+            tasks.add(
+                new Runnable() {
+                    public void run() {
+                        generateCpp(generator, resourceList);
+                    }
+                });
         }
+        generator.runAll(tasks);
+    }
+
+    /**
+     * Adds tasks to generate the files for a locale: a Java class, and a
+     * properties file followed by its catalog. Each file depends only on
+     * the resource bundle (and a catalog on its properties file), so the
+     * tasks can run in parallel.
+     *
+     * @param tasks List of tasks
+     * @param generator Generator
+     * @param resourceList Resource bundle
+     * @param keyIndex Index of keys, or null if catalogs are not generated
+     *   or the bundle has no key index
+     * @param locale Locale, or null for the base locale
+     */
+    private void addTasks(
+        List<Runnable> tasks,
+        final ResourceGen generator,
+        final ResourceDef.ResourceBundle resourceList,
+        final KeyIndex keyIndex,
+        final Locale locale)
+    {
+        if (outputJava) {
+            tasks.add(
+                new Runnable() {
+                    public void run() {
+                        generateJava(generator, resourceList, locale);
+                    }
+                });
+        }
+        tasks.add(
+            new Runnable() {
+                public void run() {
+                    generateProperties(generator, resourceList, locale);
+                    if (include.root.catalog) {
+                        generateCatalog(generator, keyIndex, locale);
+                    }
+                }
+            });
     }
 
     private void generateProperties(
@@ -126,6 +174,12 @@ class XmlFileTask extends FileTask
         File srcFile = locale == null ?
             getFile() :
             new File(getSrcDirectory(), fileName);
+        // A locale's properties file is a copy of the locale's source file,
+        // if there is one.
+        final String key =
+            locale == null
+                ? getKey(new String[0])
+                : getKey(new String[0], srcFile);
         if (file.exists()) {
             if (locale != null) {
                 if (file.equals(srcFile)) {
@@ -136,8 +190,7 @@ class XmlFileTask extends FileTask
                     return;
                 }
             }
-            if (file.lastModified() >= srcFile.lastModified()) {
-                generator.comment(file + " is up to date");
+            if (checkUpToDate(generator, file, key, srcFile)) {
                 return;
             }
             if (!file.canWrite()) {
@@ -146,15 +199,7 @@ class XmlFileTask extends FileTask
             }
         }
         generator.comment("Generating " + file);
-        final FileOutputStream out;
-        try {
-            if (file.getParentFile() != null) {
-                file.getParentFile().mkdirs();
-            }
-            out = new FileOutputStream(file);
-        } catch (FileNotFoundException e) {
-            throw new BuildException("Error while writing " + file, e);
-        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
         PrintWriter pw = new PrintWriter(out);
         try {
             if (locale == null) {
@@ -165,13 +210,68 @@ class XmlFileTask extends FileTask
         } finally {
             pw.close();
         }
+        writeIfChanged(generator, file, out.toByteArray(), true);
+        recordOutput(generator, file, key);
     }
 
 
+    /**
+     * Generates a binary catalog from a properties file that has already been
+     * generated. For example, generates
+     * <code>happy/BirthdayResource_fr_FR.catalog</code> from
+     * <code>happy/BirthdayResource_fr_FR.properties</code>.
+     *
+     * @param generator Generator
+     * @param keyIndex Index of the keys of the resource bundle, or null
+     * @param locale Locale, or null for the base locale
+     */
+    private void generateCatalog(
+        ResourceGen generator,
+        KeyIndex keyIndex,
+        Locale locale)
+    {
+        final String name = Util.getClassNameSansPackage(className, locale);
+        final File propertiesFile =
+            new File(getResourceDirectory(), name + ".properties");
+        final File file = new File(getResourceDirectory(), name + ".catalog");
+        if (!propertiesFile.exists()) {
+            return;
+        }
+        // The key index depends on the resources in the XML file, and the
+        // values on the properties file.
+        final String key = getKey(new String[0], propertiesFile);
+        if (!include.root.force
+            && checkUpToDate(generator, file, key, propertiesFile))
+        {
+            return;
+        }
+        generator.comment("Generating " + file);
+        try {
+            final CompactResourceTable table;
+            final InputStream in = new FileInputStream(propertiesFile);
+            try {
+                table = CompactResourceTable.load(in, keyIndex);
+            } finally {
+                in.close();
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                table.write(out);
+            } finally {
+                out.close();
+            }
+            writeIfChanged(generator, file, bytes.toByteArray(), false);
+        } catch (IOException e) {
+            throw new BuildException("Error while writing " + file, e);
+        }
+        recordOutput(generator, file, key);
+    }
+
     /**
      * Generates a properties file containing a line for each resource.
      */
-    private void generateBaseProperties(
+    void generateBaseProperties(
         ResourceDef.ResourceBundle resourceList,
         PrintWriter pw)
     {
@@ -199,10 +299,10 @@ class XmlFileTask extends FileTask
             if (message == null) {
                 continue;
             }
-            if (count(resource.text.cdata, '\'') % 2 != 0) {
-                System.out.println(
+            if (ResourceGen.getTemplate(resource).unclosedQuote) {
+                ResourceGen.log(
                     "WARNING: The message for resource '" + resource.name
-                        + "' has an odd number of single-quotes. These should"
+                        + "' has an unclosed single-quote. Quotes should"
                         + " probably be doubled (to include an single-quote in"
                         + " a message) or closed (to include a literal string"
                         + " in a message).");
@@ -212,25 +312,6 @@ class XmlFileTask extends FileTask
         pw.println("# End " + fullClassName + ".properties");
     }
 
-    /**
-     * Returns the number of occurrences of a given character in a string.
-     *
-     * <p>For example, {@code count("foobar", 'o')} returns 2.
-     *
-     * @param s String
-     * @param c Character
-     * @return Number of occurrences
-     */
-    private int count(String s, char c) {
-        int count = 0;
-        for (int i = 0; i < s.length(); i++) {
-            if (s.charAt(i) == c) {
-                ++count;
-            }
-        }
-        return count;
-    }
-
     /**
      * Generates a properties file for a given locale. If there is a source
      * file for the locale, it is copied. Otherwise generates a file with
@@ -349,11 +430,13 @@ class XmlFileTask extends FileTask
 
         boolean allUpToDate = true;
 
-        if (!checkUpToDate(generator, hFile)) {
+        final String key =
+            getKey(new String[] {cppClassName, this.cppBaseClassName});
+        if (!checkUpToDate(generator, hFile, key, getFile())) {
             allUpToDate = false;
         }
 
-        if (!checkUpToDate(generator, cppFile)) {
+        if (!checkUpToDate(generator, cppFile, key, getFile())) {
             allUpToDate = false;
         }
 
@@ -363,14 +446,7 @@ class XmlFileTask extends FileTask
 
         generator.comment("Generating " + hFile);
 
-        final FileOutputStream hOut;
-        try {
-            makeParentDirs(hFile);
-
-            hOut = new FileOutputStream(hFile);
-        } catch (FileNotFoundException e) {
-            throw new BuildException("Error while writing " + hFile, e);
-        }
+        final ByteArrayOutputStream hOut = new ByteArrayOutputStream();
 
         String className = Util.removePackage(this.className);
         String baseClassName = Util.removePackage(this.cppBaseClassName);
@@ -385,17 +461,12 @@ class XmlFileTask extends FileTask
         } finally {
             pw.close();
         }
+        writeIfChanged(generator, hFile, hOut.toByteArray(), true);
+        recordOutput(generator, hFile, key);
 
         generator.comment("Generating " + cppFile);
 
-        final FileOutputStream cppOut;
-        try {
-            makeParentDirs(cppFile);
-
-            cppOut = new FileOutputStream(cppFile);
-        } catch (FileNotFoundException e) {
-            throw new BuildException("Error while writing " + cppFile, e);
-        }
+        final ByteArrayOutputStream cppOut = new ByteArrayOutputStream();
 
         pw = new PrintWriter(cppOut);
         try {
@@ -407,6 +478,8 @@ class XmlFileTask extends FileTask
         } finally {
             pw.close();
         }
+        writeIfChanged(generator, cppFile, cppOut.toByteArray(), true);
+        recordOutput(generator, cppFile, key);
     }
 }
 
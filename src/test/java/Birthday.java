@@ -26,7 +26,7 @@ public class Birthday {
         if (age < 0) {
             throw BirthdayResource.instance().newTooYoung(name);
         }
-        System.out.println(BirthdayResource.instance().getHappyBirthday(name, new Integer(age)));
+        System.out.println(BirthdayResource.instance().getHappyBirthday(name, age));
     }
     public static void main(String[] args) {
         runTest();
@@ -10,8 +10,8 @@ import org.eigenbase.resgen.*;
 /**
  * This class was generated
  * by class org.eigenbase.resgen.ResourceGen
- * from /home/jhyde/open1/thirdparty/resgen/example/source/happy/BirthdayResource.xml
- * on Tue Jul 17 20:52:06 PDT 2012.
+ * from src/test/java/happy/BirthdayResource.xml
+ * on Fri Oct 16 23:03:11 UTC 2026.
  * It contains a list of messages, and methods to
  * retrieve and format those messages.
  */
@@ -19,20 +19,43 @@ import org.eigenbase.resgen.*;
 public class BirthdayResource extends org.eigenbase.resgen.ShadowResourceBundle {
     public BirthdayResource() throws IOException {
     }
-    private static final String baseName = "happy.BirthdayResource";
+    private static final BundleCache<BirthdayResource> instances =
+        new BundleCache<BirthdayResource>(BirthdayResource.class);
     /**
      * Retrieves the singleton instance of {@link BirthdayResource}. If
      * the application has called {@link #setThreadLocale}, returns the
      * resource for the thread's locale.
      */
-    public static synchronized BirthdayResource instance() {
-        return (BirthdayResource) instance(baseName, getThreadOrDefaultLocale(), ResourceBundle.getBundle(baseName, getThreadOrDefaultLocale()));
+    public static BirthdayResource instance() {
+        return instances.get(getThreadOrDefaultLocale());
     }
     /**
      * Retrieves the instance of {@link BirthdayResource} for the given locale.
      */
-    public static synchronized BirthdayResource instance(Locale locale) {
-        return (BirthdayResource) instance(baseName, locale, ResourceBundle.getBundle(baseName, locale));
+    public static BirthdayResource instance(Locale locale) {
+        return instances.get(locale);
+    }
+    /**
+     * Loads the instances of {@link BirthdayResource} for the given locales
+     * in parallel, and returns the time taken to load each, in
+     * nanoseconds. If executor is null, uses a temporary thread pool.
+     */
+    public static java.util.Map<Locale, Long> preload(
+        java.util.Collection<Locale> locales,
+        java.util.concurrent.Executor executor) {
+        return instances.preload(locales, executor);
+    }
+    private static final KeyIndex keyIndex =
+        new KeyIndex(
+            new String[] {
+                "HappyBirthday",
+                "ShouldGiveWarning",
+                "TooYoung",
+                "WithMarkup"
+            },
+            new int[] {0, 1, 5, 0});
+    protected KeyIndex getKeyIndex() {
+        return keyIndex;
     }
 
     /**
@@ -42,6 +65,22 @@ public class BirthdayResource extends org.eigenbase.resgen.ShadowResourceBundle
     public String getHappyBirthday(String p0, Number p1) {
         return HappyBirthday.instantiate(this, new Object[] {p0, p1}).toString();
     }
+    public StringBuilder appendHappyBirthday(StringBuilder buf, String p0, Number p1) {
+        HappyBirthday.formatTo(this, new Object[] {p0, p1}, buf);
+        return buf;
+    }
+    public String getHappyBirthday(String p0, long p1) {
+        return HappyBirthday.arguments(this).arg(p0).arg(p1).format();
+    }
+    public StringBuilder appendHappyBirthday(StringBuilder buf, String p0, long p1) {
+        return HappyBirthday.arguments(this).arg(p0).arg(p1).formatTo(buf);
+    }
+    public String getHappyBirthday(String p0, double p1) {
+        return HappyBirthday.arguments(this).arg(p0).arg(p1).format();
+    }
+    public StringBuilder appendHappyBirthday(StringBuilder buf, String p0, double p1) {
+        return HappyBirthday.arguments(this).arg(p0).arg(p1).formatTo(buf);
+    }
 
     /**
      * <code>TooYoung</code> is '<code>{0} has not been born yet.</code>'
@@ -50,6 +89,10 @@ public class BirthdayResource extends org.eigenbase.resgen.ShadowResourceBundle
     public String getTooYoung(String p0) {
         return TooYoung.instantiate(this, new Object[] {p0}).toString();
     }
+    public StringBuilder appendTooYoung(StringBuilder buf, String p0) {
+        TooYoung.formatTo(this, new Object[] {p0}, buf);
+        return buf;
+    }
     public RuntimeException newTooYoung(String p0) {
         return new RuntimeException(getTooYoung(p0));
     }
@@ -62,7 +105,10 @@ public class BirthdayResource extends org.eigenbase.resgen.ShadowResourceBundle
      */
     public static final org.eigenbase.resgen.ResourceDefinition ShouldGiveWarning = new org.eigenbase.resgen.ResourceDefinition("ShouldGiveWarning", "You don't look {1,number}, {0}!");
     public String getShouldGiveWarning() {
-        return ShouldGiveWarning.instantiate(this, emptyObjectArray).toString();
+        return ShouldGiveWarning.getConstant(this);
+    }
+    public StringBuilder appendShouldGiveWarning(StringBuilder buf) {
+        return buf.append(ShouldGiveWarning.getConstant(this));
     }
     public RuntimeException newShouldGiveWarning() {
         return new RuntimeException(getShouldGiveWarning());
@@ -76,7 +122,10 @@ public class BirthdayResource extends org.eigenbase.resgen.ShadowResourceBundle
      */
     public static final org.eigenbase.resgen.ResourceDefinition WithMarkup = new org.eigenbase.resgen.ResourceDefinition("WithMarkup", "This <tag is=\"not\">very</kosher>.");
     public String getWithMarkup() {
-        return WithMarkup.instantiate(this, emptyObjectArray).toString();
+        return WithMarkup.getConstant(this);
+    }
+    public StringBuilder appendWithMarkup(StringBuilder buf) {
+        return buf.append(WithMarkup.getConstant(this));
     }
 
 }
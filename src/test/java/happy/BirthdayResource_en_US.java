@@ -10,8 +10,8 @@ import org.eigenbase.resgen.*;
 /**
  * This class was generated
  * by class org.eigenbase.resgen.ResourceGen
- * from /home/jhyde/open1/thirdparty/resgen/example/source/happy/BirthdayResource.xml
- * on Tue Jul 17 20:52:06 PDT 2012.
+ * from src/test/java/happy/BirthdayResource.xml
+ * on Fri Oct 16 23:03:11 UTC 2026.
  * It contains a list of messages, and methods to
  * retrieve and format those messages.
  */
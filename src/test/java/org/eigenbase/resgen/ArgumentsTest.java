@@ -0,0 +1,234 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Tests that {@link ResourceDefinition.Arguments}, which the generated
+ * <code>long</code> and <code>double</code> overloads use, formats messages
+ * the same as {@link MessageFormat}.
+ */
+public class ArgumentsTest {
+    private static final Date DATE = new Date(1341100800000L);
+
+    /** Arguments with no sub-format. */
+    public void testDefaultFormats() {
+        final String message = "{0} items cost {1}; {0} again.";
+        check(Locale.US, message, 1234567L, 1234.5d, null);
+        check(Locale.US, message, -1L, 0.125d, null);
+        check(Locale.US, message, Long.MAX_VALUE, Double.NaN, null);
+    }
+
+    /** Number sub-formats, given by keyword and by pattern. */
+    public void testSubFormats() {
+        check(
+            Locale.US,
+            "{0,number,integer} / {1,number,#.##} / {1,number,percent}"
+            + " / {0,number,currency}",
+            42L, 2.71828d, null);
+    }
+
+    /** A <code>{n,date}</code> argument after two primitive arguments. */
+    public void testDate() {
+        check(
+            Locale.US,
+            "Due on {2,date} ({2,date,short} at {2,time,short}), {0} of {1}",
+            3L, 7.5d, DATE);
+    }
+
+    /** A message that refers to arguments that were not supplied. */
+    public void testMissingArgument() {
+        final String message = "{0} and {1} and {3,number}";
+        final ResourceDefinition definition =
+            new ResourceDefinition("Missing", message);
+        final ResourceBundle bundle =
+            new TestBundle(Locale.US, new Object[][] {{"Missing", message}});
+        assertEquals(
+            format(Locale.US, message, new Object[] {5L}),
+            definition.arguments(bundle).arg(5L).format());
+        assertEquals(
+            format(Locale.US, message, new Object[] {5L, 6.5d}),
+            definition.arguments(bundle).arg(5L).arg(6.5d).format());
+    }
+
+    /** A <code>choice</code> argument, which is formatted as a number. */
+    public void testChoice() {
+        final String message =
+            "{0,choice,0#no files|1#one file|1<{0} files}, {1}";
+        for (long n = 0; n < 3; n++) {
+            check(Locale.US, message, n, 1.5d, null);
+        }
+    }
+
+    /** Numbers with no sub-format are formatted in the bundle's locale. */
+    public void testLocale() {
+        check(Locale.FRANCE, "{0} / {1}", 1234567L, 1234.5d, null);
+        check(Locale.GERMANY, "{0} / {1} / {2,date}", 1234567L, 0.5d, DATE);
+    }
+
+    /** An argument that is formatted from another resource's argument list,
+     * before or while the outer list is formatted. */
+    public void testNested() {
+        final ResourceDefinition outer =
+            new ResourceDefinition("Outer", "outer {0,number,#.0} / {1}");
+        final ResourceDefinition inner =
+            new ResourceDefinition("Inner", "inner {0,number,#.00}");
+        final ResourceBundle bundle =
+            new TestBundle(
+                Locale.US,
+                new Object[][] {
+                    {"Outer", outer.baseMessage},
+                    {"Inner", inner.baseMessage},
+                });
+        assertEquals(
+            "outer 1.0 / inner 2.00",
+            outer.arguments(bundle)
+                .arg(1L)
+                .arg(inner.arguments(bundle).arg(2L).format())
+                .format());
+
+        // The inner message is formatted by the argument's toString method,
+        // while the outer message is being formatted.
+        final Object lazy = new Object() {
+            public String toString() {
+                return inner.arguments(bundle).arg(3.5d).format();
+            }
+        };
+        assertEquals(
+            "outer 4.0 / inner 3.50",
+            outer.arguments(bundle).arg(4L).arg(lazy).format());
+
+        // An argument list that has been formatted can be formatted again.
+        final ResourceDefinition.Arguments arguments =
+            outer.arguments(bundle).arg(5L).arg("x");
+        assertEquals("outer 5.0 / x", arguments.format());
+        assertEquals("outer 5.0 / x", arguments.format());
+    }
+
+    /** More messages with sub-formats than a thread keeps copies of, so
+     * that messages take each other's copies. */
+    public void testManyMessages() {
+        final int n = 200;
+        final ResourceDefinition[] definitions = new ResourceDefinition[n];
+        final Object[][] contents = new Object[n][];
+        for (int i = 0; i < n; i++) {
+            definitions[i] =
+                new ResourceDefinition(
+                    "M" + i, "{0,number,#." + "0000".substring(i % 4) + "}");
+            contents[i] = new Object[] {"M" + i, definitions[i].baseMessage};
+        }
+        final ResourceBundle bundle = new TestBundle(Locale.US, contents);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < n; i++) {
+                assertEquals(
+                    format(
+                        Locale.US, definitions[i].baseMessage,
+                        new Object[] {i + 0.125d}),
+                    definitions[i].arguments(bundle).arg(i + 0.125d).format());
+            }
+        }
+    }
+
+    /**
+     * Formats a message with a <code>long</code>, a <code>double</code> and,
+     * if not null, an object argument, and checks that the result is the
+     * same as that of {@link MessageFormat}.
+     */
+    private static void check(
+        Locale locale,
+        String message,
+        long p0,
+        double p1,
+        Object p2)
+    {
+        final ResourceDefinition definition =
+            new ResourceDefinition("Test", message);
+        final ResourceBundle bundle =
+            new TestBundle(locale, new Object[][] {{"Test", message}});
+        final Object[] args =
+            p2 == null ? new Object[] {p0, p1} : new Object[] {p0, p1, p2};
+        final String expected = format(locale, message, args);
+        assertEquals(
+            expected, arguments(definition, bundle, p0, p1, p2).format());
+        // Again, now that the format is cached, appending to a buffer.
+        final StringBuilder buf = new StringBuilder("x");
+        arguments(definition, bundle, p0, p1, p2).formatTo(buf);
+        assertEquals("x" + expected, buf.toString());
+    }
+
+    private static ResourceDefinition.Arguments arguments(
+        ResourceDefinition definition,
+        ResourceBundle bundle,
+        long p0,
+        double p1,
+        Object p2)
+    {
+        final ResourceDefinition.Arguments arguments =
+            definition.arguments(bundle).arg(p0).arg(p1);
+        return p2 == null ? arguments : arguments.arg(p2);
+    }
+
+    /**
+     * Formats a message the way that {@link ResourceDefinition} does when
+     * it does not use a template: sub-formats are created when the pattern
+     * is parsed, and the bundle's locale is set afterwards.
+     */
+    private static String format(Locale locale, String message, Object[] args)
+    {
+        final MessageFormat format = new MessageFormat(message);
+        format.setLocale(locale);
+        return format.format(args);
+    }
+
+    private static void assertEquals(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+
+    /**
+     * Resource bundle with given messages, for a given locale.
+     */
+    private static class TestBundle extends ListResourceBundle {
+        private final Locale locale;
+        private final Object[][] contents;
+
+        TestBundle(Locale locale, Object[][] contents) {
+            this.locale = locale;
+            this.contents = contents;
+        }
+
+        protected Object[][] getContents() {
+            return contents;
+        }
+
+        public Locale getLocale() {
+            return locale;
+        }
+    }
+}
+
+// End ArgumentsTest.java
@@ -0,0 +1,180 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Tests that {@link BundleReloader} replaces the messages of a bundle whose
+ * properties file has changed.
+ *
+ * <p>The test generates a resource class from {@link #XML} in a temporary
+ * directory, compiles it, and loads it, so that its properties file is a
+ * file that the test can rewrite.
+ */
+public class BundleReloaderTest {
+    private static final String XML =
+        "<?xml version=\"1.0\" ?>\n"
+        + "<resourceBundle locale=\"en_US\">\n"
+        + "  <message name=\"Hello\">\n"
+        + "    <text>Hello</text>\n"
+        + "  </message>\n"
+        + "  <message name=\"Greeting\">\n"
+        + "    <text>Hello, {0}!</text>\n"
+        + "  </message>\n"
+        + "</resourceBundle>\n";
+
+    /** After a properties file is rewritten, and changed bundles are
+     * reloaded, {@link ResourceBundle#getString}, constant messages and
+     * formatted messages return the new text. */
+    public void testReload() throws Exception {
+        final File dir = createTempDir();
+        // Bundles created while reloading is enabled are registered. The
+        // interval is long enough that the test, not the background
+        // thread, does the reloading.
+        ShadowResourceBundle.setReloadInterval(3600000);
+        try {
+            final Class<?> clazz = generate(dir);
+            final ResourceBundle bundle =
+                (ResourceBundle) clazz.getMethod("instance", Locale.class)
+                    .invoke(null, Locale.US);
+            assertEquals("Hello, {0}!", bundle.getString("Greeting"));
+            assertEquals("Hello", invoke(bundle, "getHello"));
+            assertEquals(
+                "Hello, Fred!", invoke(bundle, "getGreeting", "Fred"));
+            assertEquals(0, BundleReloader.checkAll(false));
+
+            final File file =
+                new File(dir, "reload/ReloadResource.properties");
+            final long lastModified = file.lastModified();
+            write(file, "Hello=Bonjour\nGreeting=Bonjour, {0} !\n");
+            // Make sure the change is seen, even if the file system's clock
+            // is coarse.
+            file.setLastModified(lastModified + 10000);
+
+            // Both the US English bundle and its parent, the base bundle,
+            // read the file.
+            assertEquals(2, BundleReloader.checkAll(false));
+            assertEquals("Bonjour, {0} !", bundle.getString("Greeting"));
+            assertEquals("Bonjour", invoke(bundle, "getHello"));
+            assertEquals(
+                "Bonjour, Fred !", invoke(bundle, "getGreeting", "Fred"));
+            assertEquals(0, BundleReloader.checkAll(false));
+        } finally {
+            ShadowResourceBundle.setReloadInterval(0);
+            delete(dir);
+        }
+    }
+
+    /**
+     * Generates a resource class from {@link #XML}, compiles it and its
+     * subclass for the US English locale, and loads it.
+     */
+    private static Class<?> generate(File dir) throws Exception {
+        write(new File(dir, "reload/ReloadResource.xml"), XML);
+        new ResourceGen().run(
+            ResourceGen.parse(
+                new String[] {
+                    "-srcdir", dir.getPath(),
+                    "reload/ReloadResource.xml"
+                }));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final String classPath =
+            new File(
+                ResourceDefinition.class.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI()).getPath();
+        final int status =
+            compiler.run(
+                null, null, null, "-nowarn", "-classpath", classPath,
+                new File(dir, "reload/ReloadResource.java").getPath(),
+                new File(dir, "reload/ReloadResource_en_US.java").getPath());
+        if (status != 0) {
+            throw new AssertionError("compilation failed: " + status);
+        }
+        final ClassLoader loader =
+            new URLClassLoader(
+                new URL[] {dir.toURI().toURL()},
+                BundleReloaderTest.class.getClassLoader());
+        return Class.forName("reload.ReloadResource", true, loader);
+    }
+
+    private static String invoke(Object o, String name, String... args)
+        throws Exception
+    {
+        final Class<?>[] types = new Class<?>[args.length];
+        Arrays.fill(types, String.class);
+        return (String) o.getClass().getMethod(name, types)
+            .invoke(o, (Object[]) args);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("ISO-8859-1"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static File createTempDir() throws IOException {
+        final File dir = File.createTempFile("resgen", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("cannot create directory " + dir);
+        }
+        return dir;
+    }
+
+    private static void delete(File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private static void assertEquals(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+
+    private static void assertEquals(int expected, int actual) {
+        if (expected != actual) {
+            throw new AssertionError(
+                "expected " + expected + ", but was " + actual);
+        }
+    }
+}
+
+// End BundleReloaderTest.java
@@ -0,0 +1,285 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests that {@link CompactResourceTable} returns every message exactly as
+ * it was stored, whichever encoding it chooses, and after it has been
+ * written to and read from a binary catalog.
+ */
+public class CompactResourceTableTest {
+    /** Keys; "Aa" and "BB" have the same hash code. */
+    static final String[] KEYS = {
+        "Plain", "Empty", "Accents", "Greek", "Chinese", "Surrogates",
+        "Boundaries", "Aa", "BB", "", "\u041a\u043b\u044e\u0447"
+    };
+
+    /** Messages that are all Latin-1. */
+    static final String[] LATIN1_VALUES = {
+        "Hello, {0}!", "", "Caf\u00e9 cr\u00e8me \u00a9 \u00ff", "abc",
+        "\u0080\u00a0", "", "\u0000\u007f", "collides", "collides too",
+        "empty key", ""
+    };
+
+    /** Messages that include characters outside Latin-1, in one, two and
+     * three bytes, and surrogate pairs. */
+    static final String[] VALUES = {
+        "Hello, {0}!", "", "Caf\u00e9 cr\u00e8me \u00a9 \u00ff",
+        "\u03b1\u03b2\u03b3 {0,number}",
+        "\u4f60\u597d\uff0c{0}\uff01",
+        "\ud83d\ude00 and \ud800\udc00",
+        "\u0000\u007f\u0080\u07ff\u0800\uffff",
+        "collides", "collides too", "empty key", ""
+    };
+
+    /** A table whose keys and messages are all Latin-1, which is stored one
+     * byte per character. */
+    public void testLatin1() {
+        final String[] keys = KEYS.clone();
+        keys[KEYS.length - 1] = "Key";
+        checkTable(
+            CompactResourceTable.create(keys, LATIN1_VALUES, null),
+            keys, LATIN1_VALUES, null);
+    }
+
+    /** A table with characters outside Latin-1, which is stored in one to
+     * three bytes per character. */
+    public void testNonLatin1() {
+        checkTable(
+            CompactResourceTable.create(KEYS, VALUES, null),
+            KEYS, VALUES, null);
+    }
+
+    /** A single character above 255, in a message, changes the encoding of
+     * every key and message. */
+    public void testLatin1KeyWithNonLatin1Value() {
+        final String[] keys = {"a", "b"};
+        final String[] values = {"\u00e9", "\u0100"};
+        checkTable(
+            CompactResourceTable.create(keys, values, null),
+            keys, values, null);
+    }
+
+    /** Messages whose keys are in the key index are found by ordinal; some
+     * keys of the index have no message, and some messages have keys that
+     * are not in the index. */
+    public void testKeyIndex() {
+        final KeyIndex keyIndex =
+            KeyIndex.create(
+                new String[] {"Plain", "Empty", "Chinese", "Missing", ""});
+        final CompactResourceTable table =
+            CompactResourceTable.create(KEYS, VALUES, keyIndex);
+        checkTable(table, KEYS, VALUES, keyIndex);
+        assertEquals(null, table.get(keyIndex.indexOf("Missing")));
+    }
+
+    /** Loading from a properties file unescapes messages. */
+    public void testLoad() throws IOException {
+        final String properties =
+            "Greek=\\u03b1\\u03b2\\u03b3 {0,number}\n"
+            + "Empty=\n"
+            + "Accents=Caf\\u00e9\n";
+        final CompactResourceTable table =
+            CompactResourceTable.load(
+                new ByteArrayInputStream(properties.getBytes("ISO-8859-1")),
+                null);
+        checkTable(
+            table,
+            new String[] {"Greek", "Empty", "Accents"},
+            new String[] {"\u03b1\u03b2\u03b3 {0,number}", "", "Caf\u00e9"},
+            null);
+    }
+
+    /** Catalogs of Latin-1 and non-Latin-1 tables, with and without a key
+     * index, read from heap and direct buffers. */
+    public void testCatalog() throws IOException {
+        final String[] latin1Keys = KEYS.clone();
+        latin1Keys[KEYS.length - 1] = "Key";
+        final KeyIndex keyIndex =
+            KeyIndex.create(
+                new String[] {"Plain", "Empty", "Chinese", "Missing", ""});
+        checkCatalog(latin1Keys, LATIN1_VALUES, null);
+        checkCatalog(KEYS, VALUES, null);
+        checkCatalog(KEYS, VALUES, keyIndex);
+        checkCatalog(new String[0], new String[0], null);
+        checkCatalog(new String[0], new String[0], keyIndex);
+    }
+
+    /** A key index of more than 64 keys, so that the set of ordinals present
+     * occupies several words, in which some keys have no message. */
+    public void testCatalogLargeIndex() throws IOException {
+        final List<String> indexKeys = new ArrayList<String>();
+        final List<String> keys = new ArrayList<String>();
+        final List<String> values = new ArrayList<String>();
+        for (int i = 0; i < 150; i++) {
+            indexKeys.add("Message" + i);
+            if (i % 3 != 0) {
+                keys.add("Message" + i);
+                values.add(i % 7 == 0 ? "" : "\u00fcber " + i + " \u20ac");
+            }
+        }
+        keys.add("Extra");
+        values.add("not in the index");
+        checkCatalog(
+            keys.toArray(new String[keys.size()]),
+            values.toArray(new String[values.size()]),
+            KeyIndex.create(indexKeys.toArray(new String[indexKeys.size()])));
+    }
+
+    /** A catalog written for one key index is not used with another. */
+    public void testCatalogKeyIndexMismatch() throws IOException {
+        final KeyIndex keyIndex = KeyIndex.create(new String[] {"Plain"});
+        final KeyIndex keyIndex2 =
+            KeyIndex.create(new String[] {"Plain", "Empty"});
+        final byte[] indexed =
+            write(CompactResourceTable.create(KEYS, VALUES, keyIndex));
+        final byte[] unindexed =
+            write(CompactResourceTable.create(KEYS, VALUES, null));
+        assertNull(CompactResourceTable.read(ByteBuffer.wrap(indexed), null));
+        assertNull(
+            CompactResourceTable.read(ByteBuffer.wrap(indexed), keyIndex2));
+        assertNull(
+            CompactResourceTable.read(ByteBuffer.wrap(unindexed), keyIndex));
+    }
+
+    /** An invalid catalog causes an {@link IOException}, rather than wrong
+     * messages. */
+    public void testCatalogInvalid() throws IOException {
+        final byte[] bytes =
+            write(CompactResourceTable.create(KEYS, VALUES, null));
+        // Not a catalog.
+        final byte[] bad = bytes.clone();
+        bad[0] = 'X';
+        checkInvalid(bad);
+        checkInvalid("Plain=Hello".getBytes("ISO-8859-1"));
+        // A later version.
+        final byte[] version = bytes.clone();
+        version[7] = (byte) (CompactResourceTable.CATALOG_VERSION + 1);
+        checkInvalid(version);
+        // Truncated, in the header, the offsets or the data.
+        for (int length : new int[] {0, 10, 30, bytes.length - 1}) {
+            checkInvalid(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    /**
+     * Writes a table to a catalog, reads it back from a heap buffer and from
+     * a direct buffer (which is what a memory-mapped file is), and checks
+     * that the tables contain the same keys and messages as the original.
+     */
+    private static void checkCatalog(
+        String[] keys,
+        String[] values,
+        KeyIndex keyIndex)
+        throws IOException
+    {
+        final CompactResourceTable table =
+            CompactResourceTable.create(keys, values, keyIndex);
+        checkTable(table, keys, values, keyIndex);
+        final byte[] bytes = write(table);
+        checkTable(
+            CompactResourceTable.read(ByteBuffer.wrap(bytes), keyIndex),
+            keys, values, keyIndex);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        direct.flip();
+        final CompactResourceTable table2 =
+            CompactResourceTable.read(direct, keyIndex);
+        checkTable(table2, keys, values, keyIndex);
+        // Writing the table that was read gives the same catalog.
+        if (!Arrays.equals(bytes, write(table2))) {
+            throw new AssertionError("catalog changed after round trip");
+        }
+    }
+
+    private static byte[] write(CompactResourceTable table)
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        table.write(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static void checkInvalid(byte[] bytes) {
+        try {
+            CompactResourceTable.read(ByteBuffer.wrap(bytes), null);
+            throw new AssertionError("expected IOException");
+        } catch (IOException e) {
+            // ok
+        }
+    }
+
+    private static void assertNull(Object o) {
+        if (o != null) {
+            throw new AssertionError("expected null, but was " + o);
+        }
+    }
+
+    /**
+     * Checks that a table contains exactly the given keys and messages.
+     */
+    static void checkTable(
+        ResourceTable table,
+        String[] keys,
+        String[] values,
+        KeyIndex keyIndex)
+    {
+        for (int i = 0; i < keys.length; i++) {
+            // Use a copy of the key, so that it is not found by identity.
+            assertEquals(values[i], table.get(new String(keys[i])));
+            if (keyIndex != null && keyIndex.indexOf(keys[i]) >= 0) {
+                assertEquals(values[i], table.get(keyIndex.indexOf(keys[i])));
+            }
+        }
+        assertEquals(null, table.get("NotAKey"));
+        assertEquals(null, table.get("\u041a\u043b\u044e\u04472"));
+        final Set<String> expectedKeys =
+            new HashSet<String>(Arrays.asList(keys));
+        final Set<String> actualKeys = new HashSet<String>(table.keys());
+        if (!expectedKeys.equals(actualKeys)
+            || table.keys().size() != keys.length)
+        {
+            throw new AssertionError(
+                "expected keys " + expectedKeys + ", but was " + table.keys());
+        }
+    }
+
+    static void assertEquals(String expected, String actual) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+}
+
+// End CompactResourceTableTest.java
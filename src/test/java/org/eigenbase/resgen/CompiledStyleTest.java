@@ -0,0 +1,221 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Tests that the getters and append methods generated in "compiled" style
+ * (see {@link JavaCompiledBaseGenerator}) give the same result as
+ * {@link MessageFormat}.
+ *
+ * <p>The test generates a resource class from {@link #XML}, compiles it,
+ * and calls the methods of its US English bundle with the default locale
+ * set to French, so that sub-formats, which are created in the default
+ * locale, differ from formats created in the bundle's locale.
+ */
+public class CompiledStyleTest {
+    private static final String XML =
+        "<?xml version=\"1.0\" ?>\n"
+        + "<resourceBundle locale=\"en_US\">\n"
+        + "  <message name=\"Quotes\">\n"
+        + "    <text>It''s {0,number,'#'#.#} o''clock in '{'{1}'}'.</text>\n"
+        + "  </message>\n"
+        + "  <message name=\"Patterns\">\n"
+        + "    <text>{0,number,#,##0.00;(#)} on {1,date,yyyy-MM-dd}"
+        + " at {1,time,HH:mm}</text>\n"
+        + "  </message>\n"
+        + "  <message name=\"Dates\">\n"
+        + "    <text>{0} / {0,date} / {0,date,short} / {0,time}"
+        + " / {0,time,long}</text>\n"
+        + "  </message>\n"
+        + "  <message name=\"Numbers\">\n"
+        + "    <text>{0} {0,number,currency} {0,number,percent}"
+        + " {0,number,integer} {0,number}</text>\n"
+        + "  </message>\n"
+        + "  <message name=\"Repeated\">\n"
+        + "    <text>{1} and {0}, {1}, then {1,number,integer}</text>\n"
+        + "  </message>\n"
+        + "</resourceBundle>\n";
+
+    private static final Date DATE = new Date(1234567890123L);
+
+    public void testCompiledStyle() throws Exception {
+        final Locale defaultLocale = Locale.getDefault();
+        final File dir = createTempDir();
+        try {
+            Locale.setDefault(Locale.FRANCE);
+            final Class<?> clazz = generate(dir);
+            final ResourceBundle bundle =
+                (ResourceBundle) clazz.getMethod("instance", Locale.class)
+                    .invoke(null, Locale.US);
+            assertEquals("en_US", bundle.getLocale().toString());
+
+            check(bundle, "Quotes", 12.25, "noon");
+            check(bundle, "Quotes", null, null);
+            check(bundle, "Patterns", -1234.5, DATE);
+            check(bundle, "Patterns", 0.004, null);
+            check(bundle, "Dates", DATE);
+            check(bundle, "Dates", (Object) null);
+            check(bundle, "Numbers", 1234567.891);
+            check(bundle, "Numbers", -7);
+            check(bundle, "Numbers", (Object) null);
+            check(bundle, "Repeated", "x", 9876.5);
+            check(bundle, "Repeated", null, null);
+        } finally {
+            Locale.setDefault(defaultLocale);
+            delete(dir);
+        }
+    }
+
+    /**
+     * Generates a resource class from {@link #XML} in "compiled" style,
+     * compiles it, and loads it.
+     */
+    private static Class<?> generate(File dir) throws Exception {
+        final File xmlFile = new File(dir, "compiled/CompiledResource.xml");
+        xmlFile.getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(xmlFile);
+        try {
+            out.write(XML.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        new ResourceGen().run(
+            ResourceGen.parse(
+                new String[] {
+                    "-srcdir", dir.getPath(),
+                    "-style", "compiled",
+                    "compiled/CompiledResource.xml"
+                }));
+        final File javaFile = new File(dir, "compiled/CompiledResource.java");
+        final String source = new String(Util.readFully(javaFile), "UTF-8");
+        if (!source.contains("Quotes.formatArgument(this, 0, p0)")) {
+            throw new AssertionError("not generated in compiled style");
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final String classPath =
+            new File(
+                ResourceDefinition.class.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI()).getPath();
+        final int status =
+            compiler.run(
+                null, null, null, "-nowarn", "-classpath", classPath,
+                javaFile.getPath(),
+                new File(dir, "compiled/CompiledResource_en_US.java")
+                    .getPath());
+        if (status != 0) {
+            throw new AssertionError("compilation failed: " + status);
+        }
+        final ClassLoader loader =
+            new URLClassLoader(
+                new URL[] {dir.toURI().toURL()},
+                CompiledStyleTest.class.getClassLoader());
+        return Class.forName("compiled.CompiledResource", true, loader);
+    }
+
+    /**
+     * Checks that a resource's getter and append method give the same
+     * result as {@link MessageFormat}. The format parses the message in the
+     * default locale, then formats in the bundle's locale, as
+     * {@link ResourceDefinition} does.
+     */
+    private static void check(
+        ResourceBundle bundle,
+        String name,
+        Object... args)
+        throws Exception
+    {
+        final MessageFormat format =
+            new MessageFormat(bundle.getString(name));
+        format.setLocale(bundle.getLocale());
+        final String expected = format.format(args);
+
+        final Method getter = findMethod(bundle, "get" + name, args.length);
+        assertEquals(expected, (String) getter.invoke(bundle, args));
+
+        final Method append =
+            findMethod(bundle, "append" + name, args.length + 1);
+        final Object[] appendArgs = new Object[args.length + 1];
+        appendArgs[0] = new StringBuilder("> ");
+        System.arraycopy(args, 0, appendArgs, 1, args.length);
+        assertEquals(
+            "> " + expected, append.invoke(bundle, appendArgs).toString());
+    }
+
+    /** Finds the method that has a given name and number of parameters, and
+     * whose parameters are objects, not primitives. */
+    private static Method findMethod(Object o, String name, int count) {
+        for (Method method : o.getClass().getMethods()) {
+            if (method.getName().equals(name)
+                && method.getParameterTypes().length == count)
+            {
+                boolean primitive = false;
+                for (Class<?> type : method.getParameterTypes()) {
+                    primitive |= type.isPrimitive();
+                }
+                if (!primitive) {
+                    return method;
+                }
+            }
+        }
+        throw new AssertionError("method not found: " + name);
+    }
+
+    private static File createTempDir() throws IOException {
+        final File dir = File.createTempFile("resgen", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("cannot create directory " + dir);
+        }
+        return dir;
+    }
+
+    private static void delete(File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private static void assertEquals(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+}
+
+// End CompiledStyleTest.java
@@ -0,0 +1,261 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests that {@link FileTask#writeIfChanged} leaves alone a generated file
+ * whose only difference is the time at which it was generated.
+ */
+public class FileTaskTest {
+    /** Modification time to which files are set after being written, so that
+     * a later write would be noticed. */
+    private static final long OLD_TIME = 1000000000000L;
+
+    private static final Date DATE0 = new Date(1600000000000L);
+    private static final Date DATE1 = new Date(1700000000000L);
+
+    private final ResourceGen generator = new ResourceGen();
+
+    private final FileTask task =
+        new FileTask() {
+            void process(ResourceGen generator) {
+            }
+        };
+
+    /** A file that does not exist is written, as are its directories. */
+    public void testFirstWrite() throws IOException {
+        final File dir = createTempDir();
+        try {
+            final File file = new File(dir, "a/b/Foo.java");
+            final byte[] bytes = javaFile(DATE0, "foo").getBytes();
+            assertEquals(true, write(file, bytes, true));
+            assertContent(bytes, file);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /** Java files that differ only in the " * on &lt;date&gt;." line of
+     * their header are the same. */
+    public void testJavaTimestamp() throws IOException {
+        checkUnchanged(javaFile(DATE0, "foo"), javaFile(DATE1, "foo"));
+    }
+
+    /** Properties files that differ only in the "# on &lt;date&gt;." line of
+     * their header are the same. */
+    public void testPropertiesTimestamp() throws IOException {
+        checkUnchanged(
+            propertiesFile(DATE0, "Hello"), propertiesFile(DATE1, "Hello"));
+    }
+
+    /** Files with Windows line endings are compared the same way. */
+    public void testWindowsLineEndings() throws IOException {
+        checkUnchanged(
+            javaFile(DATE0, "foo").replace("\n", "\r\n"),
+            javaFile(DATE1, "foo").replace("\n", "\r\n"));
+    }
+
+    /** A file that differs in any other line, or in its number of lines, is
+     * written, even if its date is the same. */
+    public void testOtherChange() throws IOException {
+        checkChanged(javaFile(DATE0, "foo"), javaFile(DATE0, "bar"), true);
+        checkChanged(javaFile(DATE0, "foo"), javaFile(DATE1, "bar"), true);
+        checkChanged(
+            propertiesFile(DATE0, "Hello"), propertiesFile(DATE1, "Bye"), true);
+        checkChanged(
+            javaFile(DATE0, "foo"), javaFile(DATE0, "foo") + "\n", true);
+        // A date that is not in a header comment is content.
+        checkChanged(
+            "x = \"on " + DATE0 + ".\";\n", "x = \"on " + DATE1 + ".\";\n",
+            true);
+    }
+
+    /** Binary files, such as catalogs, must be identical to be unchanged. */
+    public void testBinary() throws IOException {
+        checkChanged(javaFile(DATE0, "foo"), javaFile(DATE1, "foo"), false);
+        final File dir = createTempDir();
+        try {
+            final File file = new File(dir, "Foo.catalog");
+            final byte[] bytes = {0, 1, 2, (byte) 0xff};
+            write(file, bytes, false);
+            file.setLastModified(OLD_TIME);
+            assertEquals(false, write(file, bytes, false));
+            assertEquals(OLD_TIME, file.lastModified());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Calls {@link FileTask#writeIfChanged}, and checks that it prints a
+     * message if and only if it leaves the file unchanged.
+     */
+    private boolean write(
+        final File file,
+        final byte[] bytes,
+        final boolean text)
+    {
+        final List<String> messages = new ArrayList<String>();
+        final boolean[] written = {false};
+        ResourceGen.captureMessages(
+            messages,
+            new Runnable() {
+                public void run() {
+                    written[0] =
+                        task.writeIfChanged(generator, file, bytes, text);
+                }
+            });
+        assertEquals(
+            written[0] ? "[]" : "[" + file + " is unchanged]",
+            messages.toString());
+        return written[0];
+    }
+
+    /**
+     * Writes a file, then checks that writing it again with different
+     * content does not change the file or its modification time.
+     */
+    private void checkUnchanged(String content0, String content1)
+        throws IOException
+    {
+        if (content0.equals(content1)) {
+            throw new AssertionError("contents should differ");
+        }
+        final File dir = createTempDir();
+        try {
+            final File file = new File(dir, "Foo.java");
+            final byte[] bytes0 = content0.getBytes();
+            assertEquals(true, write(file, bytes0, true));
+            file.setLastModified(OLD_TIME);
+            assertEquals(false, write(file, content1.getBytes(), true));
+            assertEquals(OLD_TIME, file.lastModified());
+            assertContent(bytes0, file);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Writes a file, then checks that writing it again with different
+     * content replaces it.
+     */
+    private void checkChanged(String content0, String content1, boolean text)
+        throws IOException
+    {
+        final File dir = createTempDir();
+        try {
+            final File file = new File(dir, "Foo.java");
+            write(file, content0.getBytes(), text);
+            file.setLastModified(OLD_TIME);
+            final byte[] bytes1 = content1.getBytes();
+            assertEquals(true, write(file, bytes1, text));
+            assertContent(bytes1, file);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /** Returns the content of a Java file, with the header that
+     * {@link AbstractGenerator} writes. */
+    private static String javaFile(Date date, String name) {
+        return "// This class is generated. Do NOT modify it manually.\n"
+            + "package happy;\n"
+            + "\n"
+            + "/**\n"
+            + " * This class was generated\n"
+            + " * by class org.eigenbase.resgen.ResourceGen\n"
+            + " * from happy/BirthdayResource.xml\n"
+            + " * on " + date + ".\n"
+            + " * It contains a list of messages, and methods to\n"
+            + " * retrieve and format those messages.\n"
+            + " */\n"
+            + "public class BirthdayResource {\n"
+            + "    String " + name + ";\n"
+            + "}\n";
+    }
+
+    /** Returns the content of a properties file, with the header that
+     * {@link XmlFileTask} writes. */
+    private static String propertiesFile(Date date, String message) {
+        return "# This file contains the resources for\n"
+            + "# class 'happy.BirthdayResource'; the base locale is 'en'.\n"
+            + "# It was generated by class org.eigenbase.resgen.ResourceGen\n"
+            + "# from happy/BirthdayResource.xml\n"
+            + "# on " + date + ".\n"
+            + "\n"
+            + "HappyBirthday=" + message + " {0}!\n";
+    }
+
+    private static File createTempDir() throws IOException {
+        final File dir = File.createTempFile("resgen", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("cannot create directory " + dir);
+        }
+        return dir;
+    }
+
+    private static void delete(File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private static void assertContent(byte[] expected, File file)
+        throws IOException
+    {
+        if (!Arrays.equals(expected, Util.readFully(file))) {
+            throw new AssertionError("wrong content in " + file);
+        }
+    }
+
+    private static void assertEquals(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+
+    private static void assertEquals(boolean expected, boolean actual) {
+        if (expected != actual) {
+            throw new AssertionError(
+                "expected " + expected + ", but was " + actual);
+        }
+    }
+
+    private static void assertEquals(long expected, long actual) {
+        if (expected != actual) {
+            throw new AssertionError(
+                "expected " + expected + ", but was " + actual);
+        }
+    }
+}
+
+// End FileTaskTest.java
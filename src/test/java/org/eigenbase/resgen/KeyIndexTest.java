@@ -0,0 +1,207 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests that {@link KeyIndex} is a minimal perfect hash: it maps each of
+ * its keys to a distinct ordinal, and any other string to -1.
+ */
+public class KeyIndexTest {
+    /** Indexes of zero, one and two keys. */
+    public void testSmall() {
+        check(new String[0]);
+        check(new String[] {"a"});
+        check(new String[] {"a", "b"});
+        check(new String[] {""});
+    }
+
+    /** Keys that look like the names of resources, for every size up to
+     * 300. */
+    public void testResourceNames() {
+        final List<String> keys = new ArrayList<String>();
+        for (int n = 0; n <= 300; n++) {
+            check(keys.toArray(new String[keys.size()]));
+            keys.add("ErrorMessage" + n);
+        }
+    }
+
+    /** Random keys of varying length, including characters outside
+     * Latin-1. */
+    public void testRandom() {
+        final Random random = new Random(1234);
+        for (int trial = 0; trial < 20; trial++) {
+            final int n = 1 + random.nextInt(2000);
+            final List<String> keys = new ArrayList<String>();
+            while (keys.size() < n) {
+                final char[] chars = new char[random.nextInt(12)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = random.nextInt(4) == 0
+                        ? (char) random.nextInt(0x3000)
+                        : (char) ('A' + random.nextInt(58));
+                }
+                final String key = new String(chars);
+                if (!keys.contains(key)) {
+                    keys.add(key);
+                }
+            }
+            check(keys.toArray(new String[n]));
+        }
+    }
+
+    /** Keys that have the same {@link String#hashCode()}, and therefore
+     * fall in the same bucket. */
+    public void testSameHashCode() {
+        // "Aa" and "BB" have the same hash code, and so do any strings made
+        // by concatenating them.
+        final String[] colliding = new String[64];
+        for (int i = 0; i < colliding.length; i++) {
+            final StringBuilder buf = new StringBuilder();
+            for (int j = 0; j < 6; j++) {
+                buf.append((i & (1 << j)) == 0 ? "Aa" : "BB");
+            }
+            colliding[i] = buf.toString();
+            if (colliding[i].hashCode() != colliding[0].hashCode()) {
+                throw new AssertionError("hash codes differ: " + colliding[i]);
+            }
+        }
+
+        // A few colliding keys among others can be indexed.
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            keys.add(colliding[i]);
+        }
+        check(keys.toArray(new String[keys.size()]));
+        for (int i = 0; i < 100; i++) {
+            keys.add("Message" + i);
+        }
+        check(keys.toArray(new String[keys.size()]));
+
+        // So many colliding keys cannot be placed in one bucket. Creating
+        // the index fails, rather than searching forever.
+        try {
+            KeyIndex.create(colliding);
+            throw new AssertionError("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    /** An index re-created from its keys and seeds, as generated code does,
+     * assigns the same ordinals. */
+    public void testRecreate() {
+        final String[] keys = {
+            "HappyBirthday", "ShouldGiveWarning", "TooYoung", "WithMarkup"
+        };
+        final KeyIndex keyIndex = KeyIndex.create(keys);
+        final List<String> ordered = keyIndex.getKeys();
+        final KeyIndex keyIndex2 =
+            new KeyIndex(
+                ordered.toArray(new String[ordered.size()]),
+                keyIndex.getSeeds());
+        for (String key : keys) {
+            assertEquals(keyIndex.indexOf(key), keyIndex2.indexOf(key));
+        }
+        assertEquals(keyIndex.fingerprint(), keyIndex2.fingerprint());
+
+        // Seeds that do not match the keys are rejected.
+        final String[] swapped = ordered.toArray(new String[ordered.size()]);
+        final String tmp = swapped[0];
+        swapped[0] = swapped[1];
+        swapped[1] = tmp;
+        try {
+            new KeyIndex(swapped, keyIndex.getSeeds());
+            throw new AssertionError("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    public void testDuplicateKeys() {
+        try {
+            KeyIndex.create(new String[] {"a", "b", "a"});
+            throw new AssertionError("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    /**
+     * Creates an index of a set of keys, and checks that each key has a
+     * distinct ordinal in the range 0 .. n - 1, that the ordinal of each key
+     * is its position in {@link KeyIndex#getKeys()}, and that strings that
+     * are not keys have ordinal -1.
+     */
+    private static void check(String[] keys) {
+        final KeyIndex keyIndex = KeyIndex.create(keys);
+        final int n = keys.length;
+        assertEquals(n, keyIndex.size());
+        final boolean[] used = new boolean[n];
+        for (String key : keys) {
+            // Use a copy of the key, so that it is not found by identity.
+            final int ordinal = keyIndex.indexOf(new String(key));
+            if (ordinal < 0 || ordinal >= n) {
+                throw new AssertionError(
+                    "ordinal " + ordinal + " of key '" + key
+                    + "' out of range; n=" + n);
+            }
+            if (used[ordinal]) {
+                throw new AssertionError(
+                    "ordinal " + ordinal + " of key '" + key + "' not unique");
+            }
+            used[ordinal] = true;
+            if (!keyIndex.getKey(ordinal).equals(key)
+                || !keyIndex.getKeys().get(ordinal).equals(key))
+            {
+                throw new AssertionError("wrong key at ordinal " + ordinal);
+            }
+        }
+        for (String key : keys) {
+            final String other = key + "x";
+            if (!contains(keys, other)) {
+                assertEquals(-1, keyIndex.indexOf(other));
+            }
+        }
+        if (!contains(keys, "NotAKey")) {
+            assertEquals(-1, keyIndex.indexOf("NotAKey"));
+        }
+    }
+
+    private static boolean contains(String[] keys, String key) {
+        for (String k : keys) {
+            if (k.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertEquals(int expected, int actual) {
+        if (expected != actual) {
+            throw new AssertionError(
+                "expected " + expected + ", but was " + actual);
+        }
+    }
+}
+
+// End KeyIndexTest.java
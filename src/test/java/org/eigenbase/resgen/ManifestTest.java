@@ -0,0 +1,209 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests that, when {@link ResourceGen} has a {@link Manifest}, it
+ * regenerates an output if and only if the key of its inputs (see
+ * {@link FileTask#getKey}) or its content has changed.
+ */
+public class ManifestTest {
+    private static final String XML =
+        "<?xml version=\"1.0\" ?>\n"
+        + "<resourceBundle locale=\"en_US\">\n"
+        + "  <message name=\"Hello\">\n"
+        + "    <text>Hello, {0}!</text>\n"
+        + "  </message>\n"
+        + "</resourceBundle>\n";
+
+    private File dir;
+    private File javaFile;
+    private File propertiesFile;
+
+    /** Running twice with the same options regenerates nothing. */
+    public void testUnchanged() throws IOException {
+        setUp();
+        try {
+            checkGenerated(generate(null), true, true);
+            checkGenerated(generate(null), false, false);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /** Touching an input, without changing its content, regenerates
+     * nothing. */
+    public void testTouchInput() throws IOException {
+        setUp();
+        try {
+            generate(null);
+            final File xmlFile = new File(dir, "x/X.xml");
+            xmlFile.setLastModified(javaFile.lastModified() + 10000);
+            checkGenerated(generate(null), false, false);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /** Changing the style, the comment style or the base class regenerates
+     * the class; the properties file depends only on the comment style. */
+    public void testOptionChange() throws IOException {
+        setUp();
+        try {
+            generate(null);
+            checkGenerated(generate(null, "-style", "functor"), true, false);
+            checkGenerated(generate(null, "-style", "functor"), false, false);
+            checkGenerated(
+                generate(
+                    null, "-style", "functor", "-commentstyle", "scm-safe"),
+                true, true);
+            checkGenerated(
+                generate(
+                    "x.MyBase", "-style", "functor", "-commentstyle",
+                    "scm-safe"),
+                true, false);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /** An output that has been edited by hand is regenerated. */
+    public void testHandEdit() throws IOException {
+        setUp();
+        try {
+            generate(null);
+            final byte[] javaBytes = Util.readFully(javaFile);
+            append(javaFile, "// edited\n");
+            append(propertiesFile, "Hello=Bonjour, {0} !\n");
+            checkGenerated(generate(null), true, true);
+            if (!Arrays.equals(javaBytes, Util.readFully(javaFile))) {
+                throw new AssertionError("edit was not undone");
+            }
+            checkGenerated(generate(null), false, false);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private void setUp() throws IOException {
+        dir = File.createTempFile("resgen", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("cannot create directory " + dir);
+        }
+        final File xmlFile = new File(dir, "x/X.xml");
+        xmlFile.getParentFile().mkdir();
+        final OutputStream out = new FileOutputStream(xmlFile);
+        try {
+            out.write(XML.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        javaFile = new File(dir, "x/X.java");
+        propertiesFile = new File(dir, "x/X.properties");
+    }
+
+    /**
+     * Generates files from <code>x/X.xml</code> with a manifest, and returns
+     * the messages printed.
+     *
+     * @param baseClassName Base class of the generated class, or null
+     * @param options Command-line options
+     */
+    private List<String> generate(String baseClassName, String... options) {
+        final List<String> args = new ArrayList<String>();
+        args.addAll(
+            Arrays.asList(
+                "-srcdir", dir.getPath(),
+                "-manifest", new File(dir, "resgen.manifest").getPath()));
+        args.addAll(Arrays.asList(options));
+        args.add("x/X.xml");
+        final ResourceGenTask task =
+            ResourceGen.parse(args.toArray(new String[args.size()]));
+        task.getIncludes()[0].setBaseClassName(baseClassName);
+        final List<String> messages = new ArrayList<String>();
+        ResourceGen.captureMessages(
+            messages,
+            new Runnable() {
+                public void run() {
+                    try {
+                        new ResourceGen().run(task);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+        return messages;
+    }
+
+    /**
+     * Checks whether the messages printed by a run say that the class and
+     * properties file were generated, or were up to date.
+     */
+    private void checkGenerated(
+        List<String> messages,
+        boolean java,
+        boolean properties)
+    {
+        checkGenerated(messages, javaFile, java);
+        checkGenerated(messages, propertiesFile, properties);
+    }
+
+    private static void checkGenerated(
+        List<String> messages,
+        File file,
+        boolean generated)
+    {
+        final String expected =
+            generated ? "Generating " + file : file + " is up to date";
+        if (!messages.contains(expected)) {
+            throw new AssertionError(
+                "expected [" + expected + "] in " + messages);
+        }
+    }
+
+    private static void append(File file, String s) throws IOException {
+        final OutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(s.getBytes("ISO-8859-1"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
+
+// End ManifestTest.java
@@ -0,0 +1,133 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Tests the cache of parsed formats in {@link ResourceDefinition}.
+ */
+public class ResourceDefinitionTest {
+    /** Formatting a resource again does not parse its message again. */
+    public void testFormatCache() {
+        final ResourceDefinition definition =
+            new ResourceDefinition("Cached", "{0} has {1,number} items");
+        final ResourceBundle bundle = new TestBundle(definition);
+        final Object[] args = {"Basket", 3};
+        assertEquals(
+            "Basket has 3 items",
+            definition.instantiate(bundle, args).toString());
+        final long parseCount = ResourceDefinition.getFormatParseCount();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(
+                "Basket has 3 items",
+                definition.instantiate(bundle, args).toString());
+        }
+        assertEquals(parseCount, ResourceDefinition.getFormatParseCount());
+    }
+
+    /** When the cache is full, the formats cached longest ago are removed
+     * to make room for new ones. */
+    public void testFormatCacheLimit() {
+        final int limit = ResourceDefinition.getFormatCacheLimit();
+        try {
+            ResourceDefinition.setFormatCacheLimit(10);
+            final long evictionCount =
+                ResourceDefinition.getFormatCacheEvictionCount();
+            final ResourceDefinition[] definitions = new ResourceDefinition[30];
+            for (int i = 0; i < definitions.length; i++) {
+                definitions[i] =
+                    new ResourceDefinition("Message" + i, "{0} #" + i);
+                format(definitions[i]);
+            }
+            if (ResourceDefinition.getFormatCacheSize() > 10) {
+                throw new AssertionError(
+                    "cache size " + ResourceDefinition.getFormatCacheSize());
+            }
+            if (ResourceDefinition.getFormatCacheEvictionCount()
+                < evictionCount + 20)
+            {
+                throw new AssertionError("too few formats evicted");
+            }
+
+            // The most recent formats are still cached.
+            long parseCount = ResourceDefinition.getFormatParseCount();
+            for (int i = 25; i < 30; i++) {
+                format(definitions[i]);
+            }
+            assertEquals(parseCount, ResourceDefinition.getFormatParseCount());
+
+            // The oldest has been evicted, and is parsed and cached again.
+            format(definitions[0]);
+            assertEquals(
+                parseCount + 1, ResourceDefinition.getFormatParseCount());
+            format(definitions[0]);
+            assertEquals(
+                parseCount + 1, ResourceDefinition.getFormatParseCount());
+        } finally {
+            ResourceDefinition.setFormatCacheLimit(limit);
+        }
+    }
+
+    private static void format(ResourceDefinition definition) {
+        final ResourceBundle bundle = new TestBundle(definition);
+        final String s =
+            definition.instantiate(bundle, new Object[] {"x"}).toString();
+        assertEquals("x #" + definition.key.substring("Message".length()), s);
+    }
+
+    private static void assertEquals(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+
+    private static void assertEquals(long expected, long actual) {
+        if (expected != actual) {
+            throw new AssertionError(
+                "expected " + expected + ", but was " + actual);
+        }
+    }
+
+    /**
+     * Resource bundle, in the US locale, whose only message is the base
+     * message of a resource definition.
+     */
+    private static class TestBundle extends ListResourceBundle {
+        private final ResourceDefinition definition;
+
+        TestBundle(ResourceDefinition definition) {
+            this.definition = definition;
+        }
+
+        protected Object[][] getContents() {
+            return new Object[][] {{definition.key, definition.baseMessage}};
+        }
+
+        public Locale getLocale() {
+            return Locale.US;
+        }
+    }
+}
+
+// End ResourceDefinitionTest.java
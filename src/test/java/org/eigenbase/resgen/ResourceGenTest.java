@@ -0,0 +1,172 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that {@link ResourceGen} prints the same messages, and throws the
+ * same error, whether it processes includes one at a time or in parallel.
+ */
+public class ResourceGenTest {
+    /**
+     * Runs four includes, of which the second fails while generating one of
+     * its files, and the third fails while it is being read, with one
+     * thread and with four threads.
+     *
+     * <p>With one thread, processing stops at the second include. With four
+     * threads, every include, and each include's files, are processed in
+     * parallel, but the messages of the first and second includes are
+     * printed in order, the error of the second include is thrown, and the
+     * messages of the includes after it are discarded.
+     */
+    public void testParallelFailure() throws IOException {
+        final File dir = createTempDir();
+        try {
+            final List<String> serialMessages = new ArrayList<String>();
+            final RuntimeException serialError = run(dir, 1, serialMessages);
+            final List<String> parallelMessages = new ArrayList<String>();
+            final RuntimeException parallelError =
+                run(dir, 4, parallelMessages);
+
+            assertEquals(
+                serialMessages.toString(), parallelMessages.toString());
+            assertEquals(
+                serialError.getClass().getName(),
+                parallelError.getClass().getName());
+            assertEquals(serialError.getMessage(), parallelError.getMessage());
+            if (!serialError.getMessage().contains("B_fr_FR.java")) {
+                throw new AssertionError(
+                    "wrong error: " + serialError.getMessage());
+            }
+            final String messages = serialMessages.toString();
+            if (!messages.contains(new File(dir, "a/A_fr_FR.java").getPath())
+                || !messages.contains(new File(dir, "b/B.java").getPath())
+                || messages.contains("C.java")
+                || messages.contains("D.java"))
+            {
+                throw new AssertionError("wrong messages: " + messages);
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Creates the input files in an empty directory, generates files from
+     * them using a given number of threads, and returns the error thrown.
+     */
+    private static RuntimeException run(
+        File dir,
+        int threads,
+        List<String> messages)
+        throws IOException
+    {
+        for (File file : dir.listFiles()) {
+            delete(file);
+        }
+        final String message = "<message name=\"Hello\">"
+            + "<text>Hello, {0}!</text></message>";
+        write(new File(dir, "a/A.xml"), xml(message));
+        write(new File(dir, "b/B.xml"), xml(message));
+        write(new File(dir, "c/C.xml"), xml(message.replace("{0}", "{0,x}")));
+        write(new File(dir, "d/D.xml"), xml(message));
+        // Writing B's French class fails, because a directory, older than
+        // B.xml, is in its place.
+        final File directory = new File(dir, "b/B_fr_FR.java");
+        directory.mkdir();
+        directory.setLastModified(1000000000000L);
+
+        final ResourceGenTask task =
+            ResourceGen.parse(
+                new String[] {
+                    "-srcdir", dir.getPath(),
+                    "-locales", "en_US,fr_FR",
+                    "-threads", Integer.toString(threads),
+                    "a/A.xml", "b/B.xml", "c/C.xml", "d/D.xml"
+                });
+        final RuntimeException[] error = {null};
+        ResourceGen.captureMessages(
+            messages,
+            new Runnable() {
+                public void run() {
+                    try {
+                        new ResourceGen().run(task);
+                    } catch (RuntimeException e) {
+                        error[0] = e;
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+        if (error[0] == null) {
+            throw new AssertionError("expected error");
+        }
+        return error[0];
+    }
+
+    private static String xml(String message) {
+        return "<?xml version=\"1.0\" ?>\n"
+            + "<resourceBundle locale=\"en_US\">" + message
+            + "</resourceBundle>\n";
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static File createTempDir() throws IOException {
+        final File dir = File.createTempFile("resgen", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("cannot create directory " + dir);
+        }
+        return dir;
+    }
+
+    private static void delete(File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private static void assertEquals(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+}
+
+// End ResourceGenTest.java
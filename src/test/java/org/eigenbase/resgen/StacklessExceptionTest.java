@@ -0,0 +1,103 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.util.Locale;
+
+import stackless.StacklessResource;
+
+/**
+ * Tests the exception factories generated for <code>&lt;exception&gt;</code>
+ * elements that have <code>stackTrace="false"</code>, using the checked-in
+ * class generated from <code>stackless/StacklessResource.xml</code>.
+ */
+public class StacklessExceptionTest {
+    private final StacklessResource res =
+        StacklessResource.instance(Locale.US);
+
+    /** An exception class with a constructor that omits the stack trace
+     * gives an exception with no stack trace. */
+    public void testStacklessConstructor() {
+        final ResourceException e = res.newUnexpectedToken("x");
+        assertEquals("Unexpected token 'x'", e.getMessage());
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(ResourceException.class, e.getClass());
+
+        final Throwable cause = new Throwable();
+        final ResourceException e2 = res.newUnexpectedToken("y", cause);
+        assertEquals(0, e2.getStackTrace().length);
+        assertEquals(true, e2.getCause() == cause);
+
+        final RuntimeException e3 = res.newNoMatch(cause);
+        assertEquals("No match", e3.getMessage());
+        assertEquals(0, e3.getStackTrace().length);
+        assertEquals(true, e3.getCause() == cause);
+    }
+
+    /** An exception that has no parameters and no stack trace is created
+     * once per bundle, and then reused. */
+    public void testCachedInstance() {
+        final ResourceException e = res.newBacktrack();
+        assertEquals("Cannot parse here", e.getMessage());
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(true, res.newBacktrack() == e);
+        // Those with a cause are not cached.
+        assertEquals(false, res.newBacktrack(null) == e);
+
+        final RuntimeException e2 = res.newNoMatch();
+        assertEquals(0, e2.getStackTrace().length);
+        assertEquals(true, res.newNoMatch() == e2);
+
+        // Suppression is disabled, so throwing a cached exception from a
+        // try-with-resources block cannot change it.
+        e2.addSuppressed(new Throwable());
+        assertEquals(0, e2.getSuppressed().length);
+    }
+
+    /** An exception class without a constructor that omits the stack trace
+     * gets an anonymous subclass that does not fill it in; such exceptions
+     * are not cached. */
+    public void testAnonymousSubclass() {
+        final IllegalStateException e = res.newBadState();
+        assertEquals("Bad state", e.getMessage());
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(true, e.getClass().isAnonymousClass());
+        assertEquals(IllegalStateException.class, e.getClass().getSuperclass());
+        assertEquals(false, res.newBadState() == e);
+    }
+
+    /** An exception without <code>stackTrace="false"</code> has a stack
+     * trace, and is created each time. */
+    public void testStackTrace() {
+        final RuntimeException e = res.newInternal();
+        assertEquals(RuntimeException.class, e.getClass());
+        assertEquals(true, e.getStackTrace().length > 0);
+        assertEquals(false, res.newInternal() == e);
+    }
+
+    private static void assertEquals(Object expected, Object actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+}
+
+// End StacklessExceptionTest.java
@@ -0,0 +1,367 @@
+/*
+// Licensed to Julian Hyde under one or more contributor license
+// agreements. See the NOTICE file distributed with this work for
+// additional information regarding copyright ownership.
+//
+// Julian Hyde licenses this file to you under the Apache License,
+// Version 2.0 (the "License"); you may not use this file except in
+// compliance with the License. You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ResGen test code.
+*/
+package org.eigenbase.resgen;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tests the locale of the current thread, as set by
+ * {@link ShadowResourceBundle#setThreadLocale(Locale)} and
+ * {@link ShadowResourceBundle#runWithLocale(Locale, Runnable)}, and carried
+ * to other threads by {@link LocaleContext}.
+ *
+ * <p>Each test runs in a new thread, so that it starts with no locale.
+ */
+public class ThreadLocaleTest {
+    /** Task that returns the locale of the thread that runs it. */
+    private static final Callable<Locale> THREAD_LOCALE =
+        new Callable<Locale>() {
+            public Locale call() {
+                return ShadowResourceBundle.getThreadLocale();
+            }
+        };
+
+    /** A scope's locale is the thread's locale until the scope ends, even if
+     * the task throws; scopes nest. */
+    public void testRunWithLocale() throws Exception {
+        inNewThread(new Callable<Void>() {
+            public Void call() throws Exception {
+                assertLocale(null);
+                ShadowResourceBundle.runWithLocale(
+                    Locale.FRANCE,
+                    new Runnable() {
+                        public void run() {
+                            assertLocale(Locale.FRANCE);
+                            ShadowResourceBundle.runWithLocale(
+                                Locale.GERMANY,
+                                new Runnable() {
+                                    public void run() {
+                                        assertLocale(Locale.GERMANY);
+                                    }
+                                });
+                            assertLocale(Locale.FRANCE);
+                            ShadowResourceBundle.runWithLocale(
+                                null,
+                                new Runnable() {
+                                    public void run() {
+                                        assertLocale(null);
+                                    }
+                                });
+                            assertLocale(Locale.FRANCE);
+                        }
+                    });
+                assertLocale(null);
+
+                try {
+                    ShadowResourceBundle.runWithLocale(
+                        Locale.ITALY,
+                        new Runnable() {
+                            public void run() {
+                                throw new IllegalStateException("oops");
+                            }
+                        });
+                    throw new AssertionError("expected IllegalStateException");
+                } catch (IllegalStateException e) {
+                    // ok
+                }
+                assertLocale(null);
+
+                final String s =
+                    ShadowResourceBundle.callWithLocale(
+                        Locale.JAPAN,
+                        new Callable<String>() {
+                            public String call() {
+                                return ShadowResourceBundle.getThreadLocale()
+                                    .toString();
+                            }
+                        });
+                assertEquals("ja_JP", s);
+                assertLocale(null);
+                return null;
+            }
+        });
+    }
+
+    /** Within a scope, {@link ShadowResourceBundle#setThreadLocale} changes
+     * the locale until the end of the scope; outside, it lasts until it is
+     * changed. */
+    public void testSetThreadLocale() throws Exception {
+        inNewThread(new Callable<Void>() {
+            public Void call() throws Exception {
+                ShadowResourceBundle.setThreadLocale(Locale.CANADA);
+                assertLocale(Locale.CANADA);
+                ShadowResourceBundle.runWithLocale(
+                    Locale.FRANCE,
+                    new Runnable() {
+                        public void run() {
+                            ShadowResourceBundle.setThreadLocale(
+                                Locale.GERMANY);
+                            assertLocale(Locale.GERMANY);
+                            ShadowResourceBundle.setThreadLocale(null);
+                            assertLocale(null);
+                        }
+                    });
+                assertLocale(Locale.CANADA);
+                ShadowResourceBundle.setThreadLocale(null);
+                assertLocale(null);
+                return null;
+            }
+        });
+    }
+
+    /** A wrapped task runs in the locale of the thread that wrapped it, and
+     * then the locale of the thread that runs it is restored. */
+    public void testWrapperRestoresLocale() throws Exception {
+        inNewThread(new Callable<Void>() {
+            public Void call() throws Exception {
+                ShadowResourceBundle.setThreadLocale(Locale.FRANCE);
+                final Callable<Locale> callable =
+                    LocaleContext.callable(THREAD_LOCALE);
+                final Runnable runnable =
+                    LocaleContext.runnable(
+                        new Runnable() {
+                            public void run() {
+                                assertLocale(Locale.FRANCE);
+                            }
+                        });
+                ShadowResourceBundle.setThreadLocale(Locale.ITALY);
+                assertEquals(Locale.FRANCE, callable.call());
+                assertLocale(Locale.ITALY);
+                runnable.run();
+                assertLocale(Locale.ITALY);
+                ShadowResourceBundle.setThreadLocale(null);
+                assertEquals(Locale.FRANCE, callable.call());
+                assertLocale(null);
+                return null;
+            }
+        });
+    }
+
+    /** A task submitted to an executor wrapped by
+     * {@link LocaleContext#executor} runs in the submitter's locale. */
+    public void testExecutor() throws Exception {
+        checkPooled(
+            new Submitter() {
+                public Locale submit(ExecutorService pool) throws Exception {
+                    final FutureTask<Locale> task =
+                        new FutureTask<Locale>(THREAD_LOCALE);
+                    LocaleContext.executor(pool).execute(task);
+                    return task.get();
+                }
+            });
+    }
+
+    /** A task submitted to an executor service wrapped by
+     * {@link LocaleContext#executorService} runs in the submitter's
+     * locale. */
+    public void testExecutorService() throws Exception {
+        checkPooled(
+            new Submitter() {
+                public Locale submit(ExecutorService pool) throws Exception {
+                    return LocaleContext.executorService(pool)
+                        .submit(THREAD_LOCALE).get();
+                }
+            });
+        checkPooled(
+            new Submitter() {
+                public Locale submit(ExecutorService pool) throws Exception {
+                    return LocaleContext.executorService(pool)
+                        .invokeAll(Collections.singletonList(THREAD_LOCALE))
+                        .get(0).get();
+                }
+            });
+    }
+
+    /** A task wrapped by {@link LocaleContext#callable} runs in the locale
+     * of the thread that wrapped it. */
+    public void testCallable() throws Exception {
+        checkPooled(
+            new Submitter() {
+                public Locale submit(ExecutorService pool) throws Exception {
+                    return pool.submit(LocaleContext.callable(THREAD_LOCALE))
+                        .get();
+                }
+            });
+    }
+
+    /** A supplier wrapped by {@link LocaleContext#supplier} runs in the
+     * locale of the thread that wrapped it. */
+    public void testSupplier() throws Exception {
+        checkPooled(
+            new Submitter() {
+                public Locale submit(ExecutorService pool) throws Exception {
+                    return CompletableFuture.supplyAsync(
+                        LocaleContext.supplier(
+                            new Supplier<Locale>() {
+                                public Locale get() {
+                                    return ShadowResourceBundle
+                                        .getThreadLocale();
+                                }
+                            }),
+                        pool).get();
+                }
+            });
+    }
+
+    /** A function wrapped by {@link LocaleContext#function} runs in the
+     * locale of the thread that wrapped it. */
+    public void testFunction() throws Exception {
+        checkPooled(
+            new Submitter() {
+                public Locale submit(ExecutorService pool) throws Exception {
+                    return CompletableFuture.completedFuture("x")
+                        .thenApplyAsync(
+                            LocaleContext.function(
+                                new Function<String, Locale>() {
+                                    public Locale apply(String s) {
+                                        return ShadowResourceBundle
+                                            .getThreadLocale();
+                                    }
+                                }),
+                            pool)
+                        .get();
+                }
+            });
+    }
+
+    /** A function wrapped by {@link LocaleContext#biFunction} runs in the
+     * locale of the thread that wrapped it. */
+    public void testBiFunction() throws Exception {
+        checkPooled(
+            new Submitter() {
+                public Locale submit(ExecutorService pool) throws Exception {
+                    return CompletableFuture.completedFuture("x")
+                        .thenCombineAsync(
+                            CompletableFuture.completedFuture("y"),
+                            LocaleContext.biFunction(
+                                new BiFunction<String, String, Locale>() {
+                                    public Locale apply(String s, String t) {
+                                        return ShadowResourceBundle
+                                            .getThreadLocale();
+                                    }
+                                }),
+                            pool)
+                        .get();
+                }
+            });
+    }
+
+    /**
+     * Checks that a task that a submitter wraps and submits to a pool of one
+     * thread runs in the submitting thread's locale, and that afterwards
+     * the pooled thread has its own locale again: first none, then one set
+     * by a previous task.
+     */
+    private static void checkPooled(final Submitter submitter)
+        throws Exception
+    {
+        inNewThread(new Callable<Void>() {
+            public Void call() throws Exception {
+                final ExecutorService pool =
+                    Executors.newSingleThreadExecutor();
+                try {
+                    final Locale[] poolLocales = {null, Locale.GERMANY};
+                    for (Locale poolLocale : poolLocales) {
+                        pool.submit(setThreadLocale(poolLocale)).get();
+                        ShadowResourceBundle.setThreadLocale(Locale.FRANCE);
+                        assertEquals(Locale.FRANCE, submitter.submit(pool));
+                        assertLocale(Locale.FRANCE);
+                        ShadowResourceBundle.setThreadLocale(null);
+                        assertEquals(
+                            poolLocale, pool.submit(THREAD_LOCALE).get());
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+                return null;
+            }
+        });
+    }
+
+    /** Returns a task that sets the locale of the thread that runs it. */
+    private static Callable<Void> setThreadLocale(final Locale locale) {
+        return new Callable<Void>() {
+            public Void call() {
+                ShadowResourceBundle.setThreadLocale(locale);
+                return null;
+            }
+        };
+    }
+
+    /** Wraps a task that returns its thread's locale, using one of the
+     * methods of {@link LocaleContext}, runs it on a pool, and returns what
+     * it returned. */
+    private interface Submitter {
+        Locale submit(ExecutorService pool) throws Exception;
+    }
+
+    /**
+     * Calls a task in a new thread, and waits for it to finish. Throws what
+     * the task throws, if anything.
+     */
+    static void inNewThread(final Callable<Void> task) throws Exception {
+        final Throwable[] thrown = {null};
+        final Thread thread = new Thread() {
+            public void run() {
+                try {
+                    task.call();
+                } catch (Throwable e) {
+                    thrown[0] = e;
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        if (thrown[0] instanceof Exception) {
+            throw (Exception) thrown[0];
+        } else if (thrown[0] instanceof Error) {
+            throw (Error) thrown[0];
+        }
+    }
+
+    static void assertLocale(Locale expected) {
+        assertEquals(expected, ShadowResourceBundle.getThreadLocale());
+    }
+
+    private static void assertEquals(Locale expected, Locale actual) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(
+                "expected locale " + expected + ", but was " + actual);
+        }
+    }
+
+    private static void assertEquals(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(
+                "expected [" + expected + "], but was [" + actual + "]");
+        }
+    }
+}
+
+// End ThreadLocaleTest.java
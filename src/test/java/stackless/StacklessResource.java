@@ -0,0 +1,168 @@
+// This class is generated. Do NOT modify it, or
+// add it to source control.
+
+package stackless;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import org.eigenbase.resgen.*;
+
+/**
+ * This class was generated
+ * by class org.eigenbase.resgen.ResourceGen
+ * from src/test/java/stackless/StacklessResource.xml
+ * on Fri Oct 16 23:18:31 UTC 2026.
+ * It contains a list of messages, and methods to
+ * retrieve and format those messages.
+ */
+
+public class StacklessResource extends org.eigenbase.resgen.ShadowResourceBundle {
+    public StacklessResource() throws IOException {
+    }
+    private static final BundleCache<StacklessResource> instances =
+        new BundleCache<StacklessResource>(StacklessResource.class);
+    /**
+     * Retrieves the singleton instance of {@link StacklessResource}. If
+     * the application has called {@link #setThreadLocale}, returns the
+     * resource for the thread's locale.
+     */
+    public static StacklessResource instance() {
+        return instances.get(getThreadOrDefaultLocale());
+    }
+    /**
+     * Retrieves the instance of {@link StacklessResource} for the given locale.
+     */
+    public static StacklessResource instance(Locale locale) {
+        return instances.get(locale);
+    }
+    /**
+     * Loads the instances of {@link StacklessResource} for the given locales
+     * in parallel, and returns the time taken to load each, in
+     * nanoseconds. If executor is null, uses a temporary thread pool.
+     */
+    public static java.util.Map<Locale, Long> preload(
+        java.util.Collection<Locale> locales,
+        java.util.concurrent.Executor executor) {
+        return instances.preload(locales, executor);
+    }
+    private static final KeyIndex keyIndex =
+        new KeyIndex(
+            new String[] {
+                "NoMatch",
+                "UnexpectedToken",
+                "Internal",
+                "Backtrack",
+                "BadState"
+            },
+            new int[] {-1, 1, -4, -5, 0});
+    protected KeyIndex getKeyIndex() {
+        return keyIndex;
+    }
+
+    /**
+     * <code>Backtrack</code> is '<code>Cannot parse here</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition Backtrack = new org.eigenbase.resgen.ResourceDefinition("Backtrack", "Cannot parse here");
+    public String getBacktrack() {
+        return Backtrack.getConstant(this);
+    }
+    public StringBuilder appendBacktrack(StringBuilder buf) {
+        return buf.append(Backtrack.getConstant(this));
+    }
+    private volatile org.eigenbase.resgen.ResourceException cachedBacktrack;
+    public org.eigenbase.resgen.ResourceException newBacktrack() {
+        org.eigenbase.resgen.ResourceException e = cachedBacktrack;
+        if (e == null) {
+            e = new org.eigenbase.resgen.ResourceException(Backtrack.instantiate(this, emptyObjectArray), null, false);
+            cachedBacktrack = e;
+        }
+        return e;
+    }
+    public org.eigenbase.resgen.ResourceException newBacktrack(Throwable err) {
+        return new org.eigenbase.resgen.ResourceException(Backtrack.instantiate(this, emptyObjectArray), err, false);
+    }
+
+    /**
+     * <code>UnexpectedToken</code> is '<code>Unexpected token &#39;&#39;{0}&#39;&#39;</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition UnexpectedToken = new org.eigenbase.resgen.ResourceDefinition("UnexpectedToken", "Unexpected token ''{0}''");
+    public String getUnexpectedToken(String p0) {
+        return UnexpectedToken.instantiate(this, new Object[] {p0}).toString();
+    }
+    public StringBuilder appendUnexpectedToken(StringBuilder buf, String p0) {
+        UnexpectedToken.formatTo(this, new Object[] {p0}, buf);
+        return buf;
+    }
+    public org.eigenbase.resgen.ResourceException newUnexpectedToken(String p0) {
+        return new org.eigenbase.resgen.ResourceException(UnexpectedToken.instantiate(this, new Object[] {p0}), null, false);
+    }
+    public org.eigenbase.resgen.ResourceException newUnexpectedToken(String p0, Throwable err) {
+        return new org.eigenbase.resgen.ResourceException(UnexpectedToken.instantiate(this, new Object[] {p0}), err, false);
+    }
+
+    /**
+     * <code>NoMatch</code> is '<code>No match</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition NoMatch = new org.eigenbase.resgen.ResourceDefinition("NoMatch", "No match");
+    public String getNoMatch() {
+        return NoMatch.getConstant(this);
+    }
+    public StringBuilder appendNoMatch(StringBuilder buf) {
+        return buf.append(NoMatch.getConstant(this));
+    }
+    private volatile RuntimeException cachedNoMatch;
+    public RuntimeException newNoMatch() {
+        RuntimeException e = cachedNoMatch;
+        if (e == null) {
+            e = new RuntimeException(getNoMatch(), null, false, false) {};
+            cachedNoMatch = e;
+        }
+        return e;
+    }
+    public RuntimeException newNoMatch(Throwable err) {
+        return new RuntimeException(getNoMatch(), err, false, false) {};
+    }
+
+    /**
+     * <code>BadState</code> is '<code>Bad state</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition BadState = new org.eigenbase.resgen.ResourceDefinition("BadState", "Bad state");
+    public String getBadState() {
+        return BadState.getConstant(this);
+    }
+    public StringBuilder appendBadState(StringBuilder buf) {
+        return buf.append(BadState.getConstant(this));
+    }
+    public IllegalStateException newBadState() {
+        return new IllegalStateException(getBadState()) {
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        };
+    }
+    public IllegalStateException newBadState(Throwable err) {
+        return new IllegalStateException(getBadState(), err) {
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        };
+    }
+
+    /**
+     * <code>Internal</code> is '<code>Internal error</code>'
+     */
+    public static final org.eigenbase.resgen.ResourceDefinition Internal = new org.eigenbase.resgen.ResourceDefinition("Internal", "Internal error");
+    public String getInternal() {
+        return Internal.getConstant(this);
+    }
+    public StringBuilder appendInternal(StringBuilder buf) {
+        return buf.append(Internal.getConstant(this));
+    }
+    public RuntimeException newInternal() {
+        return new RuntimeException(getInternal());
+    }
+    public RuntimeException newInternal(Throwable err) {
+        return new RuntimeException(getInternal(), err);
+    }
+
+}
@@ -0,0 +1,24 @@
+// This class is generated. Do NOT modify it, or
+// add it to source control.
+
+package stackless;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import org.eigenbase.resgen.*;
+
+/**
+ * This class was generated
+ * by class org.eigenbase.resgen.ResourceGen
+ * from src/test/java/stackless/StacklessResource.xml
+ * on Fri Oct 16 23:18:31 UTC 2026.
+ * It contains a list of messages, and methods to
+ * retrieve and format those messages.
+ */
+
+public class StacklessResource_en_US extends StacklessResource {
+    public StacklessResource_en_US() throws IOException {
+    }
+}
+
+// End StacklessResource_en_US.java